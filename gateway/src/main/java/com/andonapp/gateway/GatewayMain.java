@@ -0,0 +1,120 @@
+package com.andonapp.gateway;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.andonapp.client.DefaultAndonAppClient;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+
+/**
+ * Runs a {@link GatewayServer} as a standalone process.
+ *
+ * <pre>
+ * --bind ADDRESS        address to listen on (default: all interfaces)
+ * --port N              TCP port, or 0 for no TCP (default 7070)
+ * --udp-port N          UDP port, or 0 for no UDP (default 7070)
+ * --org NAME            org name (required)
+ * --token TOKEN         API token (required)
+ * --endpoint URL        Andon endpoint (default: production)
+ * --workers N           threads forwarding events (default 32)
+ * --queue N             events queued before devices are pushed back on (default 10000)
+ * --idle-timeout N      seconds after which a silent TCP connection is closed (default: never)
+ * </pre>
+ */
+public final class GatewayMain {
+
+	private GatewayMain() {
+		// static class
+	}
+
+	public static void main(String[] args) throws Exception {
+		InetAddress bindAddress = null;
+		int tcpPort = 7070;
+		int udpPort = 7070;
+		String orgName = null;
+		String apiToken = null;
+		String endpoint = null;
+		int workers = GatewayServer.DEFAULT_WORKER_THREADS;
+		int queue = GatewayServer.DEFAULT_QUEUE_CAPACITY;
+		Duration idleTimeout = null;
+
+		for (int i = 0; i < args.length; i++) {
+			String value = i + 1 < args.length ? args[i + 1] : null;
+			switch (args[i]) {
+			case "--bind":
+				bindAddress = InetAddress.getByName(value);
+				break;
+			case "--port":
+				tcpPort = Integer.parseInt(value);
+				break;
+			case "--udp-port":
+				udpPort = Integer.parseInt(value);
+				break;
+			case "--org":
+				orgName = value;
+				break;
+			case "--token":
+				apiToken = value;
+				break;
+			case "--endpoint":
+				endpoint = value;
+				break;
+			case "--workers":
+				workers = Integer.parseInt(value);
+				break;
+			case "--queue":
+				queue = Integer.parseInt(value);
+				break;
+			case "--idle-timeout":
+				idleTimeout = Duration.ofSeconds(Long.parseLong(value));
+				break;
+			default:
+				System.err.println("Unknown option: " + args[i]);
+				System.exit(2);
+			}
+			i++;
+		}
+
+		if (orgName == null || apiToken == null) {
+			System.err.println("--org and --token are required");
+			System.exit(2);
+		}
+
+		// keep a connection per worker alive, rather than the default of five
+		OkHttpClient httpClient = new OkHttpClient.Builder()
+				.connectionPool(new ConnectionPool(workers, 5, TimeUnit.MINUTES))
+				.build();
+		DefaultAndonAppClient client = new DefaultAndonAppClient(orgName, apiToken, httpClient);
+		if (endpoint != null) {
+			client.setEndpoint(endpoint);
+		}
+
+		GatewayServer gateway = new GatewayServer(client, workers, queue);
+		gateway.setIdleTimeout(idleTimeout);
+		gateway.start(tcpPort == 0 ? null : new InetSocketAddress(bindAddress, tcpPort),
+				udpPort == 0 ? null : new InetSocketAddress(bindAddress, udpPort));
+
+		CountDownLatch stopped = new CountDownLatch(1);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				gateway.close();
+			} catch (Exception e) {
+				// exiting anyway
+			}
+			System.out.println(String.format("Received %,d events, forwarded %,d, failed %,d, malformed %,d, dropped %,d",
+					gateway.getReceivedCount(), gateway.getForwardedCount(), gateway.getFailedCount(),
+					gateway.getMalformedCount(), gateway.getDroppedCount()));
+			stopped.countDown();
+		}));
+
+		System.out.println(String.format("Andon gateway listening on TCP %d and UDP %d",
+				gateway.getTcpPort(), gateway.getUdpPort()));
+		stopped.await();
+	}
+
+}
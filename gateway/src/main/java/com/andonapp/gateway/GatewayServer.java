@@ -0,0 +1,547 @@
+package com.andonapp.gateway;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.andonapp.client.AndonAppClient;
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+/**
+ * Accepts report and status events from shop-floor devices over plain TCP and UDP, in
+ * the line protocol described in {@link LineProtocol}, and forwards them through one
+ * shared {@link AndonAppClient}.
+ *
+ * <p>A single selector thread serves every connection and datagram, so thousands of
+ * mostly idle devices cost a buffer each rather than a thread each. Parsed events are
+ * queued for a fixed pool of workers that make the HTTP calls. When the queue is full,
+ * TCP connections stop being read until there is room again, which pushes back on the
+ * devices through their socket buffers; UDP events are dropped and counted.
+ *
+ * <p>The following is an example usage: <pre> {@code
+ *
+ *   DefaultAndonAppClient andonClient = new DefaultAndonAppClient(orgName, apiToken);
+ *   GatewayServer gateway = new GatewayServer(andonClient);
+ *   gateway.start(new InetSocketAddress(7070), new InetSocketAddress(7070));
+ * }</pre>
+ */
+public class GatewayServer implements Closeable {
+
+	/**
+	 * Default number of threads forwarding events to Andon.
+	 */
+	public static final int DEFAULT_WORKER_THREADS = 32;
+
+	/**
+	 * Default number of events waiting to be forwarded before devices are pushed back on.
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+
+	static final int MAX_LINE_BYTES = 2048;
+
+	private static final int MAX_DATAGRAM_BYTES = 64 * 1024;
+	private static final int MAX_NAMES = 10_000;
+	private static final long SELECT_TIMEOUT_MILLIS = 100;
+
+	private final AndonAppClient client;
+	private final ThreadPoolExecutor workers;
+	private final LineProtocol protocol = new LineProtocol(new NameTable(MAX_NAMES));
+	private final ByteBuffer datagram = ByteBuffer.allocate(MAX_DATAGRAM_BYTES);
+	private final List<SelectionKey> paused = new ArrayList<>();
+
+	private final LongAdder received = new LongAdder();
+	private final LongAdder forwarded = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder malformed = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final AtomicInteger connections = new AtomicInteger();
+
+	/**
+	 * Time after which a silent TCP connection is closed, or 0 to keep it open.
+	 */
+	private volatile long idleTimeoutMillis;
+	private volatile Exception lastError;
+	private volatile boolean running;
+
+	private Selector selector;
+	private ServerSocketChannel tcpChannel;
+	private DatagramChannel udpChannel;
+	private Thread selectorThread;
+	private long lastIdleCheckMillis;
+
+	/**
+	 * Constructs a gateway with the default number of workers and queue capacity.
+	 *
+	 * @param client client to forward events through
+	 */
+	public GatewayServer(AndonAppClient client) {
+		this(client, DEFAULT_WORKER_THREADS, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Constructs a gateway.
+	 *
+	 * @param client client to forward events through
+	 * @param workerThreads number of threads forwarding events
+	 * @param queueCapacity number of events waiting to be forwarded before devices are
+	 *        pushed back on
+	 */
+	public GatewayServer(AndonAppClient client, int workerThreads, int queueCapacity) {
+		if (client == null) {
+			throw new IllegalArgumentException("client cannot be null");
+		}
+		if (workerThreads < 1) {
+			throw new IllegalArgumentException("workerThreads must be at least 1");
+		}
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("queueCapacity must be at least 1");
+		}
+		this.client = client;
+
+		AtomicInteger threadCount = new AtomicInteger();
+		this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 1, TimeUnit.MINUTES,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "andon-gateway-worker-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	/**
+	 * Sets the time after which a TCP connection that has sent nothing is closed, so
+	 * devices that vanished without closing their connection don't hold it forever.
+	 * Connections are kept open however long they're quiet by default, since a healthy
+	 * station can go hours without an event. A timeout should be well over the longest
+	 * expected gap between events.
+	 *
+	 * @param idleTimeout idle timeout, or null to never close quiet connections
+	 */
+	public void setIdleTimeout(Duration idleTimeout) {
+		if (idleTimeout != null && (idleTimeout.isNegative() || idleTimeout.isZero())) {
+			throw new IllegalArgumentException("idleTimeout must be positive");
+		}
+		this.idleTimeoutMillis = idleTimeout == null ? 0 : idleTimeout.toMillis();
+	}
+
+	/**
+	 * Starts listening for TCP and UDP on random loopback ports.
+	 *
+	 * @throws IOException if the ports can't be bound
+	 */
+	public void start() throws IOException {
+		InetAddress loopback = InetAddress.getLoopbackAddress();
+		start(new InetSocketAddress(loopback, 0), new InetSocketAddress(loopback, 0));
+	}
+
+	/**
+	 * Starts listening.
+	 *
+	 * @param tcpAddress address to accept TCP connections on, or null for no TCP
+	 * @param udpAddress address to receive UDP datagrams on, or null for no UDP
+	 * @throws IOException if the addresses can't be bound
+	 */
+	public synchronized void start(InetSocketAddress tcpAddress, InetSocketAddress udpAddress) throws IOException {
+		if (selector != null) {
+			throw new IllegalStateException("already started");
+		}
+		if (tcpAddress == null && udpAddress == null) {
+			throw new IllegalArgumentException("at least one of tcpAddress and udpAddress is required");
+		}
+
+		selector = Selector.open();
+		try {
+			if (tcpAddress != null) {
+				tcpChannel = ServerSocketChannel.open();
+				tcpChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+				tcpChannel.bind(tcpAddress, 1024);
+				tcpChannel.configureBlocking(false);
+				tcpChannel.register(selector, SelectionKey.OP_ACCEPT);
+			}
+			if (udpAddress != null) {
+				udpChannel = DatagramChannel.open();
+				udpChannel.setOption(StandardSocketOptions.SO_RCVBUF, 1024 * 1024);
+				udpChannel.bind(udpAddress);
+				udpChannel.configureBlocking(false);
+				udpChannel.register(selector, SelectionKey.OP_READ);
+			}
+		} catch (IOException e) {
+			closeChannels();
+			throw e;
+		}
+
+		workers.prestartAllCoreThreads();
+		running = true;
+		selectorThread = new Thread(this::run, "andon-gateway-selector");
+		selectorThread.start();
+	}
+
+	/**
+	 * Stops accepting events, closes every connection, and waits up to ten seconds for
+	 * queued events to be forwarded.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (selector == null || !running) {
+			return;
+		}
+		running = false;
+		selector.wakeup();
+		try {
+			selectorThread.join();
+			workers.shutdown();
+			workers.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			closeChannels();
+		}
+	}
+
+	/**
+	 * Returns the port TCP connections are accepted on.
+	 *
+	 * @return port, or -1 if TCP isn't enabled
+	 */
+	public int getTcpPort() {
+		return tcpChannel == null ? -1 : tcpChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Returns the port UDP datagrams are received on.
+	 *
+	 * @return port, or -1 if UDP isn't enabled
+	 */
+	public int getUdpPort() {
+		return udpChannel == null ? -1 : udpChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Returns how many well-formed events were received.
+	 *
+	 * @return count
+	 */
+	public long getReceivedCount() {
+		return received.sum();
+	}
+
+	/**
+	 * Returns how many events Andon accepted.
+	 *
+	 * @return count
+	 */
+	public long getForwardedCount() {
+		return forwarded.sum();
+	}
+
+	/**
+	 * Returns how many events failed to be forwarded. See {@link #getLastError()}.
+	 *
+	 * @return count
+	 */
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	/**
+	 * Returns how many lines couldn't be parsed or were too long.
+	 *
+	 * @return count
+	 */
+	public long getMalformedCount() {
+		return malformed.sum();
+	}
+
+	/**
+	 * Returns how many events were dropped because the queue was full. Only UDP events,
+	 * and the unterminated last line of a closing TCP connection, are ever dropped.
+	 *
+	 * @return count
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Returns the number of open TCP connections.
+	 *
+	 * @return count
+	 */
+	public int getConnectionCount() {
+		return connections.get();
+	}
+
+	/**
+	 * Returns the most recent error from forwarding an event.
+	 *
+	 * @return error, or null if there has been none
+	 */
+	public Exception getLastError() {
+		return lastError;
+	}
+
+	private void run() {
+		while (running) {
+			try {
+				selector.select(SELECT_TIMEOUT_MILLIS);
+				resumePaused();
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+					} else if (key.channel() == udpChannel) {
+						receive();
+					} else {
+						read(key);
+					}
+				}
+
+				closeIdleConnections();
+			} catch (IOException e) {
+				lastError = e;
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = tcpChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			channel.register(selector, SelectionKey.OP_READ, new Connection(System.currentTimeMillis()));
+			connections.incrementAndGet();
+		}
+	}
+
+	private void read(SelectionKey key) {
+		SocketChannel channel = (SocketChannel) key.channel();
+		Connection connection = (Connection) key.attachment();
+		try {
+			int read = channel.read(connection.buffer);
+			if (read < 0) {
+				// dispatch a final line that had no terminator
+				ByteBuffer buffer = connection.buffer;
+				if (!connection.discarding && buffer.position() > 0
+						&& !dispatch(buffer.array(), 0, buffer.position())) {
+					dropped.increment();
+				}
+				closeConnection(key);
+				return;
+			}
+			connection.lastReadMillis = System.currentTimeMillis();
+			if (!processLines(connection)) {
+				key.interestOps(0);
+				paused.add(key);
+			}
+		} catch (IOException e) {
+			closeConnection(key);
+		}
+	}
+
+	/**
+	 * Dispatches every complete line in the connection's buffer.
+	 *
+	 * @return false if the queue filled up, leaving the remaining lines in the buffer
+	 */
+	private boolean processLines(Connection connection) {
+		ByteBuffer buffer = connection.buffer;
+		byte[] bytes = buffer.array();
+		int end = buffer.position();
+		int start = 0;
+		boolean queued = true;
+
+		for (int i = 0; i < end; i++) {
+			if (bytes[i] != '\n') {
+				continue;
+			}
+			if (connection.discarding) {
+				connection.discarding = false;
+			} else if (!dispatch(bytes, start, i - start)) {
+				queued = false;
+				break;
+			}
+			start = i + 1;
+		}
+
+		if (queued && start == 0 && end == bytes.length) {
+			// no room left for the rest of an overlong line
+			if (!connection.discarding) {
+				malformed.increment();
+				connection.discarding = true;
+			}
+			start = end;
+		}
+
+		buffer.limit(end);
+		buffer.position(start);
+		buffer.compact();
+		return queued;
+	}
+
+	private void resumePaused() {
+		if (paused.isEmpty() || workers.getQueue().remainingCapacity() == 0) {
+			return;
+		}
+		Iterator<SelectionKey> keys = paused.iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			if (!key.isValid()) {
+				keys.remove();
+				continue;
+			}
+			if (!processLines((Connection) key.attachment())) {
+				return;
+			}
+			key.interestOps(SelectionKey.OP_READ);
+			keys.remove();
+		}
+	}
+
+	private void receive() throws IOException {
+		while (true) {
+			datagram.clear();
+			if (udpChannel.receive(datagram) == null) {
+				return;
+			}
+			byte[] bytes = datagram.array();
+			int end = datagram.position();
+			int start = 0;
+			for (int i = 0; i <= end; i++) {
+				if (i == end || bytes[i] == '\n') {
+					if (i > start && !dispatch(bytes, start, i - start)) {
+						dropped.increment();
+					}
+					start = i + 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses a line and queues it to be forwarded.
+	 *
+	 * @return false if the queue was full
+	 */
+	private boolean dispatch(byte[] bytes, int offset, int length) {
+		Object request;
+		try {
+			request = protocol.parse(bytes, offset, length);
+		} catch (IllegalArgumentException e) {
+			malformed.increment();
+			return true;
+		}
+		if (request == null) {
+			return true;
+		}
+
+		// counted first, so it's never seen as forwarded before it's received
+		received.increment();
+		try {
+			workers.execute(() -> forward(request));
+		} catch (RejectedExecutionException e) {
+			// the line is dispatched again once there's room
+			received.decrement();
+			return false;
+		}
+		return true;
+	}
+
+	private void forward(Object request) {
+		try {
+			if (request instanceof ReportDataRequest) {
+				client.reportData((ReportDataRequest) request);
+			} else {
+				client.updateStationStatus((UpdateStationStatusRequest) request);
+			}
+			forwarded.increment();
+		} catch (Exception e) {
+			lastError = e;
+			failed.increment();
+		}
+	}
+
+	private void closeIdleConnections() {
+		long timeout = idleTimeoutMillis;
+		long now = System.currentTimeMillis();
+		if (timeout == 0 || now - lastIdleCheckMillis < 1000) {
+			return;
+		}
+		lastIdleCheckMillis = now;
+
+		for (SelectionKey key : selector.keys()) {
+			Object attachment = key.attachment();
+			if (attachment instanceof Connection && now - ((Connection) attachment).lastReadMillis > timeout) {
+				closeConnection(key);
+			}
+		}
+	}
+
+	private void closeConnection(SelectionKey key) {
+		// a cancelled key stays in the key set until the next select
+		if (!key.isValid()) {
+			return;
+		}
+		key.cancel();
+		connections.decrementAndGet();
+		try {
+			key.channel().close();
+		} catch (IOException e) {
+			// nothing left to do with it
+		}
+	}
+
+	private void closeChannels() throws IOException {
+		for (SelectionKey key : selector.keys()) {
+			if (key.attachment() instanceof Connection) {
+				closeConnection(key);
+			}
+		}
+		if (tcpChannel != null) {
+			tcpChannel.close();
+		}
+		if (udpChannel != null) {
+			udpChannel.close();
+		}
+		selector.close();
+	}
+
+	/**
+	 * Read state of one TCP connection. Only touched by the selector thread.
+	 */
+	private static final class Connection {
+
+		final ByteBuffer buffer = ByteBuffer.allocate(MAX_LINE_BYTES);
+		boolean discarding;
+		long lastReadMillis;
+
+		Connection(long now) {
+			this.lastReadMillis = now;
+		}
+
+	}
+
+}
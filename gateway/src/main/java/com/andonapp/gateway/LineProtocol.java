@@ -0,0 +1,189 @@
+package com.andonapp.gateway;
+
+import java.nio.charset.StandardCharsets;
+
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+/**
+ * Parses the gateway's line protocol. Each message is one line of {@code |}-separated
+ * fields, and empty fields are treated as absent:
+ *
+ * <pre>
+ * R|lineName|stationName|PASS or FAIL|processTimeSeconds[|failReason[|failNotes]]
+ * S|lineName|stationName|GREEN, YELLOW or RED[|statusReason[|statusNotes]]
+ * </pre>
+ *
+ * <p>The notes field runs to the end of the line, so it may itself contain {@code |}.
+ * Fields are located in the receive buffer without copying it, and names are looked
+ * up in a {@link NameTable}, so a message costs little more than its request object.
+ * Not thread safe.
+ */
+final class LineProtocol {
+
+	private static final int REPORT_FIELDS = 6;
+	private static final int STATUS_FIELDS = 5;
+
+	private static final byte[] PASS = bytes("PASS");
+	private static final byte[] FAIL = bytes("FAIL");
+	private static final byte[] GREEN = bytes("GREEN");
+	private static final byte[] YELLOW = bytes("YELLOW");
+	private static final byte[] RED = bytes("RED");
+
+	private final NameTable names;
+	private final int[] starts = new int[REPORT_FIELDS];
+	private final int[] ends = new int[REPORT_FIELDS];
+
+	LineProtocol(NameTable names) {
+		this.names = names;
+	}
+
+	/**
+	 * Parses one line.
+	 *
+	 * @param bytes buffer holding the line
+	 * @param offset offset of the line's first byte
+	 * @param length length of the line, without its terminator
+	 * @return a {@link ReportDataRequest} or {@link UpdateStationStatusRequest}, or null
+	 *         if the line is blank
+	 * @throws IllegalArgumentException if the line is malformed
+	 */
+	Object parse(byte[] bytes, int offset, int length) {
+		int end = offset + length;
+		if (end > offset && bytes[end - 1] == '\r') {
+			end--;
+		}
+		if (end == offset) {
+			return null;
+		}
+		if (end - offset < 2 || bytes[offset + 1] != '|') {
+			throw new IllegalArgumentException("expected R| or S|");
+		}
+
+		switch (bytes[offset]) {
+		case 'R':
+			return parseReport(bytes, split(bytes, offset + 2, end, REPORT_FIELDS));
+		case 'S':
+			return parseStatus(bytes, split(bytes, offset + 2, end, STATUS_FIELDS));
+		default:
+			throw new IllegalArgumentException("unknown message type");
+		}
+	}
+
+	private ReportDataRequest parseReport(byte[] bytes, int fieldCount) {
+		if (fieldCount < 4) {
+			throw new IllegalArgumentException("report needs line, station, result and process time");
+		}
+		String passResult;
+		if (fieldEquals(bytes, 2, PASS)) {
+			passResult = "PASS";
+		} else if (fieldEquals(bytes, 2, FAIL)) {
+			passResult = "FAIL";
+		} else {
+			throw new IllegalArgumentException("result must be PASS or FAIL");
+		}
+
+		return ReportDataRequest.builder()
+				.lineName(requiredName(bytes, 0, "lineName"))
+				.stationName(requiredName(bytes, 1, "stationName"))
+				.passResult(passResult)
+				.processTimeSeconds(parseSeconds(bytes, 3))
+				.failReason(fieldCount > 4 ? name(bytes, 4) : null)
+				.failNotes(fieldCount > 5 ? text(bytes, 5) : null)
+				.build();
+	}
+
+	private UpdateStationStatusRequest parseStatus(byte[] bytes, int fieldCount) {
+		if (fieldCount < 3) {
+			throw new IllegalArgumentException("status needs line, station and color");
+		}
+		String statusColor;
+		if (fieldEquals(bytes, 2, GREEN)) {
+			statusColor = "GREEN";
+		} else if (fieldEquals(bytes, 2, YELLOW)) {
+			statusColor = "YELLOW";
+		} else if (fieldEquals(bytes, 2, RED)) {
+			statusColor = "RED";
+		} else {
+			throw new IllegalArgumentException("color must be GREEN, YELLOW or RED");
+		}
+
+		return UpdateStationStatusRequest.builder()
+				.lineName(requiredName(bytes, 0, "lineName"))
+				.stationName(requiredName(bytes, 1, "stationName"))
+				.statusColor(statusColor)
+				.statusReason(fieldCount > 3 ? name(bytes, 3) : null)
+				.statusNotes(fieldCount > 4 ? text(bytes, 4) : null)
+				.build();
+	}
+
+	/**
+	 * Records where each field starts and ends. The last of the maximum number of
+	 * fields takes the rest of the line.
+	 */
+	private int split(byte[] bytes, int from, int end, int maxFields) {
+		int field = 0;
+		starts[0] = from;
+		for (int i = from; i < end && field < maxFields - 1; i++) {
+			if (bytes[i] == '|') {
+				ends[field] = i;
+				starts[++field] = i + 1;
+			}
+		}
+		ends[field] = end;
+		return field + 1;
+	}
+
+	private Long parseSeconds(byte[] bytes, int field) {
+		int start = starts[field];
+		int end = ends[field];
+		if (start == end || end - start > 18) {
+			throw new IllegalArgumentException("process time must be a whole number of seconds");
+		}
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = bytes[i] - '0';
+			if (digit < 0 || digit > 9) {
+				throw new IllegalArgumentException("process time must be a whole number of seconds");
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private String requiredName(byte[] bytes, int field, String fieldName) {
+		String name = name(bytes, field);
+		if (name == null) {
+			throw new IllegalArgumentException(fieldName + " is missing");
+		}
+		return name;
+	}
+
+	private String name(byte[] bytes, int field) {
+		int length = ends[field] - starts[field];
+		return length == 0 ? null : names.intern(bytes, starts[field], length);
+	}
+
+	private String text(byte[] bytes, int field) {
+		int length = ends[field] - starts[field];
+		return length == 0 ? null : new String(bytes, starts[field], length, StandardCharsets.UTF_8);
+	}
+
+	private boolean fieldEquals(byte[] bytes, int field, byte[] expected) {
+		int start = starts[field];
+		if (ends[field] - start != expected.length) {
+			return false;
+		}
+		for (int i = 0; i < expected.length; i++) {
+			if (bytes[start + i] != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.andonapp.gateway;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Maps the bytes of a name to a shared {@link String}, so the line, station, result
+ * and reason names that devices send over and over are decoded once instead of once
+ * per message. Lookups don't allocate.
+ *
+ * <p>Once the table holds its maximum number of names, new names are decoded on every
+ * use instead of being added. Not thread safe.
+ */
+final class NameTable {
+
+	private final byte[][] keys;
+	private final String[] values;
+	private final int[] hashes;
+	private final int mask;
+	private final int maxSize;
+	private int size;
+
+	/**
+	 * @param maxSize maximum number of names kept
+	 */
+	NameTable(int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be at least 1");
+		}
+		int capacity = Integer.highestOneBit(maxSize * 2 - 1) << 1;
+		this.keys = new byte[capacity][];
+		this.values = new String[capacity];
+		this.hashes = new int[capacity];
+		this.mask = capacity - 1;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the name spelled by the given bytes.
+	 *
+	 * @param bytes buffer holding the name
+	 * @param offset offset of the name's first byte
+	 * @param length length of the name in bytes
+	 * @return the name
+	 */
+	String intern(byte[] bytes, int offset, int length) {
+		int hash = hash(bytes, offset, length);
+		int slot = hash & mask;
+		while (keys[slot] != null) {
+			if (hashes[slot] == hash && equals(keys[slot], bytes, offset, length)) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		String name = new String(bytes, offset, length, StandardCharsets.UTF_8);
+		if (size < maxSize) {
+			keys[slot] = Arrays.copyOfRange(bytes, offset, offset + length);
+			values[slot] = name;
+			hashes[slot] = hash;
+			size++;
+		}
+		return name;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private static int hash(byte[] bytes, int offset, int length) {
+		// FNV-1a
+		int hash = 0x811c9dc5;
+		for (int i = offset; i < offset + length; i++) {
+			hash ^= bytes[i];
+			hash *= 0x01000193;
+		}
+		return hash;
+	}
+
+	private static boolean equals(byte[] key, byte[] bytes, int offset, int length) {
+		if (key.length != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (key[i] != bytes[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,183 @@
+package com.andonapp.gateway;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.LongSupplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.andonapp.client.AndonAppClient;
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+public class GatewayServerTest {
+
+	private final RecordingClient client = new RecordingClient();
+
+	private GatewayServer gateway;
+
+	@After
+	public void after() throws IOException {
+		client.release.countDown();
+		gateway.close();
+	}
+
+	@Test
+	public void shouldForwardLinesSplitAcrossWrites() throws Exception {
+		start(4, 100);
+
+		try (Socket socket = connect()) {
+			OutputStream out = socket.getOutputStream();
+			write(out, "R|line 1|station 1|PASS|120\nS|line 1|sta");
+			Thread.sleep(50);
+			write(out, "tion 1|YELLOW|Low stock\n");
+			awaitCount(gateway::getForwardedCount, 2);
+		}
+
+		assertEquals(Arrays.asList("report station 1 PASS", "status station 1 YELLOW"), client.events);
+		assertEquals(2, gateway.getReceivedCount());
+	}
+
+	@Test
+	public void shouldForwardDatagrams() throws Exception {
+		start(4, 100);
+
+		byte[] bytes = "R|line 1|station 1|PASS|120\nR|line 1|station 2|FAIL|90|Leak"
+				.getBytes(StandardCharsets.UTF_8);
+		try (DatagramSocket socket = new DatagramSocket()) {
+			socket.send(new DatagramPacket(bytes, bytes.length, InetAddress.getLoopbackAddress(), gateway.getUdpPort()));
+		}
+
+		awaitCount(gateway::getForwardedCount, 2);
+		assertTrue(client.events.contains("report station 2 FAIL"));
+	}
+
+	@Test
+	public void shouldCountMalformedAndOverlongLines() throws Exception {
+		start(4, 100);
+
+		char[] longLine = new char[GatewayServer.MAX_LINE_BYTES * 2];
+		Arrays.fill(longLine, 'x');
+		try (Socket socket = connect()) {
+			write(socket.getOutputStream(), "R|line 1|station 1|MAYBE|120\n" + new String(longLine)
+					+ "\nR|line 1|station 1|PASS|120\n");
+			awaitCount(gateway::getForwardedCount, 1);
+		}
+
+		assertEquals(2, gateway.getMalformedCount());
+		assertEquals(1, gateway.getReceivedCount());
+	}
+
+	@Test
+	public void shouldPushBackOnTcpInsteadOfDropping() throws Exception {
+		start(1, 1);
+		client.release = new CountDownLatch(1);
+
+		try (Socket socket = connect()) {
+			StringBuilder lines = new StringBuilder();
+			for (int i = 0; i < 50; i++) {
+				lines.append("R|line 1|station ").append(i).append("|PASS|120\n");
+			}
+			write(socket.getOutputStream(), lines.toString());
+			awaitCount(gateway::getReceivedCount, 2);
+			Thread.sleep(200);
+			assertEquals(2, gateway.getReceivedCount());
+
+			client.release.countDown();
+			awaitCount(gateway::getForwardedCount, 50);
+		}
+
+		assertEquals(0, gateway.getDroppedCount());
+		assertEquals("report station 49 PASS", client.events.get(49));
+	}
+
+	@Test
+	public void shouldCloseIdleConnections() throws Exception {
+		start(1, 1);
+		gateway.setIdleTimeout(Duration.ofMillis(100));
+
+		try (Socket socket = connect()) {
+			awaitCount(gateway::getConnectionCount, 1);
+			assertEquals(-1, socket.getInputStream().read());
+			assertEquals(0, gateway.getConnectionCount());
+		}
+
+		gateway.close();
+		assertEquals(0, gateway.getConnectionCount());
+	}
+
+	@Test
+	public void shouldKeepQuietConnectionsOpenByDefault() throws Exception {
+		start(1, 1);
+
+		try (Socket socket = connect()) {
+			awaitCount(gateway::getConnectionCount, 1);
+			Thread.sleep(1500);
+			assertEquals(1, gateway.getConnectionCount());
+		}
+	}
+
+	private void start(int workers, int queue) throws IOException {
+		gateway = new GatewayServer(client, workers, queue);
+		gateway.start();
+	}
+
+	private Socket connect() throws IOException {
+		return new Socket(InetAddress.getLoopbackAddress(), gateway.getTcpPort());
+	}
+
+	private static void write(OutputStream out, String text) throws IOException {
+		out.write(text.getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+
+	private static void awaitCount(LongSupplier count, long expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (count.getAsLong() < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(expected, count.getAsLong());
+	}
+
+	private static class RecordingClient implements AndonAppClient {
+
+		final List<String> events = new CopyOnWriteArrayList<>();
+		volatile CountDownLatch release = new CountDownLatch(0);
+
+		@Override
+		public void reportData(ReportDataRequest request) {
+			await();
+			events.add("report " + request.getStationName() + " " + request.getPassResult());
+		}
+
+		@Override
+		public void updateStationStatus(UpdateStationStatusRequest request) {
+			await();
+			events.add("status " + request.getStationName() + " " + request.getStatusColor());
+		}
+
+		private void await() {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+	}
+
+}
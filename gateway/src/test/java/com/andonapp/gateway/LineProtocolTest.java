@@ -0,0 +1,113 @@
+package com.andonapp.gateway;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+public class LineProtocolTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private final LineProtocol protocol = new LineProtocol(new NameTable(100));
+
+	@Test
+	public void shouldParseReport() {
+		ReportDataRequest request = (ReportDataRequest) parse("R|line 1|station 1|FAIL|95|Leak|bubbles | hiss\r");
+
+		assertEquals("line 1", request.getLineName());
+		assertEquals("station 1", request.getStationName());
+		assertEquals("FAIL", request.getPassResult());
+		assertEquals(Long.valueOf(95), request.getProcessTimeSeconds());
+		assertEquals("Leak", request.getFailReason());
+		assertEquals("bubbles | hiss", request.getFailNotes());
+	}
+
+	@Test
+	public void shouldParseReportWithoutOptionalFields() {
+		ReportDataRequest request = (ReportDataRequest) parse("R|line 1|station 1|PASS|120");
+
+		assertEquals("PASS", request.getPassResult());
+		assertNull(request.getFailReason());
+		assertNull(request.getFailNotes());
+	}
+
+	@Test
+	public void shouldParseStatus() {
+		UpdateStationStatusRequest request = (UpdateStationStatusRequest) parse("S|line 1|station 1|RED||a|b");
+
+		assertEquals("RED", request.getStatusColor());
+		assertNull(request.getStatusReason());
+		assertEquals("a|b", request.getStatusNotes());
+	}
+
+	@Test
+	public void shouldReuseNames() {
+		ReportDataRequest first = (ReportDataRequest) parse("R|line 1|station 1|PASS|120");
+		ReportDataRequest second = (ReportDataRequest) parse("R|line 1|station 1|PASS|121");
+
+		assertSame(first.getLineName(), second.getLineName());
+		assertSame(first.getStationName(), second.getStationName());
+	}
+
+	@Test
+	public void shouldIgnoreBlankLine() {
+		assertNull(parse("\r"));
+	}
+
+	@Test
+	public void shouldRejectUnknownType() {
+		thrown.expect(IllegalArgumentException.class);
+		thrown.expectMessage("unknown message type");
+
+		parse("X|line 1|station 1");
+	}
+
+	@Test
+	public void shouldRejectInvalidResult() {
+		thrown.expect(IllegalArgumentException.class);
+		thrown.expectMessage("result must be PASS or FAIL");
+
+		parse("R|line 1|station 1|PAS|120");
+	}
+
+	@Test
+	public void shouldRejectInvalidProcessTime() {
+		thrown.expect(IllegalArgumentException.class);
+		thrown.expectMessage("process time must be a whole number of seconds");
+
+		parse("R|line 1|station 1|PASS|1.5");
+	}
+
+	@Test
+	public void shouldRejectMissingStation() {
+		thrown.expect(IllegalArgumentException.class);
+		thrown.expectMessage("stationName is missing");
+
+		parse("S|line 1||GREEN");
+	}
+
+	@Test
+	public void shouldRejectMissingFields() {
+		thrown.expect(IllegalArgumentException.class);
+		thrown.expectMessage("status needs line, station and color");
+
+		parse("S|line 1|station 1");
+	}
+
+	private Object parse(String line) {
+		// surround the line with other bytes, as it would be in a receive buffer
+		byte[] bytes = ("xx" + line + "\nyy").getBytes(StandardCharsets.UTF_8);
+		return protocol.parse(bytes, 2, line.getBytes(StandardCharsets.UTF_8).length);
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.andonapp.ingest;
+
+/**
+ * How far a file has been ingested: the identity of the file, how many times it has
+ * been truncated in place, and the offset just past the last line that was handled.
+ */
+final class Checkpoint {
+
+	final String fileKey;
+	final long generation;
+	final long position;
+
+	Checkpoint(String fileKey, long generation, long position) {
+		this.fileKey = fileKey;
+		this.generation = generation;
+		this.position = position;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof Checkpoint)) {
+			return false;
+		}
+		Checkpoint checkpoint = (Checkpoint) other;
+		return fileKey.equals(checkpoint.fileKey) && generation == checkpoint.generation
+				&& position == checkpoint.position;
+	}
+
+	@Override
+	public int hashCode() {
+		return (fileKey.hashCode() * 31 + Long.hashCode(generation)) * 31 + Long.hashCode(position);
+	}
+
+	@Override
+	public String toString() {
+		return fileKey + ":" + generation + "@" + position;
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.andonapp.ingest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Keeps checkpoints in a properties file, replaced atomically on every save so that a
+ * crash leaves either the old or the new checkpoints.
+ */
+final class CheckpointStore {
+
+	private static final String FILE_KEY_SUFFIX = ".fileKey";
+	private static final String GENERATION_SUFFIX = ".generation";
+	private static final String POSITION_SUFFIX = ".position";
+
+	private final Path file;
+
+	CheckpointStore(Path file) {
+		this.file = file;
+	}
+
+	Map<String, Checkpoint> load() throws IOException {
+		Map<String, Checkpoint> checkpoints = new HashMap<>();
+		if (!Files.exists(file)) {
+			return checkpoints;
+		}
+
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		for (String name : properties.stringPropertyNames()) {
+			if (name.endsWith(FILE_KEY_SUFFIX)) {
+				String path = name.substring(0, name.length() - FILE_KEY_SUFFIX.length());
+				String generation = properties.getProperty(path + GENERATION_SUFFIX, "0");
+				String position = properties.getProperty(path + POSITION_SUFFIX);
+				if (position != null) {
+					checkpoints.put(path, new Checkpoint(properties.getProperty(name), Long.parseLong(generation),
+							Long.parseLong(position)));
+				}
+			}
+		}
+		return checkpoints;
+	}
+
+	void save(Map<String, Checkpoint> checkpoints) throws IOException {
+		Properties properties = new Properties();
+		for (Map.Entry<String, Checkpoint> entry : checkpoints.entrySet()) {
+			properties.setProperty(entry.getKey() + FILE_KEY_SUFFIX, entry.getValue().fileKey);
+			properties.setProperty(entry.getKey() + GENERATION_SUFFIX, Long.toString(entry.getValue().generation));
+			properties.setProperty(entry.getKey() + POSITION_SUFFIX, Long.toString(entry.getValue().position));
+		}
+
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+			properties.store(writer, "Andon ingest checkpoints");
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.andonapp.ingest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.andonapp.client.model.ReportDataRequest;
+
+/**
+ * Maps delimited lines, with optional double-quoted fields, to reports.
+ */
+public final class CsvRecordMapper implements RecordMapper {
+
+	private final FieldMapping mapping;
+
+	private String cachedHeader;
+	private Map<String, Integer> cachedColumns;
+
+	public CsvRecordMapper(FieldMapping mapping) {
+		this.mapping = mapping;
+	}
+
+	@Override
+	public ReportDataRequest map(String line, String header) {
+		if (line.trim().isEmpty()) {
+			return null;
+		}
+		List<String> values = split(line, mapping.getDelimiter());
+		Map<String, Integer> columns = columns(header);
+
+		return mapping.toRequest(source -> {
+			int index;
+			if (source.startsWith("#")) {
+				index = Integer.parseInt(source.substring(1)) - 1;
+			} else {
+				Integer column = columns.get(source);
+				if (column == null) {
+					throw new IllegalArgumentException("no column named '" + source + "'");
+				}
+				index = column;
+			}
+			return index >= 0 && index < values.size() ? values.get(index) : null;
+		});
+	}
+
+	@Override
+	public boolean hasHeader() {
+		return mapping.hasHeader();
+	}
+
+	private synchronized Map<String, Integer> columns(String header) {
+		if (header == null) {
+			return new HashMap<>();
+		}
+		if (!header.equals(cachedHeader)) {
+			Map<String, Integer> columns = new HashMap<>();
+			List<String> names = split(header, mapping.getDelimiter());
+			for (int i = 0; i < names.size(); i++) {
+				columns.put(names.get(i).trim(), i);
+			}
+			cachedHeader = header;
+			cachedColumns = columns;
+		}
+		return cachedColumns;
+	}
+
+	static List<String> split(String line, char delimiter) {
+		List<String> values = new ArrayList<>();
+		StringBuilder value = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					value.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					value.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == delimiter) {
+				values.add(value.toString());
+				value.setLength(0);
+			} else {
+				value.append(c);
+			}
+		}
+		values.add(value.toString());
+		return values;
+	}
+
+}
@@ -0,0 +1,187 @@
+package com.andonapp.ingest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import com.andonapp.client.model.ReportDataRequest;
+
+/**
+ * Says where each {@link ReportDataRequest} field comes from in a result record. A
+ * source is a column or property name, {@code #N} for the Nth column (counting from
+ * 1), or {@code =value} for a constant.
+ *
+ * <pre>
+ * lineName=Final Assembly           constant line for every record
+ * stationName=#2                    second column
+ * passResult=result                 column named "result" in the header
+ * processTimeSeconds=cycle_time
+ * failReason=fail_code
+ * failNotes=/details/message        JSON pointer, for JSON records
+ * passValues=PASS,OK,1              values that mean PASS (default PASS,OK,TRUE,1)
+ * failValues=FAIL,NG,NOK,0          values that mean FAIL (default FAIL,NG,NOK,FALSE,0)
+ * delimiter=;                       CSV delimiter (default ,)
+ * header=true                       whether CSV files start with a header (default true)
+ * </pre>
+ */
+public final class FieldMapping {
+
+	static final String LINE_NAME = "lineName";
+	static final String STATION_NAME = "stationName";
+	static final String PASS_RESULT = "passResult";
+	static final String PROCESS_TIME_SECONDS = "processTimeSeconds";
+	static final String FAIL_REASON = "failReason";
+	static final String FAIL_NOTES = "failNotes";
+
+	private static final String[] FIELDS = {
+			LINE_NAME, STATION_NAME, PASS_RESULT, PROCESS_TIME_SECONDS, FAIL_REASON, FAIL_NOTES};
+
+	private final Map<String, String> sources = new HashMap<>();
+	private final Set<String> passValues;
+	private final Set<String> failValues;
+	private final char delimiter;
+	private final boolean header;
+
+	/**
+	 * Creates a mapping from properties in the format above.
+	 *
+	 * @param properties field sources and options
+	 */
+	public FieldMapping(Map<String, String> properties) {
+		for (String field : FIELDS) {
+			String source = properties.get(field);
+			if (source != null && !source.isEmpty()) {
+				sources.put(field, source);
+			}
+		}
+		for (String required : new String[] {LINE_NAME, STATION_NAME, PASS_RESULT}) {
+			if (!sources.containsKey(required)) {
+				throw new IllegalArgumentException("mapping has no source for " + required);
+			}
+		}
+
+		this.passValues = valueSet(properties.getOrDefault("passValues", "PASS,OK,TRUE,1"));
+		this.failValues = valueSet(properties.getOrDefault("failValues", "FAIL,NG,NOK,FALSE,0"));
+
+		String delimiterValue = properties.getOrDefault("delimiter", ",");
+		if ("\\t".equals(delimiterValue)) {
+			delimiterValue = "\t";
+		}
+		if (delimiterValue.length() != 1) {
+			throw new IllegalArgumentException("delimiter must be a single character");
+		}
+		this.delimiter = delimiterValue.charAt(0);
+		this.header = Boolean.parseBoolean(properties.getOrDefault("header", "true"));
+	}
+
+	/**
+	 * Loads a mapping from a properties file.
+	 *
+	 * @param path properties file
+	 * @return the mapping
+	 * @throws IOException if the file can't be read
+	 */
+	public static FieldMapping load(Path path) throws IOException {
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		Map<String, String> values = new HashMap<>();
+		for (String name : properties.stringPropertyNames()) {
+			values.put(name, properties.getProperty(name).trim());
+		}
+		return new FieldMapping(values);
+	}
+
+	char getDelimiter() {
+		return delimiter;
+	}
+
+	boolean hasHeader() {
+		return header;
+	}
+
+	/**
+	 * Builds a report, looking up each non-constant source with the given function.
+	 *
+	 * @throws IllegalArgumentException if the record is missing a required field
+	 */
+	ReportDataRequest toRequest(UnaryOperator<String> lookup) {
+		String lineName = required(LINE_NAME, lookup);
+		String stationName = required(STATION_NAME, lookup);
+		String passResult = normalizePassResult(required(PASS_RESULT, lookup));
+		String processTime = resolve(PROCESS_TIME_SECONDS, lookup);
+
+		return ReportDataRequest.builder()
+				.lineName(lineName)
+				.stationName(stationName)
+				.passResult(passResult)
+				.processTimeSeconds(processTime == null ? null : parseSeconds(processTime))
+				.failReason("FAIL".equals(passResult) ? resolve(FAIL_REASON, lookup) : null)
+				.failNotes("FAIL".equals(passResult) ? resolve(FAIL_NOTES, lookup) : null)
+				.build();
+	}
+
+	static boolean isConstant(String source) {
+		return source.startsWith("=");
+	}
+
+	private String resolve(String field, UnaryOperator<String> lookup) {
+		String source = sources.get(field);
+		if (source == null) {
+			return null;
+		}
+		String value = isConstant(source) ? source.substring(1) : lookup.apply(source);
+		if (value == null) {
+			return null;
+		}
+		value = value.trim();
+		return value.isEmpty() ? null : value;
+	}
+
+	private String required(String field, UnaryOperator<String> lookup) {
+		String value = resolve(field, lookup);
+		if (value == null) {
+			throw new IllegalArgumentException("record has no " + field);
+		}
+		return value;
+	}
+
+	private String normalizePassResult(String value) {
+		String upper = value.toUpperCase(Locale.ROOT);
+		if (passValues.contains(upper)) {
+			return "PASS";
+		}
+		if (failValues.contains(upper)) {
+			return "FAIL";
+		}
+		throw new IllegalArgumentException("'" + value + "' is not a known pass or fail value");
+	}
+
+	private static Long parseSeconds(String value) {
+		try {
+			return Math.round(Double.parseDouble(value));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("processTimeSeconds '" + value + "' is not a number", e);
+		}
+	}
+
+	private static Set<String> valueSet(String values) {
+		Set<String> set = new HashSet<>();
+		for (String value : Arrays.asList(values.split(","))) {
+			set.add(value.trim().toUpperCase(Locale.ROOT));
+		}
+		return set;
+	}
+
+}
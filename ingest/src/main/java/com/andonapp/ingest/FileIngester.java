@@ -0,0 +1,255 @@
+package com.andonapp.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.andonapp.client.AndonAppClient;
+import com.andonapp.client.exception.AndonInvalidRequestException;
+import com.andonapp.client.exception.AndonResourceNotFoundException;
+import com.andonapp.client.model.ReportDataRequest;
+
+/**
+ * Streams the records appended to result files in a directory into an
+ * {@link AndonAppClient}. Files are tailed with a {@link FileTailer} each, polled when
+ * the {@link WatchService} reports a change and every poll interval in case an event
+ * was missed. Positions are checkpointed to a file after every poll that made
+ * progress, so a restart carries on where the last run stopped.
+ *
+ * <p>Delivery is at least once. A record is sent with an idempotency key made from the
+ * file key, the number of times the file was truncated in place, and the record's
+ * offset, so a record sent again after a crash carries the same key while a record
+ * written over an earlier one after a truncation doesn't. A record that can't be mapped, or that Andon rejects as invalid or for an
+ * unknown station, is counted and skipped. Any other failure stops the file at that
+ * record until the next poll.
+ */
+public class FileIngester implements Closeable {
+
+	/**
+	 * Default interval between polls of every file.
+	 */
+	public static final long DEFAULT_POLL_MILLIS = 2000;
+
+	private final Path directory;
+	private final PathMatcher matcher;
+	private final RecordMapper mapper;
+	private final AndonAppClient client;
+	private final CheckpointStore checkpointStore;
+	private final Map<String, Checkpoint> savedCheckpoints;
+	private final Map<Path, FileTailer> tailers = new HashMap<>();
+	private final WatchService watchService;
+
+	private final LongAdder sent = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder malformed = new LongAdder();
+	private volatile Exception lastError;
+
+	/**
+	 * Creates an ingester for the files in a directory.
+	 *
+	 * @param directory directory to watch
+	 * @param glob pattern that file names must match, such as {@code *.csv}
+	 * @param mapper maps lines to reports
+	 * @param client client to send reports with
+	 * @param checkpointFile file to keep positions in
+	 * @throws IOException if the directory can't be watched or the checkpoints can't be read
+	 */
+	public FileIngester(Path directory, String glob, RecordMapper mapper, AndonAppClient client,
+			Path checkpointFile) throws IOException {
+		this.directory = directory;
+		this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+		this.mapper = mapper;
+		this.client = client;
+		this.checkpointStore = new CheckpointStore(checkpointFile);
+		this.savedCheckpoints = checkpointStore.load();
+		this.watchService = directory.getFileSystem().newWatchService();
+		directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+	}
+
+	/**
+	 * Polls files as they change until closed.
+	 *
+	 * @param pollMillis interval between polls of every file
+	 * @throws IOException if a file or the checkpoints can't be read or written
+	 * @throws InterruptedException if interrupted while waiting for changes
+	 */
+	public void run(long pollMillis) throws IOException, InterruptedException {
+		pollAll();
+		while (true) {
+			WatchKey key;
+			try {
+				key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+			} catch (ClosedWatchServiceException e) {
+				return;
+			}
+			if (key == null) {
+				pollAll();
+				continue;
+			}
+
+			Set<Path> changed = new LinkedHashSet<>();
+			boolean overflow = false;
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					overflow = true;
+				} else {
+					Path name = (Path) event.context();
+					if (matcher.matches(name)) {
+						changed.add(directory.resolve(name));
+					}
+				}
+			}
+			key.reset();
+
+			if (overflow) {
+				pollAll();
+			} else {
+				poll(changed);
+			}
+		}
+	}
+
+	/**
+	 * Polls every matching file in the directory once.
+	 *
+	 * @throws IOException if a file or the checkpoints can't be read or written
+	 */
+	public synchronized void pollAll() throws IOException {
+		Set<Path> paths = new LinkedHashSet<>(tailers.keySet());
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+				file -> matcher.matches(file.getFileName()) && Files.isRegularFile(file))) {
+			for (Path file : files) {
+				paths.add(file);
+			}
+		}
+		poll(paths);
+	}
+
+	/**
+	 * Returns how many reports Andon accepted.
+	 *
+	 * @return count
+	 */
+	public long getSentCount() {
+		return sent.sum();
+	}
+
+	/**
+	 * Returns how many reports Andon rejected as invalid or for an unknown station.
+	 *
+	 * @return count
+	 */
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	/**
+	 * Returns how many lines couldn't be mapped to a report, including lines longer than
+	 * {@value FileTailer#MAX_LINE_BYTES} bytes.
+	 *
+	 * @return count
+	 */
+	public synchronized long getMalformedCount() {
+		long oversized = 0;
+		for (FileTailer tailer : tailers.values()) {
+			oversized += tailer.getOversizedLineCount();
+		}
+		return malformed.sum() + oversized;
+	}
+
+	/**
+	 * Returns the last failure to map or send a record, or null if there was none.
+	 *
+	 * @return exception
+	 */
+	public Exception getLastError() {
+		return lastError;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		watchService.close();
+		for (FileTailer tailer : tailers.values()) {
+			tailer.close();
+		}
+		tailers.clear();
+	}
+
+	private synchronized void poll(Set<Path> paths) throws IOException {
+		List<Path> gone = new ArrayList<>();
+		for (Path path : paths) {
+			FileTailer tailer = tailers.computeIfAbsent(path, file ->
+					new FileTailer(file, mapper.hasHeader(), savedCheckpoints.get(file.toString())));
+			tailer.poll(this::handle);
+			if (!Files.exists(path)) {
+				gone.add(path);
+			}
+		}
+		for (Path path : gone) {
+			tailers.remove(path).close();
+		}
+		saveCheckpoints();
+	}
+
+	private boolean handle(FileTailer source, String line, long offset) {
+		ReportDataRequest request;
+		try {
+			request = mapper.map(line, source.getHeader());
+		} catch (IllegalArgumentException e) {
+			malformed.increment();
+			lastError = e;
+			return true;
+		}
+		if (request == null) {
+			return true;
+		}
+
+		request.setIdempotencyKey(source.getFileKey() + ":" + source.getGeneration() + ":" + offset);
+		try {
+			client.reportData(request);
+			sent.increment();
+			return true;
+		} catch (AndonInvalidRequestException | AndonResourceNotFoundException e) {
+			rejected.increment();
+			lastError = e;
+			return true;
+		} catch (Exception e) {
+			lastError = e;
+			return false;
+		}
+	}
+
+	private void saveCheckpoints() throws IOException {
+		Map<String, Checkpoint> checkpoints = new HashMap<>();
+		for (FileTailer tailer : tailers.values()) {
+			Checkpoint checkpoint = tailer.checkpoint();
+			if (checkpoint != null) {
+				checkpoints.put(tailer.getPath().toString(), checkpoint);
+			}
+		}
+		if (!checkpoints.equals(savedCheckpoints)) {
+			checkpointStore.save(checkpoints);
+			savedCheckpoints.clear();
+			savedCheckpoints.putAll(checkpoints);
+		}
+	}
+
+}
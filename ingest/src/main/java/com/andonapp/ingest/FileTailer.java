@@ -0,0 +1,281 @@
+package com.andonapp.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Reads the lines appended to a file since the last poll. Only new bytes are read,
+ * plus the unfinished last line if there is one, so each poll costs the same however
+ * large the file has grown.
+ *
+ * <p>The file is identified by its file key (device and inode on Unix). When a
+ * different file appears at the path, the old file is read to its end before the new
+ * one is read from the start, so lines written just before a rename-style rotation
+ * aren't lost. A file that becomes shorter than the position reached was truncated in
+ * place and is read again from the start, as the next generation of the file so that
+ * its lines can be told apart from the ones at the same offsets before.
+ */
+final class FileTailer implements Closeable {
+
+	/**
+	 * Called for each complete line.
+	 */
+	interface LineHandler {
+
+		/**
+		 * @param source the tailer the line came from
+		 * @param line the line, without its terminator
+		 * @param offset offset of the line's first byte in the file
+		 * @return false to stop, and see the line again on the next poll
+		 */
+		boolean handle(FileTailer source, String line, long offset) throws IOException;
+
+	}
+
+	static final int MAX_LINE_BYTES = 1024 * 1024;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Path path;
+	private final boolean hasHeader;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private byte[] pending = new byte[256];
+	private int pendingLength;
+
+	private Checkpoint resumeFrom;
+	private FileChannel channel;
+	private String fileKey;
+	private long generation;
+	private long position;
+	private String header;
+	private long oversizedLineCount;
+
+	FileTailer(Path path, boolean hasHeader, Checkpoint resumeFrom) {
+		this.path = path;
+		this.hasHeader = hasHeader;
+		this.resumeFrom = resumeFrom;
+	}
+
+	Path getPath() {
+		return path;
+	}
+
+	String getFileKey() {
+		return fileKey;
+	}
+
+	/**
+	 * Returns how many times the file being read has been truncated in place.
+	 */
+	long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Returns the header of the file being read, or null if there is none yet.
+	 */
+	String getHeader() {
+		return header;
+	}
+
+	long getOversizedLineCount() {
+		return oversizedLineCount;
+	}
+
+	/**
+	 * Returns how far the file has been read, or the checkpoint to resume from if it
+	 * hasn't been opened yet.
+	 */
+	Checkpoint checkpoint() {
+		return channel == null ? resumeFrom : new Checkpoint(fileKey, generation, position);
+	}
+
+	/**
+	 * Hands every complete line appended since the last poll to the handler.
+	 *
+	 * @throws IOException if the file can't be read or the handler throws
+	 */
+	void poll(LineHandler handler) throws IOException {
+		if (channel == null && !open()) {
+			return;
+		}
+
+		if (channel.size() < position) {
+			generation++;
+			position = 0;
+			header = null;
+		}
+		if (!drain(handler)) {
+			return;
+		}
+
+		String currentKey = fileKey(path);
+		if (currentKey != null && !currentKey.equals(fileKey)) {
+			channel.close();
+			channel = null;
+			if (open()) {
+				drain(handler);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			resumeFrom = checkpoint();
+			channel.close();
+			channel = null;
+		}
+	}
+
+	private boolean open() throws IOException {
+		String keyBefore = fileKey(path);
+		if (keyBefore == null) {
+			return false;
+		}
+		FileChannel opened;
+		try {
+			opened = FileChannel.open(path, StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+		if (!keyBefore.equals(fileKey(path))) {
+			// replaced while opening, try again on the next poll
+			opened.close();
+			return false;
+		}
+
+		channel = opened;
+		fileKey = keyBefore;
+		header = null;
+		generation = 0;
+		position = 0;
+		if (resumeFrom != null && resumeFrom.fileKey.equals(fileKey)) {
+			generation = resumeFrom.generation;
+			if (resumeFrom.position <= channel.size()) {
+				position = resumeFrom.position;
+			} else {
+				// truncated while it wasn't being read
+				generation++;
+			}
+		}
+		resumeFrom = null;
+
+		if (hasHeader && position > 0) {
+			header = readFirstLine();
+		}
+		return true;
+	}
+
+	private boolean drain(LineHandler handler) throws IOException {
+		long readPosition = position;
+		boolean discarding = false;
+		pendingLength = 0;
+
+		while (true) {
+			buffer.clear();
+			int read = channel.read(buffer, readPosition);
+			if (read <= 0) {
+				return true;
+			}
+
+			byte[] bytes = buffer.array();
+			int start = 0;
+			for (int i = 0; i < read; i++) {
+				if (bytes[i] != '\n') {
+					continue;
+				}
+				long lineEnd = readPosition + i + 1;
+				if (discarding || pendingLength + i - start > MAX_LINE_BYTES) {
+					discarding = false;
+					pendingLength = 0;
+					oversizedLineCount++;
+				} else {
+					append(bytes, start, i - start);
+					String line = decodePending();
+					if (hasHeader && position == 0) {
+						header = line;
+					} else if (!handler.handle(this, line, position)) {
+						return false;
+					}
+				}
+				position = lineEnd;
+				start = i + 1;
+			}
+
+			if (!discarding) {
+				append(bytes, start, read - start);
+				if (pendingLength > MAX_LINE_BYTES) {
+					discarding = true;
+					pendingLength = 0;
+				}
+			}
+			readPosition += read;
+		}
+	}
+
+	private String readFirstLine() throws IOException {
+		long readPosition = 0;
+		pendingLength = 0;
+		while (pendingLength <= MAX_LINE_BYTES) {
+			buffer.clear();
+			int read = channel.read(buffer, readPosition);
+			if (read <= 0) {
+				return null;
+			}
+			byte[] bytes = buffer.array();
+			for (int i = 0; i < read; i++) {
+				if (bytes[i] == '\n') {
+					append(bytes, 0, i);
+					return decodePending();
+				}
+			}
+			append(bytes, 0, read);
+			readPosition += read;
+		}
+		return null;
+	}
+
+	private void append(byte[] bytes, int offset, int length) {
+		if (pendingLength + length > pending.length) {
+			pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + length));
+		}
+		System.arraycopy(bytes, offset, pending, pendingLength, length);
+		pendingLength += length;
+	}
+
+	private String decodePending() {
+		int length = pendingLength;
+		if (length > 0 && pending[length - 1] == '\r') {
+			length--;
+		}
+		pendingLength = 0;
+		return new String(pending, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns a string identifying the file at the path, or null if there is none.
+	 */
+	static String fileKey(Path path) throws IOException {
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		Object key = attributes.fileKey();
+		return Objects.toString(key, "created:" + attributes.creationTime().toMillis());
+	}
+
+}
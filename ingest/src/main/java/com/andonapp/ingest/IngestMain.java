@@ -0,0 +1,114 @@
+package com.andonapp.ingest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.andonapp.client.DeduplicationWindow;
+import com.andonapp.client.DefaultAndonAppClient;
+
+/**
+ * Runs a {@link FileIngester} as a standalone process.
+ *
+ * <pre>
+ * --dir DIR             directory holding the result files (required)
+ * --glob PATTERN        file names to tail (default *.csv)
+ * --format csv|json     record format (default csv)
+ * --mapping FILE        field mapping properties, see {@link FieldMapping} (required)
+ * --checkpoint FILE     checkpoint file (default DIR/.andon-ingest)
+ * --org NAME            org name (required)
+ * --token TOKEN         API token (required)
+ * --endpoint URL        Andon endpoint (default: production)
+ * --poll-ms N           interval between polls of every file (default 2000)
+ * </pre>
+ */
+public final class IngestMain {
+
+	private IngestMain() {
+		// static class
+	}
+
+	public static void main(String[] args) throws Exception {
+		Path directory = null;
+		String glob = "*.csv";
+		String format = "csv";
+		Path mappingFile = null;
+		Path checkpointFile = null;
+		String orgName = null;
+		String apiToken = null;
+		String endpoint = null;
+		long pollMillis = FileIngester.DEFAULT_POLL_MILLIS;
+
+		for (int i = 0; i < args.length; i++) {
+			String value = i + 1 < args.length ? args[i + 1] : null;
+			switch (args[i]) {
+			case "--dir":
+				directory = Paths.get(value);
+				break;
+			case "--glob":
+				glob = value;
+				break;
+			case "--format":
+				format = value;
+				break;
+			case "--mapping":
+				mappingFile = Paths.get(value);
+				break;
+			case "--checkpoint":
+				checkpointFile = Paths.get(value);
+				break;
+			case "--org":
+				orgName = value;
+				break;
+			case "--token":
+				apiToken = value;
+				break;
+			case "--endpoint":
+				endpoint = value;
+				break;
+			case "--poll-ms":
+				pollMillis = Long.parseLong(value);
+				break;
+			default:
+				System.err.println("Unknown option: " + args[i]);
+				System.exit(2);
+			}
+			i++;
+		}
+
+		if (directory == null || mappingFile == null || orgName == null || apiToken == null) {
+			System.err.println("--dir, --mapping, --org and --token are required");
+			System.exit(2);
+		}
+		if (checkpointFile == null) {
+			checkpointFile = directory.resolve(".andon-ingest");
+		}
+
+		FieldMapping mapping = FieldMapping.load(mappingFile);
+		RecordMapper mapper;
+		if ("csv".equals(format)) {
+			mapper = new CsvRecordMapper(mapping);
+		} else if ("json".equals(format)) {
+			mapper = new JsonRecordMapper(mapping);
+		} else {
+			System.err.println("Unknown format: " + format);
+			System.exit(2);
+			return;
+		}
+
+		DefaultAndonAppClient client = new DefaultAndonAppClient(orgName, apiToken);
+		if (endpoint != null) {
+			client.setEndpoint(endpoint);
+		}
+		client.setDeduplicationWindow(new DeduplicationWindow());
+
+		FileIngester ingester = new FileIngester(directory, glob, mapper, client, checkpointFile);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			System.out.println(String.format("Sent %s, rejected %s, malformed %s",
+					ingester.getSentCount(), ingester.getRejectedCount(), ingester.getMalformedCount()));
+		}));
+
+		System.out.println("Ingesting " + directory.resolve(glob));
+		ingester.run(pollMillis);
+	}
+
+}
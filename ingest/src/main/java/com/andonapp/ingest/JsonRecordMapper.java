@@ -0,0 +1,44 @@
+package com.andonapp.ingest;
+
+import java.io.IOException;
+
+import com.andonapp.client.model.ReportDataRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Maps lines holding one JSON object each to reports. Sources starting with '/' are
+ * JSON pointers, others are top-level property names.
+ */
+public final class JsonRecordMapper implements RecordMapper {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private final FieldMapping mapping;
+
+	public JsonRecordMapper(FieldMapping mapping) {
+		this.mapping = mapping;
+	}
+
+	@Override
+	public ReportDataRequest map(String line, String header) {
+		if (line.trim().isEmpty()) {
+			return null;
+		}
+		JsonNode record;
+		try {
+			record = OBJECT_MAPPER.readTree(line);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("line is not valid JSON", e);
+		}
+		if (record == null || !record.isObject()) {
+			throw new IllegalArgumentException("line is not a JSON object");
+		}
+
+		return mapping.toRequest(source -> {
+			JsonNode value = source.startsWith("/") ? record.at(source) : record.get(source);
+			return value == null || value.isMissingNode() || value.isNull() ? null : value.asText();
+		});
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.andonapp.ingest;
+
+import com.andonapp.client.model.ReportDataRequest;
+
+/**
+ * Turns one line of a result file into a report.
+ */
+public interface RecordMapper {
+
+	/**
+	 * Maps a line to a report.
+	 *
+	 * @param line the line, without its terminator
+	 * @param header the file's header line, or null if files have no header
+	 * @return the report, or null to skip the line
+	 * @throws IllegalArgumentException if the line can't be mapped
+	 */
+	ReportDataRequest map(String line, String header);
+
+	/**
+	 * Returns whether result files start with a header line that isn't a record.
+	 *
+	 * @return true if files have a header
+	 */
+	default boolean hasHeader() {
+		return false;
+	}
+
+}
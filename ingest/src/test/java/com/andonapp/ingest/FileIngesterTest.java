@@ -0,0 +1,167 @@
+package com.andonapp.ingest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.andonapp.client.AndonAppClient;
+import com.andonapp.client.exception.AndonResourceNotFoundException;
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+public class FileIngesterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path directory;
+
+	private Path checkpointFile;
+
+	private RecordingClient client;
+
+	private RecordMapper mapper;
+
+	@Before
+	public void before() throws IOException {
+		directory = folder.newFolder("results").toPath();
+		checkpointFile = folder.getRoot().toPath().resolve("checkpoints");
+		client = new RecordingClient();
+
+		Map<String, String> properties = new HashMap<>();
+		properties.put("lineName", "=line 1");
+		properties.put("stationName", "station");
+		properties.put("passResult", "result");
+		properties.put("processTimeSeconds", "seconds");
+		mapper = new CsvRecordMapper(new FieldMapping(properties));
+	}
+
+	@Test
+	public void shouldResumeFromCheckpoint() throws Exception {
+		append("stand-1.csv", "station,result,seconds\nstation 1,PASS,120\n");
+		append("stand-2.csv", "station,result,seconds\nstation 2,FAIL,90\n");
+		append("notes.txt", "not a result file\n");
+
+		try (FileIngester ingester = new FileIngester(directory, "*.csv", mapper, client, checkpointFile)) {
+			ingester.pollAll();
+			assertEquals(2, ingester.getSentCount());
+		}
+
+		append("stand-1.csv", "station 1,PASS,121\n");
+		try (FileIngester ingester = new FileIngester(directory, "*.csv", mapper, client, checkpointFile)) {
+			ingester.pollAll();
+			assertEquals(1, ingester.getSentCount());
+		}
+
+		assertEquals(3, client.reports.size());
+		assertEquals(Long.valueOf(121), client.reports.get(2).getProcessTimeSeconds());
+		assertTrue(client.reports.get(2).getIdempotencyKey().endsWith(":42"));
+	}
+
+	@Test
+	public void shouldKeyRecordsWrittenAfterTruncationApart() throws Exception {
+		append("stand-1.csv", "station,result,seconds\nstation 1,PASS,120\nstation 1,PASS,121\n");
+		try (FileIngester ingester = new FileIngester(directory, "*.csv", mapper, client, checkpointFile)) {
+			ingester.pollAll();
+
+			// truncated in place, as copytruncate rotation does, and rewritten at the same offsets
+			Files.write(directory.resolve("stand-1.csv"),
+					"station,result,seconds\nstation 1,PASS,122\n".getBytes(StandardCharsets.UTF_8),
+					StandardOpenOption.TRUNCATE_EXISTING);
+			ingester.pollAll();
+		}
+
+		append("stand-1.csv", "station 1,PASS,123\n");
+		try (FileIngester ingester = new FileIngester(directory, "*.csv", mapper, client, checkpointFile)) {
+			ingester.pollAll();
+		}
+
+		List<Long> seconds = new ArrayList<>();
+		Set<String> keys = new HashSet<>();
+		for (ReportDataRequest report : client.reports) {
+			seconds.add(report.getProcessTimeSeconds());
+			keys.add(report.getIdempotencyKey());
+		}
+		assertEquals(Arrays.asList(120L, 121L, 122L, 123L), seconds);
+		assertEquals(4, keys.size());
+	}
+
+	@Test
+	public void shouldRetryAfterFailure() throws Exception {
+		append("stand-1.csv", "station,result,seconds\nstation 1,PASS,120\nstation 2,PASS,120\n");
+		client.failures = 1;
+
+		try (FileIngester ingester = new FileIngester(directory, "*.csv", mapper, client, checkpointFile)) {
+			ingester.pollAll();
+			assertEquals(0, ingester.getSentCount());
+			assertTrue(ingester.getLastError() instanceof IOException);
+
+			ingester.pollAll();
+			assertEquals(2, ingester.getSentCount());
+		}
+	}
+
+	@Test
+	public void shouldSkipMalformedAndRejectedRecords() throws Exception {
+		append("stand-1.csv", "station,result,seconds\n,PASS,120\nunknown,PASS,120\nstation 1,MAYBE,120\n"
+				+ "station 1,PASS,120\n");
+
+		try (FileIngester ingester = new FileIngester(directory, "*.csv", mapper, client, checkpointFile)) {
+			ingester.pollAll();
+			assertEquals(1, ingester.getSentCount());
+			assertEquals(1, ingester.getRejectedCount());
+			assertEquals(2, ingester.getMalformedCount());
+		}
+	}
+
+	private void append(String name, String text) throws IOException {
+		Files.write(directory.resolve(name), text.getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Records reports, rejects the station "unknown", and fails with an IOException
+	 * a given number of times.
+	 */
+	private static class RecordingClient implements AndonAppClient {
+
+		final List<ReportDataRequest> reports = new ArrayList<>();
+
+		int failures;
+
+		@Override
+		public void reportData(ReportDataRequest request) throws IOException {
+			if (failures > 0) {
+				failures--;
+				throw new IOException("connection reset");
+			}
+			if ("unknown".equals(request.getStationName())) {
+				throw new AndonResourceNotFoundException("Station not found.");
+			}
+			reports.add(request);
+		}
+
+		@Override
+		public void updateStationStatus(UpdateStationStatusRequest request) {
+		}
+
+	}
+
+}
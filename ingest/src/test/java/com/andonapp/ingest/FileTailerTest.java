@@ -0,0 +1,135 @@
+package com.andonapp.ingest;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileTailerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path file;
+
+	private List<String> lines;
+
+	@Before
+	public void before() {
+		file = folder.getRoot().toPath().resolve("results.csv");
+		lines = new ArrayList<>();
+	}
+
+	@Test
+	public void shouldReadOnlyCompleteNewLines() throws Exception {
+		FileTailer tailer = new FileTailer(file, false, null);
+		tailer.poll(this::collect);
+		assertEquals(Arrays.asList(), lines);
+
+		append("a\nb\r\nc");
+		tailer.poll(this::collect);
+		assertEquals(Arrays.asList("a", "b"), lines);
+
+		append("c\nd\n");
+		tailer.poll(this::collect);
+		assertEquals(Arrays.asList("a", "b", "cc", "d"), lines);
+		assertEquals(10, tailer.checkpoint().position);
+	}
+
+	@Test
+	public void shouldSkipHeaderAndKeepItWhenResuming() throws Exception {
+		append("station,result\ns1,PASS\n");
+		FileTailer tailer = new FileTailer(file, true, null);
+		tailer.poll(this::collect);
+		assertEquals(Arrays.asList("s1,PASS"), lines);
+		Checkpoint checkpoint = tailer.checkpoint();
+		tailer.close();
+
+		append("s2,FAIL\n");
+		FileTailer resumed = new FileTailer(file, true, checkpoint);
+		resumed.poll(this::collect);
+		assertEquals(Arrays.asList("s1,PASS", "s2,FAIL"), lines);
+		assertEquals("station,result", resumed.getHeader());
+	}
+
+	@Test
+	public void shouldStopAtRefusedLine() throws Exception {
+		append("a\nb\nc\n");
+		FileTailer tailer = new FileTailer(file, false, null);
+		tailer.poll((source, line, offset) -> {
+			lines.add(line);
+			return !"b".equals(line);
+		});
+		assertEquals(2, tailer.checkpoint().position);
+
+		tailer.poll(this::collect);
+		assertEquals(Arrays.asList("a", "b", "b", "c"), lines);
+	}
+
+	@Test
+	public void shouldRereadTruncatedFile() throws Exception {
+		append("a\nb\n");
+		FileTailer tailer = new FileTailer(file, false, null);
+		tailer.poll(this::collect);
+
+		Files.write(file, "c\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+		tailer.poll(this::collect);
+		assertEquals(Arrays.asList("a", "b", "c"), lines);
+	}
+
+	@Test
+	public void shouldFinishRotatedFileBeforeNewOne() throws Exception {
+		append("a\n");
+		FileTailer tailer = new FileTailer(file, false, null);
+		tailer.poll(this::collect);
+
+		append("b\n");
+		Files.move(file, file.resolveSibling("results.csv.1"));
+		append("c\n");
+		tailer.poll(this::collect);
+		assertEquals(Arrays.asList("a", "b", "c"), lines);
+		assertEquals(FileTailer.fileKey(file), tailer.checkpoint().fileKey);
+	}
+
+	@Test
+	public void shouldStartOverWhenCheckpointIsForAnotherFile() throws Exception {
+		append("a\n");
+		FileTailer tailer = new FileTailer(file, false, new Checkpoint("another", 0, 100));
+		tailer.poll(this::collect);
+		assertEquals(Arrays.asList("a"), lines);
+	}
+
+	@Test
+	public void shouldDiscardOversizedLines() throws Exception {
+		char[] longLine = new char[FileTailer.MAX_LINE_BYTES + 10];
+		Arrays.fill(longLine, 'x');
+		append("a\n" + new String(longLine) + "\nb\n");
+
+		FileTailer tailer = new FileTailer(file, false, null);
+		tailer.poll(this::collect);
+		assertEquals(Arrays.asList("a", "b"), lines);
+		assertEquals(1, tailer.getOversizedLineCount());
+	}
+
+	private boolean collect(FileTailer source, String line, long offset) {
+		lines.add(line);
+		return true;
+	}
+
+	private void append(String text) throws IOException {
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.andonapp.ingest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.andonapp.client.model.ReportDataRequest;
+
+public class RecordMapperTest {
+
+	@Test
+	public void shouldMapCsvByColumnNameIndexAndConstant() {
+		Map<String, String> properties = new HashMap<>();
+		properties.put("lineName", "=Final Assembly");
+		properties.put("stationName", "#1");
+		properties.put("passResult", "result");
+		properties.put("processTimeSeconds", "cycle");
+		properties.put("failReason", "code");
+		properties.put("failNotes", "notes");
+		CsvRecordMapper mapper = new CsvRecordMapper(new FieldMapping(properties));
+
+		ReportDataRequest request = mapper.map("Leak Test 1,NG,95.6,P-12,\"leak at \"\"valve\"\", 2 bar\"",
+				"station,result,cycle,code,notes");
+
+		assertEquals("Final Assembly", request.getLineName());
+		assertEquals("Leak Test 1", request.getStationName());
+		assertEquals("FAIL", request.getPassResult());
+		assertEquals(Long.valueOf(96), request.getProcessTimeSeconds());
+		assertEquals("P-12", request.getFailReason());
+		assertEquals("leak at \"valve\", 2 bar", request.getFailNotes());
+	}
+
+	@Test
+	public void shouldDropFailFieldsOnPass() {
+		Map<String, String> properties = csvByIndex();
+		properties.put("delimiter", ";");
+		CsvRecordMapper mapper = new CsvRecordMapper(new FieldMapping(properties));
+
+		ReportDataRequest request = mapper.map("line 1;station 1;ok;120;P-12", null);
+
+		assertEquals("PASS", request.getPassResult());
+		assertNull(request.getFailReason());
+	}
+
+	@Test
+	public void shouldSkipBlankLines() {
+		assertNull(new CsvRecordMapper(new FieldMapping(csvByIndex())).map("  ", null));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectUnknownPassValue() {
+		new CsvRecordMapper(new FieldMapping(csvByIndex())).map("line 1,station 1,MAYBE,120,", null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectMissingStation() {
+		new CsvRecordMapper(new FieldMapping(csvByIndex())).map("line 1,,PASS,120,", null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRequireStationSource() {
+		Map<String, String> properties = csvByIndex();
+		properties.remove("stationName");
+		new FieldMapping(properties);
+	}
+
+	@Test
+	public void shouldMapJsonByNameAndPointer() {
+		Map<String, String> properties = new HashMap<>();
+		properties.put("lineName", "line");
+		properties.put("stationName", "/station/name");
+		properties.put("passResult", "passed");
+		properties.put("processTimeSeconds", "seconds");
+		properties.put("failReason", "/failure/code");
+		JsonRecordMapper mapper = new JsonRecordMapper(new FieldMapping(properties));
+
+		ReportDataRequest request = mapper.map(
+				"{\"line\":\"line 1\",\"station\":{\"name\":\"station 1\"},\"passed\":false,"
+				+ "\"seconds\":120,\"failure\":{\"code\":\"P-12\"}}", null);
+
+		assertEquals("line 1", request.getLineName());
+		assertEquals("station 1", request.getStationName());
+		assertEquals("FAIL", request.getPassResult());
+		assertEquals(Long.valueOf(120), request.getProcessTimeSeconds());
+		assertEquals("P-12", request.getFailReason());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectInvalidJson() {
+		new JsonRecordMapper(new FieldMapping(csvByIndex())).map("{\"line\":", null);
+	}
+
+	private Map<String, String> csvByIndex() {
+		Map<String, String> properties = new HashMap<>();
+		properties.put("lineName", "#1");
+		properties.put("stationName", "#2");
+		properties.put("passResult", "#3");
+		properties.put("processTimeSeconds", "#4");
+		properties.put("failReason", "#5");
+		properties.put("header", "false");
+		return properties;
+	}
+
+}
@@ -0,0 +1,172 @@
+package com.andonapp.loadgen;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.andonapp.client.AndonAppClient;
+import com.andonapp.client.DefaultAndonAppClient;
+import com.andonapp.client.HedgingPolicy;
+import com.andonapp.simulator.AndonSimulator;
+import com.andonapp.simulator.LatencyDistribution;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * Open-loop load generator for {@link AndonAppClient}. Events are sent at the times
+ * the trace schedules them, whether or not earlier requests have completed, so a slow
+ * server shows up as growing response times instead of a lower send rate.
+ *
+ * <p>Without {@code --endpoint} the load goes to an in-process {@link AndonSimulator}.
+ */
+public final class LoadGenerator {
+
+	private final LoadOptions options;
+	private final AndonAppClient client;
+
+	LoadGenerator(LoadOptions options, AndonAppClient client) {
+		this.options = options;
+		this.client = client;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && "--help".equals(args[0])) {
+			System.out.println(LoadOptions.USAGE);
+			return;
+		}
+
+		LoadOptions options;
+		try {
+			options = LoadOptions.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(LoadOptions.USAGE);
+			System.exit(2);
+			return;
+		}
+
+		AndonSimulator simulator = null;
+		String endpoint = options.endpoint;
+		if (endpoint == null) {
+			simulator = startSimulator(options);
+			endpoint = simulator.getEndpoint();
+		}
+
+		// hedges run on the dispatcher, so leave room for one per sending thread
+		Dispatcher dispatcher = new Dispatcher();
+		dispatcher.setMaxRequests(options.threads * 2);
+		dispatcher.setMaxRequestsPerHost(options.threads * 2);
+		OkHttpClient httpClient = new OkHttpClient.Builder()
+				.dispatcher(dispatcher)
+				.connectionPool(new ConnectionPool(options.threads * 2, 5, TimeUnit.MINUTES))
+				.build();
+		DefaultAndonAppClient client = new DefaultAndonAppClient(options.orgName, options.apiToken, httpClient);
+		client.setEndpoint(endpoint);
+		if (options.hedgePercentile > 0) {
+			client.setHedgingPolicy(HedgingPolicy.builder()
+					.delayPercentile(options.hedgePercentile)
+					.budgetRatio(options.hedgeBudget)
+					.build());
+		}
+
+		double rate = options.targetRate();
+		System.out.println(Double.isNaN(rate)
+				? String.format("Sending to %s at the recorded timing", endpoint)
+				: String.format("Sending to %s at %,.1f events/s", endpoint, rate));
+
+		try (Trace trace = openTrace(options)) {
+			long start = System.nanoTime();
+			LoadResult result = new LoadGenerator(options, client).run(trace);
+			result.print(System.out, rate, System.nanoTime() - start);
+			if (options.hedgePercentile > 0) {
+				System.out.println(String.format("Hedges:     %,d", client.getHedgeCount()));
+			}
+		} finally {
+			httpClient.dispatcher().executorService().shutdown();
+			httpClient.connectionPool().evictAll();
+			if (simulator != null) {
+				simulator.close();
+			}
+		}
+	}
+
+	/**
+	 * Opens the trace given with {@code --trace}, or a synthetic one.
+	 */
+	static Trace openTrace(LoadOptions options) throws IOException {
+		return options.trace != null
+				? new RecordedTrace(options.trace, options.targetRate())
+				: new SyntheticTrace(options);
+	}
+
+	/**
+	 * Replays the trace and waits for every request to complete.
+	 *
+	 * @param trace events to send
+	 * @return latencies and outcomes
+	 * @throws IOException if the trace can't be read
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	LoadResult run(Trace trace) throws IOException, InterruptedException {
+		LoadResult result = new LoadResult();
+		ExecutorService executor = new ThreadPoolExecutor(options.threads, options.threads,
+				1, TimeUnit.MINUTES, new LinkedBlockingQueue<>());
+
+		try {
+			long start = System.nanoTime();
+			TraceEvent event;
+			while ((event = trace.next()) != null) {
+				long intendedStart = start + event.getOffsetNanos();
+				long delay = intendedStart - System.nanoTime();
+				if (delay > 0) {
+					LockSupport.parkNanos(delay);
+				}
+
+				TraceEvent scheduled = event;
+				executor.execute(() -> send(scheduled, intendedStart, result));
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+
+		return result;
+	}
+
+	private void send(TraceEvent event, long intendedStart, LoadResult result) {
+		long actualStart = System.nanoTime();
+		try {
+			if (event.isReport()) {
+				client.reportData(event.getReport());
+			} else {
+				client.updateStationStatus(event.getStatus());
+			}
+			result.recordSuccess(intendedStart, actualStart, System.nanoTime());
+		} catch (Exception e) {
+			result.recordError(intendedStart, actualStart, System.nanoTime(), e);
+		}
+	}
+
+	private static AndonSimulator startSimulator(LoadOptions options) throws IOException {
+		AndonSimulator simulator = new AndonSimulator(options.seed);
+		simulator.setApiToken(options.apiToken);
+		LatencyDistribution latency = LatencyDistribution.logNormal(
+				options.simulatorLatencyMedianMillis, options.simulatorLatencySigma);
+		if (options.simulatorSlowFraction > 0) {
+			latency = LatencyDistribution.mixture(latency,
+					LatencyDistribution.logNormal(options.simulatorSlowMillis, options.simulatorLatencySigma),
+					options.simulatorSlowFraction);
+		}
+		simulator.setLatency(latency);
+		simulator.setInternalErrorRate(options.simulatorErrorRate);
+		simulator.setConnectionDropRate(options.simulatorDropRate);
+		simulator.start();
+		return simulator;
+	}
+
+}
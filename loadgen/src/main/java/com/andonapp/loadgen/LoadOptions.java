@@ -0,0 +1,168 @@
+package com.andonapp.loadgen;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command-line options of the load generator.
+ */
+final class LoadOptions {
+
+	/**
+	 * Rate of a synthetic run without {@code --rate}.
+	 */
+	static final double DEFAULT_RATE = 100;
+
+	static final String USAGE = String.join(System.lineSeparator(),
+			"Usage: loadgen [options]",
+			"",
+			"Target:",
+			"  --endpoint URL          Andon endpoint to load (default: in-process simulator)",
+			"  --org NAME              organization name (default: Demo)",
+			"  --token TOKEN           API token (default: load-test)",
+			"",
+			"Load:",
+			"  --rate N                target events per second (default: 100, or the",
+			"                          recorded timing of a trace)",
+			"  --duration S            length of a synthetic run in seconds (default: 30)",
+			"  --lines N               number of lines in a synthetic run (default: 5)",
+			"  --stations N            stations per line in a synthetic run (default: 20)",
+			"  --status-fraction F     fraction of status updates in a synthetic run (default: 0.1)",
+			"  --fail-fraction F       fraction of FAIL reports in a synthetic run (default: 0.05)",
+			"  --trace FILE            replay a recorded trace instead of a synthetic one",
+			"  --threads N             maximum concurrent requests (default: 256)",
+			"  --seed N                random seed (default: 1)",
+			"",
+			"Hedging of status updates:",
+			"  --hedge-percentile P    hedge after this percentile of recent latency (default: off)",
+			"  --hedge-budget F        hedges allowed per status update (default: 0.05)",
+			"",
+			"Simulator (only without --endpoint):",
+			"  --sim-latency-median-ms N  median server time (default: 10)",
+			"  --sim-latency-sigma N      tail shape of the server time (default: 0.5)",
+			"  --sim-slow-fraction F      fraction of requests stuck on a slow path (default: 0)",
+			"  --sim-slow-ms N            median server time of the slow path (default: 1000)",
+			"  --sim-error-rate F         fraction of injected server errors (default: 0)",
+			"  --sim-drop-rate F          fraction of dropped connections (default: 0)");
+	
+	String endpoint;
+	String orgName = "Demo";
+	String apiToken = "load-test";
+	
+	/**
+	 * Rate given with {@code --rate}, NaN if none was.
+	 */
+	double rate = Double.NaN;
+	double durationSeconds = 30;
+	int lines = 5;
+	int stationsPerLine = 20;
+	double statusFraction = 0.1;
+	double failFraction = 0.05;
+	Path trace;
+	int threads = 256;
+	long seed = 1;
+	
+	double hedgePercentile;
+	double hedgeBudget = 0.05;
+	
+	double simulatorLatencyMedianMillis = 10;
+	double simulatorLatencySigma = 0.5;
+	double simulatorSlowFraction;
+	double simulatorSlowMillis = 1000;
+	double simulatorErrorRate;
+	double simulatorDropRate;
+	
+	static LoadOptions parse(String[] args) {
+		LoadOptions options = new LoadOptions();
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value for " + args[i]);
+			}
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "--endpoint":
+				options.endpoint = value;
+				break;
+			case "--org":
+				options.orgName = value;
+				break;
+			case "--token":
+				options.apiToken = value;
+				break;
+			case "--rate":
+				options.rate = positive(args[i], Double.parseDouble(value));
+				break;
+			case "--duration":
+				options.durationSeconds = positive(args[i], Double.parseDouble(value));
+				break;
+			case "--lines":
+				options.lines = (int) positive(args[i], Integer.parseInt(value));
+				break;
+			case "--stations":
+				options.stationsPerLine = (int) positive(args[i], Integer.parseInt(value));
+				break;
+			case "--status-fraction":
+				options.statusFraction = Double.parseDouble(value);
+				break;
+			case "--fail-fraction":
+				options.failFraction = Double.parseDouble(value);
+				break;
+			case "--trace":
+				options.trace = Paths.get(value);
+				break;
+			case "--threads":
+				options.threads = (int) positive(args[i], Integer.parseInt(value));
+				break;
+			case "--seed":
+				options.seed = Long.parseLong(value);
+				break;
+			case "--hedge-percentile":
+				options.hedgePercentile = positive(args[i], Double.parseDouble(value));
+				break;
+			case "--hedge-budget":
+				options.hedgeBudget = Double.parseDouble(value);
+				break;
+			case "--sim-latency-median-ms":
+				options.simulatorLatencyMedianMillis = Double.parseDouble(value);
+				break;
+			case "--sim-latency-sigma":
+				options.simulatorLatencySigma = Double.parseDouble(value);
+				break;
+			case "--sim-slow-fraction":
+				options.simulatorSlowFraction = Double.parseDouble(value);
+				break;
+			case "--sim-slow-ms":
+				options.simulatorSlowMillis = Double.parseDouble(value);
+				break;
+			case "--sim-error-rate":
+				options.simulatorErrorRate = Double.parseDouble(value);
+				break;
+			case "--sim-drop-rate":
+				options.simulatorDropRate = Double.parseDouble(value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		return options;
+	}
+	
+	/**
+	 * Returns the events per second to send at: the rate given, the default rate for a
+	 * synthetic run, or NaN to replay a trace with its recorded timing.
+	 */
+	double targetRate() {
+		if (!Double.isNaN(rate)) {
+			return rate;
+		}
+		return trace == null ? DEFAULT_RATE : Double.NaN;
+	}
+	
+	private static double positive(String option, double value) {
+		if (value <= 0) {
+			throw new IllegalArgumentException(option + " must be positive");
+		}
+		return value;
+	}
+	
+}
@@ -0,0 +1,102 @@
+package com.andonapp.loadgen;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency histograms and outcome counts of a load run.
+ * 
+ * <p>Two latencies are recorded for every event. The response time is measured from
+ * the moment the event was scheduled to be sent, so time spent waiting behind slow
+ * requests is included, which corrects for coordinated omission. The service time is
+ * measured from the moment the request was actually started, and is only useful to
+ * see how far the two diverge.
+ */
+final class LoadResult {
+
+	private static final long MAX_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+	
+	private final Histogram responseTime = new ConcurrentHistogram(MAX_TRACKABLE_NANOS, 3);
+	private final Histogram serviceTime = new ConcurrentHistogram(MAX_TRACKABLE_NANOS, 3);
+	private final LongAdder successes = new LongAdder();
+	private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+	
+	void recordSuccess(long intendedStartNanos, long actualStartNanos, long endNanos) {
+		record(intendedStartNanos, actualStartNanos, endNanos);
+		successes.increment();
+	}
+	
+	void recordError(long intendedStartNanos, long actualStartNanos, long endNanos, Throwable error) {
+		record(intendedStartNanos, actualStartNanos, endNanos);
+		errors.computeIfAbsent(error.getClass().getSimpleName(), key -> new LongAdder()).increment();
+	}
+	
+	long getSuccessCount() {
+		return successes.sum();
+	}
+	
+	long getErrorCount() {
+		long total = 0;
+		for (LongAdder count : errors.values()) {
+			total += count.sum();
+		}
+		return total;
+	}
+	
+	Map<String, Long> getErrors() {
+		Map<String, Long> counts = new TreeMap<>();
+		errors.forEach((type, count) -> counts.put(type, count.sum()));
+		return counts;
+	}
+	
+	Histogram getResponseTime() {
+		return responseTime;
+	}
+	
+	void print(PrintStream out, double targetRate, long elapsedNanos) {
+		long total = getSuccessCount() + getErrorCount();
+		double elapsedSeconds = elapsedNanos / 1e9;
+		
+		out.println(String.format("Events:     %,d in %.1f s", total, elapsedSeconds));
+		out.println(Double.isNaN(targetRate)
+				? String.format("Throughput: %,.1f/s (recorded timing)", total / elapsedSeconds)
+				: String.format("Throughput: %,.1f/s (target %,.1f/s)", total / elapsedSeconds, targetRate));
+		out.println(String.format("Succeeded:  %,d", getSuccessCount()));
+		out.println(String.format("Failed:     %,d", getErrorCount()));
+		getErrors().forEach((type, count) -> out.println(String.format("  %-40s %,d", type, count)));
+		out.println();
+		out.println(String.format("%-10s %16s %16s", "", "response (ms)", "service (ms)"));
+		for (double percentile : PERCENTILES) {
+			out.println(String.format("%-10s %16.2f %16.2f", "p" + formatPercentile(percentile),
+					millis(responseTime.getValueAtPercentile(percentile)),
+					millis(serviceTime.getValueAtPercentile(percentile))));
+		}
+		out.println(String.format("%-10s %16.2f %16.2f", "max",
+				millis(responseTime.getMaxValue()), millis(serviceTime.getMaxValue())));
+	}
+	
+	private void record(long intendedStartNanos, long actualStartNanos, long endNanos) {
+		responseTime.recordValue(Math.min(MAX_TRACKABLE_NANOS, endNanos - intendedStartNanos));
+		serviceTime.recordValue(Math.min(MAX_TRACKABLE_NANOS, endNanos - actualStartNanos));
+	}
+	
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+	
+	private static String formatPercentile(double percentile) {
+		return percentile == Math.rint(percentile)
+				? String.valueOf((long) percentile)
+				: String.valueOf(percentile);
+	}
+	
+}
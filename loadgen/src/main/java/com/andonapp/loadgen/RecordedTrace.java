@@ -0,0 +1,106 @@
+package com.andonapp.loadgen;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+/**
+ * Reads a recorded trace from a CSV file with one event per line:
+ * 
+ * <pre>
+ * # offsetMillis,type,lineName,stationName,passResult|statusColor,processTimeSeconds,reason,notes
+ * 0,REPORT,line 1,station 1,PASS,120,,
+ * 250,REPORT,line 1,station 2,FAIL,95,Test Failure,leak on channel 3
+ * 900,STATUS,line 1,station 2,RED,,Test Failure,
+ * </pre>
+ * 
+ * <p>Blank lines and lines starting with {@code #} are ignored. Fields can't contain
+ * commas. Events are sent at their recorded offsets, unless a target rate is given with
+ * {@code --rate}; then the offsets are ignored and events are sent at that rate in file
+ * order instead.
+ */
+final class RecordedTrace implements Trace {
+
+	private final BufferedReader reader;
+	private final long intervalNanos;
+	
+	private long lineNumber;
+	private long eventCount;
+	
+	/**
+	 * @param file trace to read
+	 * @param rate events per second to send at, or NaN to keep the recorded offsets
+	 */
+	RecordedTrace(Path file, double rate) throws IOException {
+		this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+		this.intervalNanos = Double.isNaN(rate) ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+	}
+	
+	@Override
+	public TraceEvent next() throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (!line.isEmpty() && !line.startsWith("#")) {
+				return parse(line);
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+	
+	private TraceEvent parse(String line) {
+		String[] fields = line.split(",", -1);
+		if (fields.length < 5) {
+			throw new IllegalArgumentException(String.format("Line %s: expected at least 5 fields", lineNumber));
+		}
+		
+		long offsetNanos = intervalNanos > 0
+				? eventCount * intervalNanos
+				: TimeUnit.MILLISECONDS.toNanos(Long.parseLong(fields[0].trim()));
+		eventCount++;
+		
+		switch (fields[1].trim()) {
+		case "REPORT":
+			return TraceEvent.report(offsetNanos, ReportDataRequest.builder()
+					.lineName(fields[2])
+					.stationName(fields[3])
+					.passResult(fields[4])
+					.processTimeSeconds(Long.parseLong(field(fields, 5)))
+					.failReason(emptyToNull(field(fields, 6)))
+					.failNotes(emptyToNull(field(fields, 7)))
+					.build());
+		case "STATUS":
+			return TraceEvent.status(offsetNanos, UpdateStationStatusRequest.builder()
+					.lineName(fields[2])
+					.stationName(fields[3])
+					.statusColor(fields[4])
+					.statusReason(emptyToNull(field(fields, 6)))
+					.statusNotes(emptyToNull(field(fields, 7)))
+					.build());
+		default:
+			throw new IllegalArgumentException(String.format("Line %s: unknown event type '%s'",
+					lineNumber, fields[1]));
+		}
+	}
+	
+	private static String field(String[] fields, int index) {
+		return index < fields.length ? fields[index] : "";
+	}
+	
+	private static String emptyToNull(String value) {
+		return value.isEmpty() ? null : value;
+	}
+	
+}
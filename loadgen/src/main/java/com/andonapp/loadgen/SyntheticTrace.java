@@ -0,0 +1,70 @@
+package com.andonapp.loadgen;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+/**
+ * Generates events at a fixed rate for stations picked uniformly at random across a
+ * number of lines.
+ */
+final class SyntheticTrace implements Trace {
+
+	private static final String[] STATUS_COLORS = {"GREEN", "YELLOW", "RED"};
+	
+	private final Random random;
+	private final long intervalNanos;
+	private final long count;
+	private final int lines;
+	private final int stationsPerLine;
+	private final double statusFraction;
+	private final double failFraction;
+	
+	private long generated;
+	
+	SyntheticTrace(LoadOptions options) {
+		this.random = new Random(options.seed);
+		double rate = options.targetRate();
+		this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+		this.count = (long) (rate * options.durationSeconds);
+		this.lines = options.lines;
+		this.stationsPerLine = options.stationsPerLine;
+		this.statusFraction = options.statusFraction;
+		this.failFraction = options.failFraction;
+	}
+	
+	@Override
+	public TraceEvent next() {
+		if (generated >= count) {
+			return null;
+		}
+		
+		long offsetNanos = generated++ * intervalNanos;
+		String lineName = "line " + (random.nextInt(lines) + 1);
+		String stationName = "station " + (random.nextInt(stationsPerLine) + 1);
+		
+		if (random.nextDouble() < statusFraction) {
+			String color = STATUS_COLORS[random.nextInt(STATUS_COLORS.length)];
+			return TraceEvent.status(offsetNanos, UpdateStationStatusRequest.builder()
+					.lineName(lineName)
+					.stationName(stationName)
+					.statusColor(color)
+					.statusReason("GREEN".equals(color) ? null : "Missing parts")
+					.build());
+		}
+		
+		ReportDataRequest.ReportDataRequestBuilder report = ReportDataRequest.builder()
+				.lineName(lineName)
+				.stationName(stationName)
+				.processTimeSeconds(30L + random.nextInt(90));
+		if (random.nextDouble() < failFraction) {
+			report.passResult("FAIL").failReason("Test Failure").failNotes("synthetic failure");
+		} else {
+			report.passResult("PASS");
+		}
+		return TraceEvent.report(offsetNanos, report.build());
+	}
+	
+}
@@ -0,0 +1,25 @@
+package com.andonapp.loadgen;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sequence of events to replay, read lazily so that long runs don't have to hold the
+ * whole trace in memory.
+ */
+interface Trace extends Closeable {
+
+	/**
+	 * Returns the next event.
+	 * 
+	 * @return event, or null at the end of the trace
+	 * @throws IOException if the trace can't be read
+	 */
+	TraceEvent next() throws IOException;
+	
+	@Override
+	default void close() throws IOException {
+		// nothing to release
+	}
+	
+}
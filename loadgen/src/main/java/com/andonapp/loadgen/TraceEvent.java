@@ -0,0 +1,48 @@
+package com.andonapp.loadgen;
+
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+/**
+ * A single report or status event in a trace.
+ */
+final class TraceEvent {
+
+	private final long offsetNanos;
+	private final ReportDataRequest report;
+	private final UpdateStationStatusRequest status;
+	
+	private TraceEvent(long offsetNanos, ReportDataRequest report, UpdateStationStatusRequest status) {
+		this.offsetNanos = offsetNanos;
+		this.report = report;
+		this.status = status;
+	}
+	
+	static TraceEvent report(long offsetNanos, ReportDataRequest report) {
+		return new TraceEvent(offsetNanos, report, null);
+	}
+	
+	static TraceEvent status(long offsetNanos, UpdateStationStatusRequest status) {
+		return new TraceEvent(offsetNanos, null, status);
+	}
+	
+	/**
+	 * Time from the start of the trace at which the event should be sent.
+	 */
+	long getOffsetNanos() {
+		return offsetNanos;
+	}
+	
+	boolean isReport() {
+		return report != null;
+	}
+	
+	ReportDataRequest getReport() {
+		return report;
+	}
+	
+	UpdateStationStatusRequest getStatus() {
+		return status;
+	}
+	
+}
@@ -0,0 +1,180 @@
+package com.andonapp.loadgen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.andonapp.client.AndonAppClient;
+import com.andonapp.client.exception.AndonInvalidRequestException;
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+public class LoadGeneratorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldReadRecordedTrace() throws Exception {
+		Path file = writeTrace(
+				"# offsetMillis,type,lineName,stationName,value,processTimeSeconds,reason,notes",
+				"0,REPORT,line 1,station 1,PASS,120,,",
+				"",
+				"250,REPORT,line 1,station 2,FAIL,95,Test Failure,leak",
+				"900,STATUS,line 1,station 2,RED,,Test Failure,");
+
+		try (RecordedTrace trace = new RecordedTrace(file, Double.NaN)) {
+			TraceEvent first = trace.next();
+			assertTrue(first.isReport());
+			assertEquals(0, first.getOffsetNanos());
+			assertEquals("PASS", first.getReport().getPassResult());
+			assertNull(first.getReport().getFailReason());
+
+			TraceEvent second = trace.next();
+			assertEquals(TimeUnit.MILLISECONDS.toNanos(250), second.getOffsetNanos());
+			assertEquals("leak", second.getReport().getFailNotes());
+
+			TraceEvent third = trace.next();
+			assertEquals("RED", third.getStatus().getStatusColor());
+			assertEquals("Test Failure", third.getStatus().getStatusReason());
+
+			assertNull(trace.next());
+		}
+	}
+
+	@Test
+	public void shouldRescheduleRecordedTraceAtTargetRate() throws Exception {
+		Path file = writeTrace(
+				"0,REPORT,line 1,station 1,PASS,120,,",
+				"5000,REPORT,line 1,station 1,PASS,120,,");
+
+		try (RecordedTrace trace = new RecordedTrace(file, 10)) {
+			assertEquals(0, trace.next().getOffsetNanos());
+			assertEquals(TimeUnit.MILLISECONDS.toNanos(100), trace.next().getOffsetNanos());
+		}
+	}
+
+	@Test
+	public void shouldReplayRecordedTimingWithoutRate() throws Exception {
+		Path file = writeTrace(
+				"0,REPORT,line 1,station 1,PASS,120,,",
+				"30,REPORT,line 1,station 2,PASS,120,,",
+				"400,STATUS,line 1,station 3,RED,,Jam,",
+				"410,REPORT,line 1,station 4,PASS,120,,");
+		LoadOptions options = LoadOptions.parse(new String[] {"--trace", file.toString(), "--threads", "4"});
+		RecordingClient client = new RecordingClient();
+
+		long start = System.nanoTime();
+		try (Trace trace = LoadGenerator.openTrace(options)) {
+			new LoadGenerator(options, client).run(trace);
+		}
+
+		long[] offsetsMillis = {0, 30, 400, 410};
+		for (int i = 0; i < offsetsMillis.length; i++) {
+			long sentMillis = TimeUnit.NANOSECONDS.toMillis(client.sentAt.get("station " + (i + 1)) - start);
+			assertTrue("station " + (i + 1) + " sent at " + sentMillis + "ms",
+					sentMillis >= offsetsMillis[i] && sentMillis < offsetsMillis[i] + 300);
+		}
+	}
+
+	@Test
+	public void shouldOverrideRecordedTimingWithRate() throws Exception {
+		Path file = writeTrace(
+				"0,REPORT,line 1,station 1,PASS,120,,",
+				"5000,REPORT,line 1,station 1,PASS,120,,");
+		LoadOptions options = LoadOptions.parse(new String[] {"--trace", file.toString(), "--rate", "20"});
+
+		try (Trace trace = LoadGenerator.openTrace(options)) {
+			assertEquals(0, trace.next().getOffsetNanos());
+			assertEquals(TimeUnit.MILLISECONDS.toNanos(50), trace.next().getOffsetNanos());
+		}
+	}
+
+	@Test
+	public void shouldGenerateSyntheticTraceAtRate() {
+		LoadOptions options = LoadOptions.parse(new String[] {"--rate", "100", "--duration", "2"});
+		SyntheticTrace trace = new SyntheticTrace(options);
+
+		long count = 0;
+		TraceEvent event;
+		TraceEvent last = null;
+		while ((event = trace.next()) != null) {
+			count++;
+			last = event;
+		}
+
+		assertEquals(200, count);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(1990), last.getOffsetNanos());
+	}
+
+	@Test
+	public void shouldBreakDownErrorsByType() throws Exception {
+		LoadOptions options = LoadOptions.parse(new String[] {
+				"--rate", "1000", "--duration", "0.2", "--fail-fraction", "0.5", "--threads", "4"});
+
+		LoadResult result = new LoadGenerator(options, new FailingClient()).run(new SyntheticTrace(options));
+
+		assertEquals(200, result.getSuccessCount() + result.getErrorCount());
+		assertTrue(result.getErrorCount() > 0);
+		assertEquals(Long.valueOf(result.getErrorCount()),
+				result.getErrors().get("AndonInvalidRequestException"));
+		assertEquals(200, result.getResponseTime().getTotalCount());
+	}
+
+	private Path writeTrace(String... lines) throws IOException {
+		Path file = folder.newFile("trace.csv").toPath();
+		Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+		return file;
+	}
+
+	/**
+	 * Records when each station's event was sent.
+	 */
+	private static class RecordingClient implements AndonAppClient {
+
+		final Map<String, Long> sentAt = new ConcurrentHashMap<>();
+
+		@Override
+		public void reportData(ReportDataRequest request) {
+			sentAt.put(request.getStationName(), System.nanoTime());
+		}
+
+		@Override
+		public void updateStationStatus(UpdateStationStatusRequest request) {
+			sentAt.put(request.getStationName(), System.nanoTime());
+		}
+
+	}
+
+	/**
+	 * Rejects every FAIL report and accepts everything else.
+	 */
+	private static class FailingClient implements AndonAppClient {
+
+		@Override
+		public void reportData(ReportDataRequest request) {
+			if ("FAIL".equals(request.getPassResult())) {
+				throw new AndonInvalidRequestException("rejected");
+			}
+		}
+
+		@Override
+		public void updateStationStatus(UpdateStationStatusRequest request) {
+		}
+
+	}
+
+}
@@ -0,0 +1,431 @@
+package com.andonapp.simulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.andonapp.client.model.ErrorResponse;
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.SpringErrorResponse;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.BufferedSource;
+import okio.GzipSource;
+import okio.Okio;
+
+/**
+ * In-process fake of the Andon public API for load and fault-injection testing. It
+ * serves {@code data/report} and {@code station/update}, validates requests the way
+ * Andon does, and keeps the resulting per-station state.
+ *
+ * <p>Faults can be changed at any time, including while requests are in flight:
+ * <pre> {@code
+ *
+ *   AndonSimulator simulator = new AndonSimulator();
+ *   simulator.start();
+ *   simulator.setLatency(LatencyDistribution.logNormal(20, 0.8));
+ *   simulator.setInternalErrorRate(0.01);
+ *   simulator.setThrottleRate(500);
+ *
+ *   DefaultAndonAppClient client = new DefaultAndonAppClient("Demo", "token");
+ *   client.setEndpoint(simulator.getEndpoint());
+ * }</pre>
+ */
+public class AndonSimulator implements Closeable {
+
+	private static final String AUTHORIZATION_HEADER = "Authorization";
+	private static final String BEARER = "Bearer ";
+	private static final String API_PATH = "/public/api/v1/";
+	private static final String REPORT_DATA_PATH = API_PATH + "data/report";
+	private static final String UPDATE_STATUS_PATH = API_PATH + "station/update";
+
+	private final MockWebServer server;
+	private final ObjectMapper objectMapper;
+	private final Random random;
+
+	private final ConcurrentMap<String, SimulatedStation> stations = new ConcurrentHashMap<>();
+	private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+
+	private volatile String apiToken;
+	private volatile boolean strictStations;
+	private volatile LatencyDistribution latency = LatencyDistribution.NONE;
+	private volatile double internalErrorRate;
+	private volatile double springErrorRate;
+	private volatile double connectionDropRate;
+	private volatile RateLimiter rateLimiter;
+
+	/**
+	 * Constructs a new simulator with randomly seeded faults.
+	 */
+	public AndonSimulator() {
+		this(new Random());
+	}
+
+	/**
+	 * Constructs a new simulator whose latencies and faults are drawn from a fixed seed.
+	 *
+	 * @param seed seed for the random source
+	 */
+	public AndonSimulator(long seed) {
+		this(new Random(seed));
+	}
+
+	private AndonSimulator(Random random) {
+		this.random = random;
+		this.objectMapper = new ObjectMapper();
+		this.server = new MockWebServer();
+		this.server.setDispatcher(new SimulatorDispatcher());
+		for (Outcome outcome : Outcome.values()) {
+			outcomes.put(outcome, new LongAdder());
+		}
+	}
+
+	/**
+	 * Starts the simulator on a random local port.
+	 *
+	 * @throws IOException if the server can't be started
+	 */
+	public void start() throws IOException {
+		server.start();
+	}
+
+	/**
+	 * Starts the simulator on the given local port.
+	 *
+	 * @param port port to listen on
+	 * @throws IOException if the server can't be started
+	 */
+	public void start(int port) throws IOException {
+		server.start(port);
+	}
+
+	/**
+	 * Stops the simulator.
+	 */
+	@Override
+	public void close() throws IOException {
+		server.shutdown();
+	}
+
+	/**
+	 * Returns the endpoint to pass to {@code DefaultAndonAppClient.setEndpoint}.
+	 *
+	 * @return endpoint URL
+	 */
+	public String getEndpoint() {
+		return server.url(API_PATH).toString();
+	}
+
+	/**
+	 * Returns the underlying server, for example to change its protocols.
+	 *
+	 * @return mock web server
+	 */
+	public MockWebServer getServer() {
+		return server;
+	}
+
+	/**
+	 * Requires requests to carry the given API token. By default any token is accepted.
+	 *
+	 * @param apiToken required token, or null to accept any token
+	 */
+	public void setApiToken(String apiToken) {
+		this.apiToken = apiToken;
+	}
+
+	/**
+	 * When strict, requests for stations that weren't registered are rejected with
+	 * {@code RESOURCE_NOT_FOUND}. Otherwise stations are created on first use.
+	 *
+	 * @param strictStations whether stations must be registered
+	 */
+	public void setStrictStations(boolean strictStations) {
+		this.strictStations = strictStations;
+	}
+
+	/**
+	 * Sets the server time added to every request.
+	 *
+	 * @param latency latency distribution
+	 */
+	public void setLatency(LatencyDistribution latency) {
+		this.latency = Precondition.checkNotNull(latency, "latency cannot be null");
+	}
+
+	/**
+	 * Fraction of requests that fail with an {@code INTERNAL_ERROR} {@code ErrorResponse}.
+	 *
+	 * @param rate fraction between 0 and 1
+	 */
+	public void setInternalErrorRate(double rate) {
+		this.internalErrorRate = Precondition.checkFraction(rate, "rate must be between 0 and 1");
+	}
+
+	/**
+	 * Fraction of requests that fail with a 500 {@code SpringErrorResponse}.
+	 *
+	 * @param rate fraction between 0 and 1
+	 */
+	public void setSpringErrorRate(double rate) {
+		this.springErrorRate = Precondition.checkFraction(rate, "rate must be between 0 and 1");
+	}
+
+	/**
+	 * Fraction of requests whose connection is dropped after the request is read,
+	 * without any response being written.
+	 *
+	 * @param rate fraction between 0 and 1
+	 */
+	public void setConnectionDropRate(double rate) {
+		this.connectionDropRate = Precondition.checkFraction(rate, "rate must be between 0 and 1");
+	}
+
+	/**
+	 * Limits accepted requests to the given rate. Requests over the limit are rejected
+	 * with 429. The limiter allows bursts of up to one second's worth of requests.
+	 *
+	 * @param requestsPerSecond sustained rate, or 0 to disable throttling
+	 */
+	public void setThrottleRate(double requestsPerSecond) {
+		Precondition.checkNotNegative(requestsPerSecond, "requestsPerSecond cannot be negative");
+		this.rateLimiter = requestsPerSecond == 0
+				? null
+				: new RateLimiter(requestsPerSecond, (int) Math.ceil(requestsPerSecond));
+	}
+
+	/**
+	 * Registers a station, which is required for it to be used in strict mode.
+	 *
+	 * @param lineName name of the line
+	 * @param stationName name of the station
+	 * @return the station
+	 */
+	public SimulatedStation registerStation(String lineName, String stationName) {
+		return stations.computeIfAbsent(stationKey(lineName, stationName),
+				key -> new SimulatedStation(lineName, stationName));
+	}
+
+	/**
+	 * Returns the state of a station.
+	 *
+	 * @param lineName name of the line
+	 * @param stationName name of the station
+	 * @return the station, or null if it has never been used or registered
+	 */
+	public SimulatedStation getStation(String lineName, String stationName) {
+		return stations.get(stationKey(lineName, stationName));
+	}
+
+	/**
+	 * Returns every known station.
+	 *
+	 * @return stations
+	 */
+	public Collection<SimulatedStation> getStations() {
+		return Collections.unmodifiableCollection(stations.values());
+	}
+
+	/**
+	 * Returns how many requests were answered with the given outcome.
+	 *
+	 * @param outcome outcome
+	 * @return count
+	 */
+	public long getOutcomeCount(Outcome outcome) {
+		return outcomes.get(outcome).sum();
+	}
+
+	/**
+	 * Returns the total number of requests received.
+	 *
+	 * @return count
+	 */
+	public long getRequestCount() {
+		long total = 0;
+		for (LongAdder count : outcomes.values()) {
+			total += count.sum();
+		}
+		return total;
+	}
+
+	/**
+	 * Forgets all stations and counts. Fault settings are kept.
+	 */
+	public void reset() {
+		stations.clear();
+		for (LongAdder count : outcomes.values()) {
+			count.reset();
+		}
+	}
+
+	private MockResponse handle(RecordedRequest request) throws InterruptedException {
+		if (chance(connectionDropRate)) {
+			return respond(Outcome.DROPPED, new MockResponse()
+					.setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+		}
+
+		long latencyMillis = latency.sampleMillis(random);
+		if (latencyMillis > 0) {
+			Thread.sleep(latencyMillis);
+		}
+
+		RateLimiter limiter = rateLimiter;
+		if (limiter != null && !limiter.tryAcquire()) {
+			return springError(Outcome.THROTTLED, 429, "Too Many Requests", "Rate limit exceeded", request)
+					.addHeader("Retry-After", "1");
+		}
+
+		String token = apiToken;
+		if (token != null && !(BEARER + token).equals(request.getHeader(AUTHORIZATION_HEADER))) {
+			return springError(Outcome.UNAUTHORIZED, 401, "Unauthorized", "Unauthorized", request);
+		}
+
+		if (chance(internalErrorRate)) {
+			return error(Outcome.INTERNAL_ERROR, 500, "INTERNAL_ERROR", "Simulated internal error.");
+		}
+
+		if (chance(springErrorRate)) {
+			return springError(Outcome.SPRING_ERROR, 500, "Internal Server Error", "Simulated failure", request);
+		}
+
+		String path = request.getPath();
+		try {
+			if (REPORT_DATA_PATH.equals(path)) {
+				return reportData(readBody(request, ReportDataRequest.class));
+			} else if (UPDATE_STATUS_PATH.equals(path)) {
+				return updateStationStatus(readBody(request, UpdateStationStatusRequest.class));
+			}
+		} catch (IOException e) {
+			return springError(Outcome.INVALID_REQUEST, 400, "Bad Request", e.getMessage(), request);
+		}
+
+		return springError(Outcome.NOT_FOUND, 404, "Not Found", "No message available", request);
+	}
+
+	private MockResponse reportData(ReportDataRequest request) {
+		String invalid = validateNames(request.getLineName(), request.getStationName());
+		if (invalid == null && !"PASS".equals(request.getPassResult()) && !"FAIL".equals(request.getPassResult())) {
+			invalid = String.format("'%s' is not a valid pass result.", request.getPassResult());
+		}
+		if (invalid == null && request.getProcessTimeSeconds() == null) {
+			invalid = "processTimeSeconds may not be null";
+		}
+		if (invalid != null) {
+			return error(Outcome.INVALID_REQUEST, 400, "INVALID_REQUEST", invalid);
+		}
+
+		SimulatedStation station = findStation(request.getLineName(), request.getStationName());
+		if (station == null) {
+			return error(Outcome.RESOURCE_NOT_FOUND, 400, "RESOURCE_NOT_FOUND", "Station not found.");
+		}
+
+		station.report(request);
+		return respond(Outcome.OK, new MockResponse().setResponseCode(200));
+	}
+
+	private MockResponse updateStationStatus(UpdateStationStatusRequest request) {
+		String invalid = validateNames(request.getLineName(), request.getStationName());
+		String color = request.getStatusColor();
+		if (invalid == null && !"GREEN".equals(color) && !"YELLOW".equals(color) && !"RED".equals(color)) {
+			invalid = String.format("'%s' is not a valid status color.", color);
+		}
+		if (invalid != null) {
+			return error(Outcome.INVALID_REQUEST, 400, "INVALID_REQUEST", invalid);
+		}
+
+		SimulatedStation station = findStation(request.getLineName(), request.getStationName());
+		if (station == null) {
+			return error(Outcome.RESOURCE_NOT_FOUND, 400, "RESOURCE_NOT_FOUND", "Station not found.");
+		}
+
+		station.updateStatus(request);
+		return respond(Outcome.OK, new MockResponse().setResponseCode(200));
+	}
+
+	private String validateNames(String lineName, String stationName) {
+		if (isBlank(lineName)) {
+			return "lineName may not be empty";
+		}
+		if (isBlank(stationName)) {
+			return "stationName may not be empty";
+		}
+		return null;
+	}
+
+	private SimulatedStation findStation(String lineName, String stationName) {
+		return strictStations
+				? getStation(lineName, stationName)
+				: registerStation(lineName, stationName);
+	}
+
+	private <T> T readBody(RecordedRequest request, Class<T> type) throws IOException {
+		BufferedSource body = request.getBody();
+		if ("gzip".equalsIgnoreCase(request.getHeader("Content-Encoding"))) {
+			body = Okio.buffer(new GzipSource(body));
+		}
+		return objectMapper.readValue(body.inputStream(), type);
+	}
+
+	private MockResponse error(Outcome outcome, int code, String errorType, String errorMessage) {
+		return json(outcome, code, new ErrorResponse(errorType, errorMessage));
+	}
+
+	private MockResponse springError(Outcome outcome, int code, String error, String message,
+			RecordedRequest request) {
+		return json(outcome, code, new SpringErrorResponse(
+				String.valueOf(System.currentTimeMillis()), code, error, message, request.getPath()));
+	}
+
+	private MockResponse json(Outcome outcome, int code, Object body) {
+		try {
+			return respond(outcome, new MockResponse()
+					.setResponseCode(code)
+					.addHeader("Content-Type", "application/json")
+					.setBody(objectMapper.writeValueAsString(body)));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private MockResponse respond(Outcome outcome, MockResponse response) {
+		outcomes.get(outcome).increment();
+		return response;
+	}
+
+	private boolean chance(double rate) {
+		return rate > 0 && random.nextDouble() < rate;
+	}
+
+	private static boolean isBlank(String value) {
+		return value == null || value.trim().isEmpty();
+	}
+
+	private static String stationKey(String lineName, String stationName) {
+		return lineName + '\u0000' + stationName;
+	}
+
+	private class SimulatorDispatcher extends Dispatcher {
+
+		@Override
+		public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+			return handle(request);
+		}
+
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.andonapp.simulator;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs the simulator as a standalone process, so that clients in other processes can
+ * be tested against it.
+ *
+ * <pre>
+ * --port N                 port to listen on (default 8080)
+ * --token TOKEN            required API token (default: any)
+ * --latency-median-ms N    median of the log-normal latency (default 0)
+ * --latency-sigma N        tail shape of the log-normal latency (default 0.5)
+ * --error-rate N           fraction of INTERNAL_ERROR responses
+ * --spring-error-rate N    fraction of Spring 500 responses
+ * --drop-rate N            fraction of dropped connections
+ * --throttle-rps N         requests per second before 429s (default: unlimited)
+ * --seed N                 random seed
+ * </pre>
+ */
+public final class AndonSimulatorMain {
+
+	private AndonSimulatorMain() {
+		// static class
+	}
+
+	public static void main(String[] args) throws Exception {
+		int port = 8080;
+		String token = null;
+		double latencyMedian = 0;
+		double latencySigma = 0.5;
+		double errorRate = 0;
+		double springErrorRate = 0;
+		double dropRate = 0;
+		double throttleRate = 0;
+		Long seed = null;
+
+		for (int i = 0; i < args.length; i++) {
+			String value = i + 1 < args.length ? args[i + 1] : null;
+			switch (args[i]) {
+			case "--port":
+				port = Integer.parseInt(value);
+				break;
+			case "--token":
+				token = value;
+				break;
+			case "--latency-median-ms":
+				latencyMedian = Double.parseDouble(value);
+				break;
+			case "--latency-sigma":
+				latencySigma = Double.parseDouble(value);
+				break;
+			case "--error-rate":
+				errorRate = Double.parseDouble(value);
+				break;
+			case "--spring-error-rate":
+				springErrorRate = Double.parseDouble(value);
+				break;
+			case "--drop-rate":
+				dropRate = Double.parseDouble(value);
+				break;
+			case "--throttle-rps":
+				throttleRate = Double.parseDouble(value);
+				break;
+			case "--seed":
+				seed = Long.parseLong(value);
+				break;
+			default:
+				System.err.println("Unknown option: " + args[i]);
+				System.exit(2);
+			}
+			i++;
+		}
+
+		AndonSimulator simulator = seed == null ? new AndonSimulator() : new AndonSimulator(seed);
+		simulator.setApiToken(token);
+		if (latencyMedian > 0) {
+			simulator.setLatency(LatencyDistribution.logNormal(latencyMedian, latencySigma));
+		}
+		simulator.setInternalErrorRate(errorRate);
+		simulator.setSpringErrorRate(springErrorRate);
+		simulator.setConnectionDropRate(dropRate);
+		simulator.setThrottleRate(throttleRate);
+		simulator.start(port);
+
+		CountDownLatch stopped = new CountDownLatch(1);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			System.out.println(String.format("Served %s requests", simulator.getRequestCount()));
+			stopped.countDown();
+		}));
+
+		System.out.println("Andon simulator listening at " + simulator.getEndpoint());
+		stopped.await();
+	}
+
+}
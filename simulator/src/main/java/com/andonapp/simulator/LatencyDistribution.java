@@ -0,0 +1,94 @@
+package com.andonapp.simulator;
+
+import java.util.Random;
+
+/**
+ * Distribution of the server time added to each simulated request.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+	/**
+	 * No added latency.
+	 */
+	LatencyDistribution NONE = random -> 0;
+
+	/**
+	 * Draws the next latency.
+	 *
+	 * @param random source of randomness
+	 * @return latency in milliseconds, never negative
+	 */
+	long sampleMillis(Random random);
+
+	/**
+	 * Every request takes exactly the given time.
+	 *
+	 * @param millis latency in milliseconds
+	 * @return distribution
+	 */
+	static LatencyDistribution fixed(long millis) {
+		Precondition.checkNotNegative(millis, "millis cannot be negative");
+		return random -> millis;
+	}
+
+	/**
+	 * Latencies spread evenly between a minimum and a maximum.
+	 *
+	 * @param minMillis smallest latency in milliseconds
+	 * @param maxMillis largest latency in milliseconds
+	 * @return distribution
+	 */
+	static LatencyDistribution uniform(long minMillis, long maxMillis) {
+		Precondition.checkNotNegative(minMillis, "minMillis cannot be negative");
+		if (maxMillis < minMillis) {
+			throw new IllegalArgumentException("maxMillis cannot be less than minMillis");
+		}
+		return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis + 1));
+	}
+
+	/**
+	 * Exponentially distributed latencies, as seen from a server under steady load.
+	 *
+	 * @param meanMillis mean latency in milliseconds
+	 * @return distribution
+	 */
+	static LatencyDistribution exponential(double meanMillis) {
+		Precondition.checkNotNegative(meanMillis, "meanMillis cannot be negative");
+		return random -> Math.round(-meanMillis * Math.log(1.0 - random.nextDouble()));
+	}
+
+	/**
+	 * Log-normally distributed latencies. This has the long right tail typical of
+	 * real networks, and is the one to use when measuring p99 and beyond.
+	 *
+	 * @param medianMillis median latency in milliseconds
+	 * @param sigma shape of the tail, 0.5 is moderate and 1.5 is severe
+	 * @return distribution
+	 */
+	static LatencyDistribution logNormal(double medianMillis, double sigma) {
+		Precondition.checkNotNegative(medianMillis, "medianMillis cannot be negative");
+		Precondition.checkNotNegative(sigma, "sigma cannot be negative");
+		double mu = Math.log(Math.max(medianMillis, Double.MIN_NORMAL));
+		return random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+	}
+
+	/**
+	 * Mixes two distributions, for example a fast path with the occasional request
+	 * stuck behind a lossy link.
+	 *
+	 * @param usual distribution for most requests
+	 * @param slow distribution for the slow requests
+	 * @param slowFraction fraction of requests drawn from the slow distribution
+	 * @return distribution
+	 */
+	static LatencyDistribution mixture(LatencyDistribution usual, LatencyDistribution slow, double slowFraction) {
+		Precondition.checkNotNull(usual, "usual cannot be null");
+		Precondition.checkNotNull(slow, "slow cannot be null");
+		Precondition.checkFraction(slowFraction, "slowFraction must be between 0 and 1");
+		return random -> random.nextDouble() < slowFraction
+				? slow.sampleMillis(random)
+				: usual.sampleMillis(random);
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.andonapp.simulator;
+
+/**
+ * How the simulator answered a request.
+ */
+public enum Outcome {
+
+	/** The request was accepted and applied to the station state. */
+	OK,
+	/** Rejected with {@code INVALID_REQUEST}. */
+	INVALID_REQUEST,
+	/** Rejected with {@code RESOURCE_NOT_FOUND}. */
+	RESOURCE_NOT_FOUND,
+	/** Rejected with a Spring 401 because the API token didn't match. */
+	UNAUTHORIZED,
+	/** Injected {@code INTERNAL_ERROR} in the {@code ErrorResponse} format. */
+	INTERNAL_ERROR,
+	/** Injected 500 in the {@code SpringErrorResponse} format. */
+	SPRING_ERROR,
+	/** Rejected with 429 by the rate limiter. */
+	THROTTLED,
+	/** The connection was dropped without a response. */
+	DROPPED,
+	/** The path didn't match a known API. */
+	NOT_FOUND
+
+}
@@ -0,0 +1,32 @@
+package com.andonapp.simulator;
+
+import java.util.Objects;
+
+final class Precondition {
+
+	private Precondition() {
+		// static class
+	}
+	
+	public static <T> T checkNotNull(T object, String message) {
+		if (Objects.isNull(object)) {
+			throw new IllegalArgumentException(message);
+		}
+		return object;
+	}
+	
+	public static double checkNotNegative(double value, String message) {
+		if (value < 0) {
+			throw new IllegalArgumentException(message);
+		}
+		return value;
+	}
+	
+	public static double checkFraction(double value, String message) {
+		if (value < 0 || value > 1) {
+			throw new IllegalArgumentException(message);
+		}
+		return value;
+	}
+	
+}
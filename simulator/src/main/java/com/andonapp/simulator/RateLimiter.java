@@ -0,0 +1,33 @@
+package com.andonapp.simulator;
+
+/**
+ * Token bucket used to throttle simulated requests.
+ */
+final class RateLimiter {
+
+	private final double permitsPerNano;
+	private final double burst;
+	
+	private double permits;
+	private long lastRefillNanos;
+	
+	RateLimiter(double permitsPerSecond, int burst) {
+		this.permitsPerNano = permitsPerSecond / 1_000_000_000d;
+		this.burst = Math.max(1, burst);
+		this.permits = this.burst;
+		this.lastRefillNanos = System.nanoTime();
+	}
+	
+	synchronized boolean tryAcquire() {
+		long now = System.nanoTime();
+		permits = Math.min(burst, permits + (now - lastRefillNanos) * permitsPerNano);
+		lastRefillNanos = now;
+		
+		if (permits >= 1) {
+			permits -= 1;
+			return true;
+		}
+		return false;
+	}
+	
+}
@@ -0,0 +1,93 @@
+package com.andonapp.simulator;
+
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+/**
+ * State the simulator keeps for a single station, built up from the reports and
+ * status updates it has accepted. Stations start out GREEN.
+ */
+public class SimulatedStation {
+
+	private final String lineName;
+	private final String stationName;
+	
+	private String statusColor = "GREEN";
+	private String statusReason;
+	private String statusNotes;
+	private long statusUpdateCount;
+	
+	private long passCount;
+	private long failCount;
+	private long totalProcessTimeSeconds;
+	private String lastFailReason;
+	
+	SimulatedStation(String lineName, String stationName) {
+		this.lineName = lineName;
+		this.stationName = stationName;
+	}
+	
+	synchronized void report(ReportDataRequest request) {
+		if ("PASS".equals(request.getPassResult())) {
+			passCount++;
+		} else {
+			failCount++;
+			lastFailReason = request.getFailReason();
+		}
+		totalProcessTimeSeconds += request.getProcessTimeSeconds();
+	}
+	
+	synchronized void updateStatus(UpdateStationStatusRequest request) {
+		statusColor = request.getStatusColor();
+		statusReason = request.getStatusReason();
+		statusNotes = request.getStatusNotes();
+		statusUpdateCount++;
+	}
+	
+	public String getLineName() {
+		return lineName;
+	}
+	
+	public String getStationName() {
+		return stationName;
+	}
+	
+	public synchronized String getStatusColor() {
+		return statusColor;
+	}
+	
+	public synchronized String getStatusReason() {
+		return statusReason;
+	}
+	
+	public synchronized String getStatusNotes() {
+		return statusNotes;
+	}
+	
+	public synchronized long getStatusUpdateCount() {
+		return statusUpdateCount;
+	}
+	
+	public synchronized long getPassCount() {
+		return passCount;
+	}
+	
+	public synchronized long getFailCount() {
+		return failCount;
+	}
+	
+	public synchronized long getTotalProcessTimeSeconds() {
+		return totalProcessTimeSeconds;
+	}
+	
+	public synchronized String getLastFailReason() {
+		return lastFailReason;
+	}
+	
+	@Override
+	public synchronized String toString() {
+		return String.format("SimulatedStation(lineName=%s, stationName=%s, statusColor=%s, passCount=%s, failCount=%s)",
+				lineName, stationName, statusColor, passCount, failCount);
+	}
+	
+}
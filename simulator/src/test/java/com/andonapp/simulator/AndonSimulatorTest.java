@@ -0,0 +1,208 @@
+package com.andonapp.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.andonapp.client.DefaultAndonAppClient;
+import com.andonapp.client.exception.AndonBadRequestException;
+import com.andonapp.client.exception.AndonInternalErrorException;
+import com.andonapp.client.exception.AndonInvalidRequestException;
+import com.andonapp.client.exception.AndonResourceNotFoundException;
+import com.andonapp.client.exception.AndonUnauthorizedRequestException;
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+import okhttp3.OkHttpClient;
+
+public class AndonSimulatorTest {
+
+	private static final String API_TOKEN = "api-token";
+
+	private AndonSimulator simulator;
+
+	private DefaultAndonAppClient client;
+
+	@Before
+	public void before() throws IOException {
+		simulator = new AndonSimulator(42);
+		simulator.start();
+
+		client = new DefaultAndonAppClient("Demo", API_TOKEN,
+				new OkHttpClient.Builder().retryOnConnectionFailure(false).build());
+		client.setEndpoint(simulator.getEndpoint());
+	}
+
+	@After
+	public void after() throws IOException {
+		simulator.close();
+	}
+
+	@Test
+	public void shouldTrackReportsPerStation() throws Exception {
+		client.reportData(report("PASS", 100L));
+		client.reportData(report("PASS", 110L));
+		client.reportData(ReportDataRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.passResult("FAIL")
+				.failReason("Test Failure")
+				.processTimeSeconds(90L)
+				.build());
+
+		SimulatedStation station = simulator.getStation("line 1", "station 1");
+		assertEquals(2, station.getPassCount());
+		assertEquals(1, station.getFailCount());
+		assertEquals(300, station.getTotalProcessTimeSeconds());
+		assertEquals("Test Failure", station.getLastFailReason());
+		assertEquals(3, simulator.getOutcomeCount(Outcome.OK));
+	}
+
+	@Test
+	public void shouldAcceptCompressedReports() throws Exception {
+		client.setRequestCompressionThreshold(0);
+		client.reportData(ReportDataRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.passResult("FAIL")
+				.failReason("Leak")
+				.failNotes("channel 3 exceeded limit")
+				.processTimeSeconds(90L)
+				.build());
+
+		SimulatedStation station = simulator.getStation("line 1", "station 1");
+		assertEquals(1, station.getFailCount());
+		assertEquals("Leak", station.getLastFailReason());
+		assertEquals(1, simulator.getOutcomeCount(Outcome.OK));
+	}
+
+	@Test
+	public void shouldTrackStatusPerStation() throws Exception {
+		client.updateStationStatus(UpdateStationStatusRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.statusColor("RED")
+				.statusReason("Missing parts")
+				.build());
+
+		SimulatedStation station = simulator.getStation("line 1", "station 1");
+		assertEquals("RED", station.getStatusColor());
+		assertEquals("Missing parts", station.getStatusReason());
+		assertNull(simulator.getStation("line 1", "station 2"));
+	}
+
+	@Test
+	public void shouldRejectInvalidPassResult() throws Exception {
+		try {
+			client.reportData(report("PAS", 100L));
+			fail("no exception was thrown");
+		} catch (AndonInvalidRequestException e) {
+			assertEquals("'PAS' is not a valid pass result.", e.getMessage());
+		}
+	}
+
+	@Test
+	public void shouldRejectUnknownStationWhenStrict() throws Exception {
+		simulator.setStrictStations(true);
+		simulator.registerStation("line 1", "station 2");
+
+		try {
+			client.reportData(report("PASS", 100L));
+			fail("no exception was thrown");
+		} catch (AndonResourceNotFoundException e) {
+			assertEquals("Station not found.", e.getMessage());
+		}
+	}
+
+	@Test
+	public void shouldRejectWrongToken() throws Exception {
+		simulator.setApiToken("other-token");
+
+		try {
+			client.reportData(report("PASS", 100L));
+			fail("no exception was thrown");
+		} catch (AndonUnauthorizedRequestException e) {
+			assertEquals(1, simulator.getOutcomeCount(Outcome.UNAUTHORIZED));
+		}
+	}
+
+	@Test
+	public void shouldInjectErrorResponses() throws Exception {
+		simulator.setInternalErrorRate(1.0);
+
+		try {
+			client.reportData(report("PASS", 100L));
+			fail("no exception was thrown");
+		} catch (AndonInternalErrorException e) {
+			assertEquals("Simulated internal error.", e.getMessage());
+		}
+	}
+
+	@Test
+	public void shouldInjectSpringErrorResponses() throws Exception {
+		simulator.setSpringErrorRate(1.0);
+
+		try {
+			client.reportData(report("PASS", 100L));
+			fail("no exception was thrown");
+		} catch (AndonInternalErrorException e) {
+			assertEquals("Simulated failure", e.getMessage());
+			assertEquals(1, simulator.getOutcomeCount(Outcome.SPRING_ERROR));
+		}
+	}
+
+	@Test
+	public void shouldThrottleOverRate() throws Exception {
+		simulator.setThrottleRate(1);
+
+		client.reportData(report("PASS", 100L));
+		try {
+			client.reportData(report("PASS", 100L));
+			fail("no exception was thrown");
+		} catch (AndonBadRequestException e) {
+			assertEquals(1, simulator.getOutcomeCount(Outcome.THROTTLED));
+		}
+	}
+
+	@Test
+	public void shouldDropConnections() throws Exception {
+		simulator.setConnectionDropRate(1.0);
+
+		try {
+			client.reportData(report("PASS", 100L));
+			fail("no exception was thrown");
+		} catch (IOException e) {
+			assertEquals(1, simulator.getOutcomeCount(Outcome.DROPPED));
+			assertNull(simulator.getStation("line 1", "station 1"));
+		}
+	}
+
+	@Test
+	public void shouldDelayResponses() throws Exception {
+		simulator.setLatency(LatencyDistribution.fixed(200));
+
+		long start = System.nanoTime();
+		client.reportData(report("PASS", 100L));
+
+		assertTrue(System.nanoTime() - start >= 200_000_000L);
+		assertNotNull(simulator.getStation("line 1", "station 1"));
+	}
+
+	private ReportDataRequest report(String passResult, Long processTimeSeconds) {
+		return ReportDataRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.passResult(passResult)
+				.processTimeSeconds(processTimeSeconds)
+				.build();
+	}
+
+}
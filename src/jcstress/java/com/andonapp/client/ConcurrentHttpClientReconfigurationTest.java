@@ -0,0 +1,46 @@
+package com.andonapp.client;
+
+import java.time.Duration;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Changes that rebuild the HTTP client, such as a timeout and the HTTP version, must
+ * both end up in the client requests use.
+ */
+@JCStressTest
+@Outcome(id = "1500, 1", expect = Expect.ACCEPTABLE, desc = "Both changes took effect")
+@Outcome(id = "10000, 1", expect = Expect.FORBIDDEN, desc = "Timeout change was lost")
+@Outcome(id = "1500, 2", expect = Expect.FORBIDDEN, desc = "HTTP version change was lost")
+@State
+public class ConcurrentHttpClientReconfigurationTest {
+
+	private final DefaultAndonAppClient client = new DefaultAndonAppClient("Demo", "token",
+			new OkHttpClient());
+	
+	@Actor
+	public void changeTimeout() {
+		client.setReadTimeout(Duration.ofMillis(1500));
+	}
+	
+	@Actor
+	public void changeHttpMode() {
+		client.setHttpMode(HttpMode.HTTP_1_1);
+	}
+	
+	@Arbiter
+	public void inspect(II_Result result) {
+		ClientConfiguration configuration = client.configuration();
+		result.r1 = configuration.getHttpClient().readTimeoutMillis();
+		result.r2 = configuration.getHttpClient().protocols().size();
+	}
+	
+}
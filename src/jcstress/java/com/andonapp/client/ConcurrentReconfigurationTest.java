@@ -0,0 +1,44 @@
+package com.andonapp.client;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.LL_Result;
+
+/**
+ * Two threads changing different settings at once must both take effect. Each change
+ * copies the whole configuration, so without a compare-and-set one would be lost.
+ */
+@JCStressTest
+@Outcome(id = "relay.plant-1.local, Bearer new-token", expect = Expect.ACCEPTABLE,
+		desc = "Both changes took effect")
+@Outcome(id = "portal.andonapp.com, Bearer new-token", expect = Expect.FORBIDDEN,
+		desc = "Endpoint change was lost")
+@Outcome(id = "relay.plant-1.local, Bearer old-token", expect = Expect.FORBIDDEN,
+		desc = "Token rotation was lost")
+@State
+public class ConcurrentReconfigurationTest {
+
+	private final DefaultAndonAppClient client = new DefaultAndonAppClient("Demo", "old-token");
+	
+	@Actor
+	public void changeEndpoint() {
+		client.setEndpoint("https://relay.plant-1.local/public/api/v1");
+	}
+	
+	@Actor
+	public void rotateToken() {
+		client.setApiToken("new-token");
+	}
+	
+	@Arbiter
+	public void inspect(LL_Result result) {
+		ClientConfiguration configuration = client.configuration();
+		result.r1 = configuration.getEndpointUrl().host();
+		result.r2 = configuration.getAuthHeaderValue();
+	}
+	
+}
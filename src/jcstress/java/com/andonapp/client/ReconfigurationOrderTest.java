@@ -0,0 +1,42 @@
+package com.andonapp.client;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.LL_Result;
+
+/**
+ * A request that starts while the client moves to a new endpoint and then rotates its
+ * token must never pair the old endpoint with the new token. With plain fields it
+ * could, since nothing orders the two writes for the reading thread.
+ */
+@JCStressTest
+@Outcome(id = "portal.andonapp.com, Bearer old-token", expect = Expect.ACCEPTABLE,
+		desc = "Started before the endpoint changed")
+@Outcome(id = "relay.plant-1.local, Bearer old-token", expect = Expect.ACCEPTABLE_INTERESTING,
+		desc = "Started between the endpoint change and the token rotation")
+@Outcome(id = "relay.plant-1.local, Bearer new-token", expect = Expect.ACCEPTABLE,
+		desc = "Started after both changes")
+@Outcome(id = "portal.andonapp.com, Bearer new-token", expect = Expect.FORBIDDEN,
+		desc = "Saw the token rotation without the endpoint change before it")
+@State
+public class ReconfigurationOrderTest {
+
+	private final DefaultAndonAppClient client = new DefaultAndonAppClient("Demo", "old-token");
+	
+	@Actor
+	public void reconfigure() {
+		client.setEndpoint("https://relay.plant-1.local/public/api/v1");
+		client.setApiToken("new-token");
+	}
+	
+	@Actor
+	public void request(LL_Result result) {
+		ClientConfiguration configuration = client.configuration();
+		result.r1 = configuration.getEndpointUrl().host();
+		result.r2 = configuration.getAuthHeaderValue();
+	}
+	
+}
@@ -0,0 +1,109 @@
+package com.andonapp.client;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.andonapp.client.model.ReportDataRequest;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Compares HTTP/1.1 with multiplexed h2c when 64 threads report at once to a local
+ * {@link MockWebServer} that holds each response for a millisecond. Throughput and
+ * latency percentiles come from the two benchmark modes; the number of sockets the
+ * server accepted is printed at the end of each trial.
+ *
+ * <p>Run with {@code ./gradlew jmh}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class HttpModeBenchmark {
+
+	@Param({"HTTP_1_1", "H2C"})
+	public HttpMode mode;
+
+	@Param({"1"})
+	public int serverDelayMillis;
+
+	private final AtomicInteger sockets = new AtomicInteger();
+
+	private MockWebServer server;
+	private OkHttpClient httpClient;
+	private DefaultAndonAppClient client;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		sockets.set(0);
+		server = new MockWebServer();
+		server.setProtocols(Collections.singletonList(
+				mode == HttpMode.H2C ? Protocol.H2_PRIOR_KNOWLEDGE : Protocol.HTTP_1_1));
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				if (request.getSequenceNumber() == 0) {
+					sockets.incrementAndGet();
+				}
+				return new MockResponse()
+						.setResponseCode(200)
+						.setHeadersDelay(serverDelayMillis, TimeUnit.MILLISECONDS);
+			}
+		});
+		server.start();
+
+		// keep every HTTP/1.1 connection alive, so that mode isn't penalized for reconnecting
+		httpClient = new OkHttpClient.Builder()
+				.connectionPool(new ConnectionPool(128, 5, TimeUnit.MINUTES))
+				.build();
+		client = new DefaultAndonAppClient("Demo", "token", httpClient);
+		client.setEndpoint(server.url("/").toString());
+		client.setHttpMode(mode);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		System.out.println(String.format("%n%s: %,d sockets for %,d requests",
+				mode, sockets.get(), server.getRequestCount()));
+		httpClient.dispatcher().executorService().shutdown();
+		httpClient.connectionPool().evictAll();
+		server.shutdown();
+	}
+
+	@Benchmark
+	public void reportData() throws IOException {
+		client.reportData(ReportDataRequest.builder()
+				.lineName("Final Assembly 2")
+				.stationName("Leak Test 3")
+				.passResult("PASS")
+				.processTimeSeconds(74L)
+				.build());
+	}
+
+}
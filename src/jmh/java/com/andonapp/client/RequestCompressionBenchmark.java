@@ -0,0 +1,129 @@
+package com.andonapp.client;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.andonapp.client.model.ReportDataRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import okhttp3.RequestBody;
+import okio.Buffer;
+
+/**
+ * Measures the CPU cost of gzipping request bodies against the number of bytes it
+ * saves on the wire. The {@code wireBytes} and {@code rawBytes} counters reported
+ * alongside each score give the compression ratio for the payload.
+ *
+ * <p>Run with {@code ./gradlew jmh}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestCompressionBenchmark {
+
+	private static final String OPERATOR_NOTE = "Operator reported intermittent seal on fixture B, "
+			+ "re-seated part and re-ran leak test. ";
+
+	private static final String TEST_LOG_LINE = "2018-03-07T16:15:19.033 CH3 leak rate 0.00%d sccm "
+			+ "limit 0.005 sccm pressure 101.3 kPa temp 22.%d C RESULT %s\n";
+
+	/**
+	 * <ul>
+	 * <li>{@code pass}: a plain PASS report with no notes</li>
+	 * <li>{@code note}: a FAIL report with a short operator note</li>
+	 * <li>{@code log}: a FAIL report carrying a multi-kilobyte test log</li>
+	 * </ul>
+	 */
+	@Param({"pass", "note", "log"})
+	public String payload;
+
+	@Param({"1", "6"})
+	public int level;
+
+	private byte[] content;
+	private DeflaterPool deflaterPool;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Bytes {
+
+		public long rawBytes;
+		public long wireBytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			rawBytes = 0;
+			wireBytes = 0;
+		}
+
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		content = new ObjectMapper().writeValueAsBytes(createRequest());
+		deflaterPool = new DeflaterPool(level, 4);
+	}
+
+	@Benchmark
+	public Buffer identity(Bytes bytes) throws IOException {
+		Buffer sink = new Buffer();
+		RequestBody.create(DefaultAndonAppClient.JSON, content).writeTo(sink);
+		bytes.rawBytes += content.length;
+		bytes.wireBytes += sink.size();
+		return sink;
+	}
+
+	@Benchmark
+	public Buffer gzip(Bytes bytes) throws IOException {
+		Buffer sink = new Buffer();
+		new GzipRequestBody(DefaultAndonAppClient.JSON, content, deflaterPool).writeTo(sink);
+		bytes.rawBytes += content.length;
+		bytes.wireBytes += sink.size();
+		return sink;
+	}
+
+	private ReportDataRequest createRequest() {
+		ReportDataRequest.ReportDataRequestBuilder builder = ReportDataRequest.builder()
+				.orgName("Demo")
+				.lineName("Final Assembly 2")
+				.stationName("Leak Test 3")
+				.processTimeSeconds(74L);
+
+		switch (payload) {
+		case "pass":
+			return builder.passResult("PASS").build();
+		case "note":
+			return builder.passResult("FAIL")
+					.failReason("Leak Test Failure")
+					.failNotes(OPERATOR_NOTE)
+					.build();
+		default:
+			StringBuilder log = new StringBuilder(OPERATOR_NOTE);
+			for (int i = 0; i < 60; i++) {
+				log.append(String.format(TEST_LOG_LINE, i % 10, i % 7, i == 59 ? "FAIL" : "PASS"));
+			}
+			return builder.passResult("FAIL")
+					.failReason("Leak Test Failure")
+					.failNotes(log.toString())
+					.build();
+		}
+	}
+
+}
@@ -4,10 +4,13 @@ import java.io.IOException;
 
 import com.andonapp.client.exception.AndonAppException;
 import com.andonapp.client.exception.AndonBadRequestException;
+import com.andonapp.client.exception.AndonDeadlineExceededException;
 import com.andonapp.client.exception.AndonInternalErrorException;
 import com.andonapp.client.exception.AndonInvalidRequestException;
 import com.andonapp.client.exception.AndonResourceNotFoundException;
 import com.andonapp.client.exception.AndonUnauthorizedRequestException;
+import com.andonapp.client.model.BulkStatusUpdateRequest;
+import com.andonapp.client.model.BulkStatusUpdateResult;
 import com.andonapp.client.model.ReportDataRequest;
 import com.andonapp.client.model.UpdateStationStatusRequest;
 
@@ -53,7 +56,34 @@ public interface AndonAppClient {
 	 * @throws AndonUnauthorizedRequestException if authorization fails
 	 */
 	void reportData(ReportDataRequest request) throws IOException;
-
+	
+	/**
+	 * Reports the outcome of a process at a station to Andon, with per-call options
+	 * such as a deadline.
+	 * 
+	 * <p>The default implementation ignores the options and calls
+	 * {@link #reportData(ReportDataRequest)}.
+	 * 
+	 * <p>The following is an example usage: <pre> {@code
+	 *
+	 *   andonClient.reportData(request, CallOptions.withDeadline(Duration.ofSeconds(2)));
+	 * }</pre>
+	 * 
+	 * @param request ReportDataRequest
+	 * @param options CallOptions
+	 * @throws IOException if there are problems connecting to Andon
+	 * @throws AndonDeadlineExceededException if the call doesn't complete within its deadline
+	 * @throws AndonAppException if there is a general request failure
+	 * @throws AndonBadRequestException if there is something wrong with the request
+	 * @throws AndonInternalErrorException if there is a failure within Andon
+	 * @throws AndonInvalidRequestException if there are invalid request arguments
+	 * @throws AndonResourceNotFoundException if a referenced station can't be found
+	 * @throws AndonUnauthorizedRequestException if authorization fails
+	 */
+	default void reportData(ReportDataRequest request, CallOptions options) throws IOException {
+		reportData(request);
+	}
+	
 	/**
 	 * Changes the status of a station in Andon.
 	 * 
@@ -78,5 +108,69 @@ public interface AndonAppClient {
 	 * @throws AndonUnauthorizedRequestException if authorization fails
 	 */
 	void updateStationStatus(UpdateStationStatusRequest request) throws IOException;
-
-}
\ No newline at end of file
+	
+	/**
+	 * Changes the status of a station in Andon, with per-call options such as a deadline.
+	 * 
+	 * <p>The default implementation ignores the options and calls
+	 * {@link #updateStationStatus(UpdateStationStatusRequest)}.
+	 * 
+	 * <p>The following is an example usage: <pre> {@code
+	 *
+	 *   andonClient.updateStationStatus(request, CallOptions.withDeadline(Duration.ofMillis(800)));
+	 * }</pre>
+	 * 
+	 * @param request UpdateStationStatusRequest
+	 * @param options CallOptions
+	 * @throws IOException if there are problems connecting to Andon
+	 * @throws AndonDeadlineExceededException if the call doesn't complete within its deadline
+	 * @throws AndonAppException if there is a general request failure
+	 * @throws AndonBadRequestException if there is something wrong with the request
+	 * @throws AndonInternalErrorException if there is a failure within Andon
+	 * @throws AndonInvalidRequestException if there are invalid request arguments
+	 * @throws AndonResourceNotFoundException if a referenced station can't be found
+	 * @throws AndonUnauthorizedRequestException if authorization fails
+	 */
+	default void updateStationStatus(UpdateStationStatusRequest request, CallOptions options) throws IOException {
+		updateStationStatus(request);
+	}
+	
+	/**
+	 * Sets the same status on several stations of a line.
+	 * 
+	 * <p>The following is an example usage: <pre> {@code
+	 *
+	 *   BulkStatusUpdateResult result = andonClient.updateLineStatus(BulkStatusUpdateRequest.builder()
+	 *           .lineName("line 1")
+	 *           .stationNames(Arrays.asList("station 1", "station 2", "station 3"))
+	 *           .statusColor("RED")
+	 *           .statusReason("Line down")
+	 *           .build());
+	 * }</pre>
+	 * 
+	 * @param request BulkStatusUpdateRequest
+	 * @return the outcome for each station
+	 * @throws InterruptedException if interrupted while waiting for the updates
+	 */
+	default BulkStatusUpdateResult updateLineStatus(BulkStatusUpdateRequest request) throws InterruptedException {
+		return updateLineStatus(request, CallOptions.DEFAULT);
+	}
+	
+	/**
+	 * Sets the same status on several stations of a line, with per-call options. A
+	 * deadline covers the whole bulk update. Failures are reported per station in the
+	 * result rather than thrown.
+	 * 
+	 * <p>The default implementation updates one station after another.
+	 * 
+	 * @param request BulkStatusUpdateRequest
+	 * @param options CallOptions
+	 * @return the outcome for each station
+	 * @throws InterruptedException if interrupted while waiting for the updates
+	 */
+	default BulkStatusUpdateResult updateLineStatus(BulkStatusUpdateRequest request, CallOptions options)
+			throws InterruptedException {
+		return LineStatusFanOut.run(this, request, options, Runnable::run, 1);
+	}
+	
+}
@@ -0,0 +1,86 @@
+package com.andonapp.client;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Per-call settings that override the client's defaults.
+ * 
+ * <p>The following is an example usage: <pre> {@code
+ *
+ *   andonClient.updateStationStatus(request, CallOptions.builder()
+ *           .deadline(Duration.ofMillis(800))
+ *           .build());
+ * }</pre>
+ */
+@Builder
+@Getter
+@ToString
+public class CallOptions {
+
+	/**
+	 * Options that don't override anything.
+	 */
+	public static final CallOptions DEFAULT = CallOptions.builder().build();
+	
+	/**
+	 * Total time allowed for the call, including waiting for a connection, retries and
+	 * hedges, and the HTTP exchange itself. Hedged calls are run asynchronously, so for
+	 * them it also covers waiting in the HTTP client's dispatcher queue. When it expires
+	 * the underlying HTTP calls are cancelled. Null for no deadline.
+	 */
+	private final Duration deadline;
+	
+	/**
+	 * Overrides the HTTP client's connect timeout. Null to keep the client's.
+	 */
+	private final Duration connectTimeout;
+	
+	/**
+	 * Overrides the HTTP client's read timeout. Null to keep the client's.
+	 */
+	private final Duration readTimeout;
+	
+	/**
+	 * Overrides the HTTP client's write timeout. Null to keep the client's.
+	 */
+	private final Duration writeTimeout;
+	
+	/**
+	 * Creates options with only a deadline.
+	 * 
+	 * @param deadline total time allowed for the call
+	 * @return call options
+	 */
+	public static CallOptions withDeadline(Duration deadline) {
+		return CallOptions.builder().deadline(deadline).build();
+	}
+	
+	/**
+	 * Returns these options with the deadline reduced by the time elapsed since the
+	 * given {@link System#nanoTime()}, or null if the deadline has passed.
+	 */
+	CallOptions remainingSince(long startNanos) {
+		if (deadline == null) {
+			return this;
+		}
+		long remainingNanos = deadline.toNanos() - (System.nanoTime() - startNanos);
+		if (remainingNanos <= 0) {
+			return null;
+		}
+		return CallOptions.builder()
+				.deadline(Duration.ofNanos(remainingNanos))
+				.connectTimeout(connectTimeout)
+				.readTimeout(readTimeout)
+				.writeTimeout(writeTimeout)
+				.build();
+	}
+	
+	boolean overridesTimeouts() {
+		return connectTimeout != null || readTimeout != null || writeTimeout != null;
+	}
+	
+}
@@ -0,0 +1,161 @@
+package com.andonapp.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+/**
+ * Runs one or more copies of a request asynchronously and completes with the first
+ * response to arrive. The remaining calls are cancelled, and any response that arrives
+ * after the race is decided is closed. The race only fails once every call started so
+ * far has failed.
+ */
+final class CallRace implements Callback {
+
+	private final CompletableFuture<Response> winner = new CompletableFuture<>();
+	private final List<Call> calls = new ArrayList<>(2);
+	
+	private int pending;
+	private IOException failure;
+	private boolean cancelled;
+	
+	/**
+	 * Enqueues another call in the race, unless the race is already decided or
+	 * cancelled.
+	 * 
+	 * @param call call to start
+	 * @return true if the call was started
+	 */
+	boolean start(Call call) {
+		synchronized (this) {
+			if (winner.isDone() || cancelled) {
+				return false;
+			}
+			calls.add(call);
+			pending++;
+		}
+		call.enqueue(this);
+		return true;
+	}
+	
+	/**
+	 * Waits up to the given time for the race to be decided.
+	 * 
+	 * @param timeoutNanos time to wait
+	 * @return the winning response, or null if no call has completed yet
+	 * @throws IOException if every call failed
+	 */
+	Response await(long timeoutNanos) throws IOException {
+		try {
+			return unwrap(() -> winner.get(timeoutNanos, TimeUnit.NANOSECONDS));
+		} catch (TimeoutException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Waits for the race to be decided.
+	 * 
+	 * @return the winning response
+	 * @throws IOException if every call failed
+	 */
+	Response await() throws IOException {
+		try {
+			return unwrap(winner::get);
+		} catch (TimeoutException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Cancels every call in the race and prevents new ones from starting.
+	 */
+	void cancel() {
+		synchronized (this) {
+			cancelled = true;
+		}
+		for (Call call : snapshotCalls()) {
+			call.cancel();
+		}
+	}
+	
+	/**
+	 * Cancels the race when nobody will wait for it any more. A response that won the
+	 * race but wasn't returned is closed, and so is any that arrives later.
+	 */
+	private void abandon(IOException reason) {
+		cancel();
+		winner.completeExceptionally(reason);
+		winner.thenAccept(Response::close);
+	}
+	
+	@Override
+	public void onResponse(Call call, Response response) {
+		if (winner.complete(response)) {
+			for (Call other : snapshotCalls()) {
+				if (other != call) {
+					other.cancel();
+				}
+			}
+		} else {
+			response.close();
+		}
+	}
+	
+	@Override
+	public void onFailure(Call call, IOException e) {
+		IOException lastFailure;
+		synchronized (this) {
+			pending--;
+			if (failure == null) {
+				failure = e;
+			} else if (failure != e) {
+				failure.addSuppressed(e);
+			}
+			if (pending > 0) {
+				return;
+			}
+			lastFailure = failure;
+		}
+		winner.completeExceptionally(lastFailure);
+	}
+	
+	private synchronized List<Call> snapshotCalls() {
+		return new ArrayList<>(calls);
+	}
+	
+	private Response unwrap(Waiter waiter) throws IOException, TimeoutException {
+		try {
+			return waiter.await();
+		} catch (InterruptedException e) {
+			InterruptedIOException interrupted = new InterruptedIOException("interrupted while waiting for response");
+			abandon(interrupted);
+			Thread.currentThread().interrupt();
+			throw interrupted;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+	
+	@FunctionalInterface
+	private interface Waiter {
+		Response await() throws InterruptedException, ExecutionException, TimeoutException;
+	}
+	
+}
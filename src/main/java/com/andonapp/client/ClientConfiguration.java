@@ -0,0 +1,54 @@
+package com.andonapp.client;
+
+import com.andonapp.client.journal.EventJournal;
+import com.andonapp.client.stats.StationStatistics;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+/**
+ * Everything about a {@link DefaultAndonAppClient} that can be changed while it's in use.
+ * A configuration is never modified: the client swaps in a new one for each change, and
+ * each request reads the current one once, so it never sees half of a change.
+ * 
+ * <p>Only reading the configuration is lock-free. Some of the components it holds
+ * synchronize internally when they're used: the {@link EndpointSelector} locks each
+ * endpoint's state to pick and score it, and the {@link EventJournal} locks around
+ * every record it appends.
+ */
+@Builder(toBuilder = true)
+@Getter
+final class ClientConfiguration {
+
+	/**
+	 * HTTP client to use, or null for the shared default client.
+	 */
+	private final OkHttpClient httpClient;
+	
+	private final String orgName;
+	
+	private final String authHeaderValue;
+	
+	/**
+	 * Endpoint requests are made to, unless an endpoint selector is set.
+	 */
+	private final HttpUrl endpointUrl;
+	
+	private final EndpointSelector endpointSelector;
+	
+	private final int compressionThreshold;
+	
+	private final Hedger hedger;
+	
+	private final StationStatistics statistics;
+	
+	private final EventJournal journal;
+	
+	private final DeduplicationWindow deduplicationWindow;
+	
+	private final int bulkParallelism;
+	
+}
@@ -0,0 +1,112 @@
+package com.andonapp.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.andonapp.client.exception.AndonDeadlineExceededException;
+
+/**
+ * Point in time by which a call must complete. Calls registered with
+ * {@link #cancelOnExpiry(Runnable)} are cancelled by a shared watchdog thread when the
+ * deadline passes; closing the deadline disarms the watchdog.
+ * 
+ * <p>A deadline is owned by the thread making the call and isn't thread safe.
+ */
+final class Deadline implements Closeable {
+
+	static final Deadline NONE = new Deadline(null, 0);
+	
+	private final Duration timeout;
+	private final long expiresAtNanos;
+	private final List<ScheduledFuture<?>> timers;
+	
+	private Deadline(Duration timeout, long expiresAtNanos) {
+		this.timeout = timeout;
+		this.expiresAtNanos = expiresAtNanos;
+		this.timers = timeout == null ? null : new ArrayList<>(2);
+	}
+	
+	/**
+	 * Starts a deadline that expires after the given time from now.
+	 * 
+	 * @param timeout time allowed, or null for no deadline
+	 * @return deadline
+	 */
+	static Deadline start(Duration timeout) {
+		if (timeout == null) {
+			return NONE;
+		}
+		if (timeout.isNegative() || timeout.isZero()) {
+			throw new IllegalArgumentException("deadline must be positive");
+		}
+		return new Deadline(timeout, System.nanoTime() + timeout.toNanos());
+	}
+	
+	boolean isSet() {
+		return timeout != null;
+	}
+	
+	long remainingNanos() {
+		return isSet() ? Math.max(0, expiresAtNanos - System.nanoTime()) : Long.MAX_VALUE;
+	}
+	
+	boolean isExpired() {
+		return isSet() && expiresAtNanos - System.nanoTime() <= 0;
+	}
+	
+	/**
+	 * Runs the given cancellation when the deadline expires, or immediately if it
+	 * already has.
+	 */
+	void cancelOnExpiry(Runnable cancel) {
+		if (!isSet()) {
+			return;
+		}
+		long remaining = expiresAtNanos - System.nanoTime();
+		if (remaining <= 0) {
+			cancel.run();
+		} else {
+			timers.add(Watchdog.EXECUTOR.schedule(cancel, remaining, TimeUnit.NANOSECONDS));
+		}
+	}
+	
+	AndonDeadlineExceededException exceeded(IOException cause) {
+		return new AndonDeadlineExceededException(
+				String.format("Deadline of %sms exceeded", timeout.toMillis()), cause);
+	}
+	
+	@Override
+	public void close() {
+		if (isSet()) {
+			for (ScheduledFuture<?> timer : timers) {
+				timer.cancel(false);
+			}
+		}
+	}
+	
+	/**
+	 * Holder for the watchdog, so the thread is only started once a deadline is used.
+	 */
+	private static final class Watchdog {
+		
+		static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+		
+		private static ScheduledThreadPoolExecutor createExecutor() {
+			ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+				Thread thread = new Thread(runnable, "andon-deadline-watchdog");
+				thread.setDaemon(true);
+				return thread;
+			});
+			executor.setRemoveOnCancelPolicy(true);
+			return executor;
+		}
+		
+	}
+	
+}
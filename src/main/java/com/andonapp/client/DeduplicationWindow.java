@@ -0,0 +1,242 @@
+package com.andonapp.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the idempotency keys of recent submissions so that a client can drop a
+ * resubmission of the same event before it is sent. The window is split into buckets
+ * that age out one at a time, each an exact concurrent map of keys, so submissions
+ * with different keys don't contend with each other.
+ * 
+ * <p>Only keys set on a request by the caller are remembered. A request without one
+ * is sent with a random key and is never treated as a duplicate, so deduplication
+ * needs a key that identifies the event, such as the PLC name and cycle number.
+ * 
+ * <p>A resubmission made while the first submission is still in flight isn't dropped
+ * silently, since the first may yet fail; the client rejects it instead.
+ * 
+ * <p>Memory is bounded by the bucket count and the maximum number of keys per bucket.
+ * Once the current bucket is full, further keys aren't remembered until the next one
+ * starts, so resubmissions of them are sent rather than risk dropping new events.
+ * 
+ * <p>The following is an example usage: <pre> {@code
+ * 
+ *   andonClient.setDeduplicationWindow(new DeduplicationWindow());
+ *   andonClient.reportData(ReportDataRequest.builder()
+ *           ...
+ *           .idempotencyKey(plcName + ":" + cycleId)
+ *           .build());
+ * }</pre>
+ */
+public class DeduplicationWindow {
+
+	/**
+	 * Default window of ten minutes.
+	 */
+	public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(10);
+	
+	/**
+	 * Default number of buckets the window is split into.
+	 */
+	public static final int DEFAULT_BUCKET_COUNT = 5;
+	
+	/**
+	 * Default maximum number of keys remembered per bucket.
+	 */
+	public static final int DEFAULT_MAX_KEYS_PER_BUCKET = 20_000;
+	
+	/**
+	 * Outcome of looking up a key.
+	 */
+	enum Admission {
+		
+		/**
+		 * The key is new and is now remembered as in flight.
+		 */
+		NEW,
+		
+		/**
+		 * The key is new, but the current bucket is full so it isn't remembered.
+		 */
+		UNTRACKED,
+		
+		/**
+		 * A submission with the key is still in flight.
+		 */
+		IN_FLIGHT,
+		
+		/**
+		 * A submission with the key completed within the window.
+		 */
+		DUPLICATE
+		
+	}
+	
+	private final Clock clock;
+	private final long bucketMillis;
+	private final int maxKeysPerBucket;
+	private final AtomicReferenceArray<Bucket> buckets;
+	
+	private final LongAdder duplicates = new LongAdder();
+	private final LongAdder untracked = new LongAdder();
+	
+	/**
+	 * Constructs a window with the default length and limits.
+	 */
+	public DeduplicationWindow() {
+		this(DEFAULT_WINDOW, DEFAULT_BUCKET_COUNT, DEFAULT_MAX_KEYS_PER_BUCKET, Clock.systemUTC());
+	}
+	
+	/**
+	 * Constructs a window with a custom length and limits.
+	 * 
+	 * @param window how long keys are remembered for, at least
+	 * @param bucketCount number of buckets the window is split into
+	 * @param maxKeysPerBucket maximum number of keys remembered per bucket
+	 * @param clock clock to read the time from
+	 */
+	public DeduplicationWindow(Duration window, int bucketCount, int maxKeysPerBucket, Clock clock) {
+		if (window == null || window.isNegative() || window.isZero()) {
+			throw new IllegalArgumentException("window must be positive");
+		}
+		if (bucketCount < 1 || window.toMillis() < bucketCount) {
+			throw new IllegalArgumentException("bucketCount must be between 1 and the window in millis");
+		}
+		if (maxKeysPerBucket < 1) {
+			throw new IllegalArgumentException("maxKeysPerBucket must be at least 1");
+		}
+		if (clock == null) {
+			throw new IllegalArgumentException("clock cannot be null");
+		}
+		this.clock = clock;
+		this.bucketMillis = window.toMillis() / bucketCount;
+		this.maxKeysPerBucket = maxKeysPerBucket;
+		// one extra bucket so a key is kept for a full window after the current bucket started
+		this.buckets = new AtomicReferenceArray<>(bucketCount + 1);
+	}
+	
+	/**
+	 * Returns how many submissions were dropped as duplicates of completed ones.
+	 * 
+	 * @return count
+	 */
+	public long getDuplicateCount() {
+		return duplicates.sum();
+	}
+	
+	/**
+	 * Returns how many keys weren't remembered because their bucket was full.
+	 * 
+	 * @return count
+	 */
+	public long getUntrackedCount() {
+		return untracked.sum();
+	}
+	
+	/**
+	 * Remembers a key as in flight unless it was already seen within the window. A
+	 * {@link Admission#NEW} key must later be passed to {@link #complete(String)} or
+	 * {@link #forget(String)}.
+	 * 
+	 * @return whether the submission should be sent
+	 */
+	Admission tryAcquire(String key) {
+		long epoch = clock.millis() / bucketMillis;
+		Admission seen = lookup(key, epoch);
+		if (seen != null) {
+			return seen;
+		}
+		
+		Bucket current = currentBucket(epoch);
+		if (current.keys.size() >= maxKeysPerBucket) {
+			untracked.increment();
+			return Admission.UNTRACKED;
+		}
+		Boolean completed = current.keys.putIfAbsent(key, Boolean.FALSE);
+		if (completed == null) {
+			return Admission.NEW;
+		}
+		return seen(completed);
+	}
+	
+	/**
+	 * Marks the submission with a key as completed, so resubmissions are dropped.
+	 */
+	void complete(String key) {
+		for (int i = 0; i < buckets.length(); i++) {
+			Bucket bucket = buckets.get(i);
+			if (bucket != null) {
+				bucket.keys.replace(key, Boolean.FALSE, Boolean.TRUE);
+			}
+		}
+	}
+	
+	/**
+	 * Forgets a key, so that a submission that failed can be retried.
+	 */
+	void forget(String key) {
+		for (int i = 0; i < buckets.length(); i++) {
+			Bucket bucket = buckets.get(i);
+			if (bucket != null) {
+				bucket.keys.remove(key);
+			}
+		}
+	}
+	
+	private Admission lookup(String key, long epoch) {
+		long oldest = epoch - buckets.length() + 1;
+		for (int i = 0; i < buckets.length(); i++) {
+			Bucket bucket = buckets.get(i);
+			if (bucket != null && bucket.epoch >= oldest) {
+				Boolean completed = bucket.keys.get(key);
+				if (completed != null) {
+					return seen(completed);
+				}
+			}
+		}
+		return null;
+	}
+	
+	private Admission seen(boolean completed) {
+		if (!completed) {
+			return Admission.IN_FLIGHT;
+		}
+		duplicates.increment();
+		return Admission.DUPLICATE;
+	}
+	
+	private Bucket currentBucket(long epoch) {
+		int slot = (int) (epoch % buckets.length());
+		while (true) {
+			Bucket bucket = buckets.get(slot);
+			if (bucket != null && bucket.epoch >= epoch) {
+				return bucket;
+			}
+			Bucket next = new Bucket(epoch);
+			if (buckets.compareAndSet(slot, bucket, next)) {
+				return next;
+			}
+		}
+	}
+	
+	private static final class Bucket {
+		
+		final long epoch;
+		
+		/**
+		 * Whether the submission with each key has completed.
+		 */
+		final ConcurrentMap<String, Boolean> keys = new ConcurrentHashMap<>();
+		
+		Bucket(long epoch) {
+			this.epoch = epoch;
+		}
+		
+	}
+	
+}
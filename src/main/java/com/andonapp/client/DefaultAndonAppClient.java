@@ -1,14 +1,34 @@
 package com.andonapp.client;
 
 import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import java.util.zip.Deflater;
 
+import com.andonapp.client.diagnostics.SlowRequestSampler;
 import com.andonapp.client.exception.*;
+import com.andonapp.client.journal.EventJournal;
+import com.andonapp.client.model.BulkStatusUpdateRequest;
+import com.andonapp.client.model.BulkStatusUpdateResult;
 import com.andonapp.client.model.ErrorResponse;
 import com.andonapp.client.model.ReportDataRequest;
 import com.andonapp.client.model.SpringErrorResponse;
 import com.andonapp.client.model.UpdateStationStatusRequest;
+import com.andonapp.client.stats.StationStatistics;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import okhttp3.Call;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -30,32 +50,65 @@ import okhttp3.Response;
  *           .processTimeSeconds(120L)
  *           .build());
  * }</pre>
+ * 
+ * <p>The client is thread-safe, and can be reconfigured while requests are being made.
+ * Each request uses the configuration as it was when the request started. Reading it
+ * takes no locks, but an endpoint selector and an event journal, when set, synchronize
+ * internally for each request that uses them.
  */
 public class DefaultAndonAppClient implements AndonAppClient {
 
 	private static final String AUTHORIZATION_HEADER = "Authorization";
 	private static final String BEARER = "Bearer ";
+	private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+	private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+	private static final String GZIP = "gzip";
 	public static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
 	
-	private static final String DEFAULT_ENDPOINT = "https://portal.andonapp.com/public/api/v1";
+	/**
+	 * Compression threshold that disables request compression.
+	 */
+	public static final int COMPRESSION_DISABLED = -1;
+	
+	private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 64;
+	private static final int DEFAULT_BULK_PARALLELISM = 64;
+	
+	private static final DeflaterPool DEFLATER_POOL = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, 16);
+	
+	/**
+	 * Endpoint of the Andon cloud portal, which requests are made to by default.
+	 */
+	public static final String DEFAULT_ENDPOINT = "https://portal.andonapp.com/public/api/v1";
+	
 	private static final String REPORT_DATA_PATH = "data/report";
 	private static final String UPDATE_STATUS_PATH = "station/update";
 	
-	private OkHttpClient httpClient;
-	private ObjectMapper objectMapper;
+	private final AtomicReference<ClientConfiguration> configuration;
 	
-	private String orgName;
-	private HttpUrl endpointUrl;
-	private String authHeaderValue;
+	/**
+	 * Runs the station updates of bulk status updates, on up to the bulk parallelism
+	 * threads. Threads are started on demand and stop when idle.
+	 */
+	private final ThreadPoolExecutor bulkExecutor = createBulkExecutor(DEFAULT_BULK_PARALLELISM);
 	
 	/**
-	 * Constructs a new Andon client using a default HTTP client.
+	 * Constructs a new Andon client using a default HTTP client. The default HTTP
+	 * client is shared by every client constructed this way, and isn't created until
+	 * the first request.
 	 * 
 	 * @param orgName name of the organization
 	 * @param apiToken API token for the organization
 	 */
 	public DefaultAndonAppClient (String orgName, String apiToken) {
-		this(orgName, apiToken, new OkHttpClient());
+		Precondition.checkNotBlank(orgName, "orgName cannot be blank");
+		Precondition.checkNotBlank(apiToken, "apiToken cannot be blank");
+		this.configuration = new AtomicReference<>(ClientConfiguration.builder()
+				.orgName(orgName)
+				.authHeaderValue(BEARER + apiToken)
+				.endpointUrl(HttpUrl.parse(DEFAULT_ENDPOINT))
+				.compressionThreshold(COMPRESSION_DISABLED)
+				.bulkParallelism(DEFAULT_BULK_PARALLELISM)
+				.build());
 	}
 	
 	/**
@@ -66,22 +119,231 @@ public class DefaultAndonAppClient implements AndonAppClient {
 	 * @param httpClient client to use to connect to Andon
 	 */
 	public DefaultAndonAppClient (String orgName, String apiToken, OkHttpClient httpClient) {
-		this.orgName = Precondition.checkNotBlank(orgName, "orgName cannot be blank");
-		Precondition.checkNotBlank(apiToken, "apiToken cannot be blank");
-		this.authHeaderValue = BEARER + apiToken;
-		this.httpClient = Precondition.checkNotNull(httpClient, "httpClient cannot be null");
-		this.objectMapper = new ObjectMapper();
-		this.endpointUrl = HttpUrl.parse(DEFAULT_ENDPOINT);
+		this(orgName, apiToken);
+		Precondition.checkNotNull(httpClient, "httpClient cannot be null");
+		reconfigure(builder -> builder.httpClient(httpClient));
 	}
 	
 	/**
-	 * Changes the endpoint that requests are made to.
+	 * Changes the endpoint that requests are made to. Replaces any endpoints set with
+	 * {@link #setEndpoints(List)}.
 	 * 
 	 * @param endpoint Andon endpoint to connect to
 	 */
 	public void setEndpoint(String endpoint) {
 		Precondition.checkNotBlank(endpoint, "endpoint cannot be blank");
-		this.endpointUrl = HttpUrl.parse(endpoint);
+		HttpUrl endpointUrl = HttpUrl.parse(endpoint);
+		reconfigure(builder -> builder
+				.endpointUrl(endpointUrl)
+				.endpointSelector(null));
+	}
+	
+	/**
+	 * Spreads requests over several endpoints, such as a relay at the plant and the
+	 * cloud portal, with the default {@link FailoverPolicy}.
+	 * 
+	 * @param endpoints endpoints to connect to
+	 * @see #setEndpoints(List, FailoverPolicy)
+	 */
+	public void setEndpoints(List<Endpoint> endpoints) {
+		setEndpoints(endpoints, FailoverPolicy.builder().build());
+	}
+	
+	/**
+	 * Spreads requests over several endpoints, such as a relay at the plant and the
+	 * cloud portal. Each request goes to the healthy endpoint with the lowest latency
+	 * relative to its weight. If the endpoint can't be reached or answers with a 503,
+	 * the request is retried on the next endpoint under the same idempotency key, within
+	 * the call's deadline. Status updates are also retried after a timeout or a 502 or
+	 * 504, when the endpoint may have processed them. Reports aren't, since Andon would
+	 * count them twice, unless {@link FailoverPolicy#isEndpointsDeduplicate()} is set.
+	 * 
+	 * @param endpoints endpoints to connect to
+	 * @param policy when to eject and re-admit endpoints
+	 */
+	public void setEndpoints(List<Endpoint> endpoints, FailoverPolicy policy) {
+		EndpointSelector selector = new EndpointSelector(endpoints, policy);
+		reconfigure(builder -> builder
+				.endpointUrl(selector.getTargets().get(0).getUrl())
+				.endpointSelector(selector));
+	}
+	
+	/**
+	 * Returns how many times a request was retried on another endpoint.
+	 * 
+	 * @return failover count, 0 if only one endpoint is set
+	 */
+	public long getFailoverCount() {
+		EndpointSelector selector = configuration.get().getEndpointSelector();
+		return selector == null ? 0 : selector.getFailoverCount();
+	}
+	
+	/**
+	 * Replaces the API token sent with each request, so a token can be rotated without
+	 * recreating the client. Requests already in flight finish with the old token.
+	 * 
+	 * @param apiToken API token for the organization
+	 */
+	public void setApiToken(String apiToken) {
+		Precondition.checkNotBlank(apiToken, "apiToken cannot be blank");
+		reconfigure(builder -> builder.authHeaderValue(BEARER + apiToken));
+	}
+	
+	/**
+	 * Sets the HTTP client's connect timeout for every request. {@link CallOptions} can
+	 * still override it for a single call.
+	 * 
+	 * @param timeout connect timeout, or zero for none
+	 */
+	public void setConnectTimeout(Duration timeout) {
+		long millis = timeoutMillis(timeout);
+		reconfigureHttpClient(builder -> builder.connectTimeout(millis, TimeUnit.MILLISECONDS));
+	}
+	
+	/**
+	 * Sets the HTTP client's read timeout for every request. {@link CallOptions} can
+	 * still override it for a single call.
+	 * 
+	 * @param timeout read timeout, or zero for none
+	 */
+	public void setReadTimeout(Duration timeout) {
+		long millis = timeoutMillis(timeout);
+		reconfigureHttpClient(builder -> builder.readTimeout(millis, TimeUnit.MILLISECONDS));
+	}
+	
+	/**
+	 * Sets the HTTP client's write timeout for every request. {@link CallOptions} can
+	 * still override it for a single call.
+	 * 
+	 * @param timeout write timeout, or zero for none
+	 */
+	public void setWriteTimeout(Duration timeout) {
+		long millis = timeoutMillis(timeout);
+		reconfigureHttpClient(builder -> builder.writeTimeout(millis, TimeUnit.MILLISECONDS));
+	}
+	
+	/**
+	 * Sets the HTTP version used to talk to Andon. The default client negotiates HTTP/2
+	 * over TLS when the endpoint offers it, the same as {@link HttpMode#HTTP_2}; a custom
+	 * HTTP client keeps its own setting unless this is called.
+	 * 
+	 * <p>Under HTTP/2 concurrent requests share one connection per host, so a hedge
+	 * travels over the same connection as the request it hedges. It still helps with a
+	 * slow server, but not with a stalled connection.
+	 * 
+	 * @param mode HTTP version
+	 */
+	public void setHttpMode(HttpMode mode) {
+		Precondition.checkNotNull(mode, "mode cannot be null");
+		reconfigureHttpClient(builder -> builder.protocols(mode.protocols()));
+	}
+	
+	/**
+	 * Enables gzip compression of request bodies that are at least the given number
+	 * of bytes once serialized. Smaller bodies are sent uncompressed, because the gzip
+	 * framing outweighs the savings. Compression is disabled by default.
+	 * 
+	 * <p>Only enable this if the endpoint accepts {@code Content-Encoding: gzip} requests.
+	 * 
+	 * @param thresholdBytes minimum body size to compress, or {@link #COMPRESSION_DISABLED}
+	 */
+	public void setRequestCompressionThreshold(int thresholdBytes) {
+		if (thresholdBytes < 0 && thresholdBytes != COMPRESSION_DISABLED) {
+			throw new IllegalArgumentException("thresholdBytes cannot be negative");
+		}
+		reconfigure(builder -> builder.compressionThreshold(thresholdBytes));
+	}
+	
+	/**
+	 * Enables hedging of station status updates. Status updates are idempotent, so a
+	 * duplicate copy is harmless, which is not true of reports; reports are never hedged.
+	 * Hedging is disabled by default.
+	 * 
+	 * <p>Hedged updates are executed asynchronously, so they are subject to the limits of
+	 * the HTTP client's {@link Dispatcher}. When supplying a custom HTTP client, make sure
+	 * its maximum requests per host leaves room for the hedges.
+	 * 
+	 * @param policy hedging settings, or null to disable hedging
+	 */
+	public void setHedgingPolicy(HedgingPolicy policy) {
+		Hedger hedger = policy == null ? null : new Hedger(policy);
+		reconfigure(builder -> builder.hedger(hedger));
+	}
+	
+	/**
+	 * Returns how many hedges have been sent under the current hedging policy.
+	 * 
+	 * @return hedge count, 0 if hedging is disabled
+	 */
+	public long getHedgeCount() {
+		Hedger hedger = configuration.get().getHedger();
+		return hedger == null ? 0 : hedger.getHedgeCount();
+	}
+	
+	/**
+	 * Feeds every report that Andon accepts into the given statistics.
+	 * 
+	 * @param statistics statistics to update, or null to stop updating them
+	 */
+	public void setStatistics(StationStatistics statistics) {
+		reconfigure(builder -> builder.statistics(statistics));
+	}
+	
+	/**
+	 * Records every submitted request, and every one that Andon accepts, in the given
+	 * journal, along with the idempotency key set on it, if any. A request isn't sent if
+	 * it can't be journaled.
+	 * 
+	 * @param journal journal to append to, or null to stop journaling
+	 */
+	public void setJournal(EventJournal journal) {
+		reconfigure(builder -> builder.journal(journal));
+	}
+	
+	/**
+	 * Times every HTTP call phase by phase with the given sampler, which keeps the
+	 * slowest ones for diagnosis. Replaces any event listener set on a custom HTTP client.
+	 * 
+	 * @param sampler sampler to time calls with, or null to stop timing them
+	 */
+	public void setSlowRequestSampler(SlowRequestSampler sampler) {
+		EventListener.Factory factory = sampler != null ? sampler : call -> EventListener.NONE;
+		reconfigureHttpClient(builder -> builder.eventListenerFactory(factory));
+	}
+	
+	/**
+	 * Drops a report or status update whose idempotency key was already submitted
+	 * within the given window, instead of sending it again. A request whose key is
+	 * still in flight is rejected with {@link AndonRequestInFlightException}. Requests
+	 * without an idempotency key are sent with a random one, so they're never dropped.
+	 * 
+	 * @param window window to check keys against, or null to send every request
+	 */
+	public void setDeduplicationWindow(DeduplicationWindow window) {
+		reconfigure(builder -> builder.deduplicationWindow(window));
+	}
+	
+	/**
+	 * Sets how many station updates of a bulk status update are sent at once.
+	 * Defaults to 64.
+	 * 
+	 * @param parallelism maximum number of concurrent updates
+	 */
+	public void setBulkParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		synchronized (bulkExecutor) {
+			// the core size can't exceed the maximum at any point
+			if (parallelism > bulkExecutor.getMaximumPoolSize()) {
+				bulkExecutor.setMaximumPoolSize(parallelism);
+				bulkExecutor.setCorePoolSize(parallelism);
+			} else {
+				bulkExecutor.setCorePoolSize(parallelism);
+				bulkExecutor.setMaximumPoolSize(parallelism);
+			}
+		}
+		reconfigure(builder -> builder.bulkParallelism(parallelism));
 	}
 	
 	/**
@@ -89,8 +351,28 @@ public class DefaultAndonAppClient implements AndonAppClient {
 	 */
 	@Override
 	public void reportData(ReportDataRequest request) throws IOException {
-		request.setOrgName(orgName);
-		executeRequest(request, REPORT_DATA_PATH);
+		reportData(request, CallOptions.DEFAULT);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reportData(ReportDataRequest request, CallOptions options) throws IOException {
+		Precondition.checkNotNull(request, "request cannot be null");
+		ClientConfiguration config = configuration.get();
+		ReportDataRequest sent = request.toBuilder()
+				.orgName(config.getOrgName())
+				.build();
+		
+		String key = request.getIdempotencyKey();
+		if (!submit(config, sent, idempotencyKey(key), key != null, REPORT_DATA_PATH, false, options)) {
+			return;
+		}
+		
+		if (config.getStatistics() != null) {
+			config.getStatistics().record(sent);
+		}
 	}
 
 	/**
@@ -98,37 +380,263 @@ public class DefaultAndonAppClient implements AndonAppClient {
 	 */
 	@Override
 	public void updateStationStatus(UpdateStationStatusRequest request) throws IOException {
-		request.setOrgName(orgName);
-		executeRequest(request, UPDATE_STATUS_PATH);
+		updateStationStatus(request, CallOptions.DEFAULT);
 	}
 
-	private void executeRequest(Object request, String path) throws IOException {
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void updateStationStatus(UpdateStationStatusRequest request, CallOptions options) throws IOException {
 		Precondition.checkNotNull(request, "request cannot be null");
-		String requestString = objectMapper.writeValueAsString(request);
-		RequestBody body = RequestBody.create(JSON, requestString);
+		ClientConfiguration config = configuration.get();
+		UpdateStationStatusRequest sent = request.toBuilder()
+				.orgName(config.getOrgName())
+				.build();
+		String key = request.getIdempotencyKey();
+		submit(config, sent, idempotencyKey(key), key != null, UPDATE_STATUS_PATH, true, options);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>Updates are sent concurrently over the HTTP client's connection pool, so a
+	 * whole line takes about as long as its slowest station. They run on the client's
+	 * own threads, never the HTTP client's dispatcher threads, so a bulk update can't
+	 * starve hedged status updates of them.
+	 */
+	@Override
+	public BulkStatusUpdateResult updateLineStatus(BulkStatusUpdateRequest request, CallOptions options)
+			throws InterruptedException {
+		ClientConfiguration config = configuration.get();
+		return LineStatusFanOut.run(this, request, options, bulkExecutor, config.getBulkParallelism());
+	}
+
+	/**
+	 * Returns the caller's idempotency key, or a random one if none was given.
+	 */
+	private static String idempotencyKey(String key) {
+		return key != null ? key : UUID.randomUUID().toString();
+	}
+	
+	/**
+	 * Sends a request unless it's a duplicate, journaling it if enabled. The request
+	 * only carries the caller's key, so a random key isn't journaled.
+	 * 
+	 * @param idempotencyKey key to send the request with
+	 * @param deduplicate whether the key was given by the caller, and so can repeat
+	 * @return true if the request was sent, false if it was dropped as a duplicate
+	 * @throws AndonRequestInFlightException if a request with the same key is in flight
+	 */
+	private boolean submit(ClientConfiguration config, Object request, String idempotencyKey, boolean deduplicate,
+			String path, boolean hedgeable, CallOptions options) throws IOException {
+		DeduplicationWindow window = config.getDeduplicationWindow();
+		DeduplicationWindow.Admission admission = window != null && deduplicate
+				? window.tryAcquire(idempotencyKey) : DeduplicationWindow.Admission.UNTRACKED;
+		if (admission == DeduplicationWindow.Admission.DUPLICATE) {
+			return false;
+		}
+		if (admission == DeduplicationWindow.Admission.IN_FLIGHT) {
+			throw new AndonRequestInFlightException(
+					"A request with idempotency key " + idempotencyKey + " is still in flight");
+		}
+		boolean tracked = admission == DeduplicationWindow.Admission.NEW;
 		
-		Request httpRequest = new Request.Builder()
-			.url(createUrl(path))
-			.post(body)
-			.addHeader(AUTHORIZATION_HEADER, authHeaderValue)
-			.build();
+		boolean sent = false;
+		try {
+			EventJournal journal = config.getJournal();
+			long sequence = journal == null ? 0 : journalSubmitted(journal, request);
+			executeRequest(config, request, idempotencyKey, path, hedgeable, options);
+			sent = true;
+			if (journal != null) {
+				journal.acknowledged(sequence);
+			}
+			return true;
+		} finally {
+			if (tracked && sent) {
+				window.complete(idempotencyKey);
+			} else if (tracked) {
+				// let the caller retry a request that didn't go through
+				window.forget(idempotencyKey);
+			}
+		}
+	}
+	
+	private static long journalSubmitted(EventJournal journal, Object request) throws IOException {
+		if (request instanceof ReportDataRequest) {
+			return journal.reportSubmitted((ReportDataRequest) request);
+		}
+		return journal.statusSubmitted((UpdateStationStatusRequest) request);
+	}
+
+	private void executeRequest(ClientConfiguration config, Object request, String idempotencyKey, String path,
+			boolean hedgeable, CallOptions options) throws IOException {
+		Precondition.checkNotNull(options, "options cannot be null");
 		
-		try (Response response = httpClient.newCall(httpRequest).execute()) {
-			if (!response.isSuccessful()) {
-				processErrorResponse(response);
+		try (Deadline deadline = Deadline.start(options.getDeadline())) {
+			Request httpRequest = createRequest(config, request, idempotencyKey, path);
+			OkHttpClient client = configureClient(config, options);
+			
+			EndpointSelector selector = config.getEndpointSelector();
+			if (selector != null) {
+				executeWithFailover(config, selector, client, httpRequest, path, hedgeable, deadline);
+				return;
+			}
+			
+			try (Response response = execute(config, client, httpRequest, hedgeable, deadline)) {
+				if (!response.isSuccessful()) {
+					processErrorResponse(response);
+				}
+			} catch (IOException e) {
+				if (deadline.isExpired()) {
+					throw deadline.exceeded(e);
+				}
+				throw e;
 			}
 		}
 	}
 	
+	private void executeWithFailover(ClientConfiguration config, EndpointSelector selector, OkHttpClient client,
+			Request httpRequest, String path, boolean hedgeable, Deadline deadline) throws IOException {
+		List<EndpointSelector.Target> plan = selector.plan();
+		// a report sent twice is counted twice, unless the endpoints deduplicate it
+		boolean idempotent = hedgeable || selector.endpointsDeduplicate();
+		IOException failure = null;
+		
+		for (int i = 0; i < plan.size(); i++) {
+			EndpointSelector.Target target = plan.get(i);
+			boolean last = i == plan.size() - 1;
+			if (i > 0) {
+				if (deadline.isExpired()) {
+					break;
+				}
+				selector.recordFailover();
+			}
+			
+			long start = System.nanoTime();
+			Response response;
+			try {
+				response = execute(config, client, httpRequest.newBuilder().url(target.url(path)).build(), hedgeable,
+						deadline);
+			} catch (IOException e) {
+				if (deadline.isExpired()) {
+					selector.abandoned(target);
+					throw deadline.exceeded(e);
+				}
+				selector.failed(target);
+				if (!idempotent && !isConnectFailure(e)) {
+					throw e;
+				}
+				failure = e;
+				continue;
+			} catch (RuntimeException e) {
+				// says nothing about the endpoint, but must release it if it was being probed
+				selector.abandoned(target);
+				throw e;
+			}
+			
+			try (Response closing = response) {
+				if (isGatewayError(response.code())) {
+					selector.failed(target);
+					// a 503 means the request wasn't processed, unlike a 502 or 504 from a proxy
+					if (!last && (idempotent || response.code() == 503)) {
+						failure = new IOException(String.format("Status %s from %s", response.code(), target));
+						continue;
+					}
+				} else {
+					selector.succeeded(target, System.nanoTime() - start);
+				}
+				if (!response.isSuccessful()) {
+					processErrorResponse(response);
+				}
+				return;
+			}
+		}
+		
+		if (deadline.isExpired()) {
+			throw deadline.exceeded(failure);
+		}
+		throw failure;
+	}
+	
+	private static boolean isGatewayError(int code) {
+		return code == 502 || code == 503 || code == 504;
+	}
+	
+	/**
+	 * Returns whether a request failed before it could reach the endpoint.
+	 */
+	private static boolean isConnectFailure(IOException e) {
+		return e instanceof ConnectException || e instanceof NoRouteToHostException
+				|| e instanceof UnknownHostException;
+	}
+	
+	private Request createRequest(ClientConfiguration config, Object request, String idempotencyKey, String path)
+			throws IOException {
+		byte[] requestBytes = Json.OBJECT_MAPPER.writeValueAsBytes(request);
+		
+		Request.Builder requestBuilder = new Request.Builder()
+			.url(config.getEndpointUrl().newBuilder().addPathSegments(path).build())
+			.addHeader(AUTHORIZATION_HEADER, config.getAuthHeaderValue())
+			.addHeader(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+		
+		if (shouldCompress(config, requestBytes)) {
+			requestBuilder.post(new GzipRequestBody(JSON, requestBytes, DEFLATER_POOL))
+				.addHeader(CONTENT_ENCODING_HEADER, GZIP);
+		} else {
+			requestBuilder.post(RequestBody.create(JSON, requestBytes));
+		}
+		
+		return requestBuilder.build();
+	}
+	
+	private static OkHttpClient configureClient(ClientConfiguration config, CallOptions options) {
+		if (!options.overridesTimeouts()) {
+			return httpClient(config);
+		}
+		
+		OkHttpClient.Builder builder = httpClient(config).newBuilder();
+		if (options.getConnectTimeout() != null) {
+			builder.connectTimeout(options.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS);
+		}
+		if (options.getReadTimeout() != null) {
+			builder.readTimeout(options.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS);
+		}
+		if (options.getWriteTimeout() != null) {
+			builder.writeTimeout(options.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS);
+		}
+		return builder.build();
+	}
+	
+	private static Response execute(ClientConfiguration config, OkHttpClient client, Request httpRequest,
+			boolean hedgeable, Deadline deadline) throws IOException {
+		Hedger hedger = config.getHedger();
+		if (hedger != null && hedgeable) {
+			return hedger.execute(client, httpRequest, deadline);
+		}
+		
+		Call call = client.newCall(httpRequest);
+		deadline.cancelOnExpiry(call::cancel);
+		
+		if (hedger == null) {
+			return call.execute();
+		}
+		
+		long start = System.nanoTime();
+		Response response = call.execute();
+		hedger.record(System.nanoTime() - start);
+		return response;
+	}
+	
 	private void processErrorResponse(Response response) throws IOException {
 		String responseBody = response.body().string();
 		
 		try {
-			ErrorResponse errorResponse = objectMapper.readValue(responseBody, ErrorResponse.class);
+			ErrorResponse errorResponse = Json.OBJECT_MAPPER.readValue(responseBody, ErrorResponse.class);
 			if (errorResponse.getErrorType() != null) {
 				Exceptions.throwFromErrorResponse(errorResponse);
 			} else {
-				SpringErrorResponse springResponse = objectMapper.readValue(responseBody, SpringErrorResponse.class);
+				SpringErrorResponse springResponse = Json.OBJECT_MAPPER.readValue(responseBody, SpringErrorResponse.class);
 				Exceptions.throwFromSpringErrorResponse(springResponse);
 			}
 		} catch (IOException e) {
@@ -140,8 +648,80 @@ public class DefaultAndonAppClient implements AndonAppClient {
 				String.format("Status %s: %s", response.code(), responseBody));
 	}
 
-	private HttpUrl createUrl(String path) {
-		return endpointUrl.newBuilder().addPathSegments(path).build();
+	private static boolean shouldCompress(ClientConfiguration config, byte[] requestBytes) {
+		return config.getCompressionThreshold() != COMPRESSION_DISABLED
+				&& requestBytes.length >= config.getCompressionThreshold();
+	}
+	
+	/**
+	 * Returns the current configuration, for tests.
+	 */
+	ClientConfiguration configuration() {
+		return configuration.get();
+	}
+	
+	/**
+	 * Swaps in a copy of the current configuration with the given changes. The changes
+	 * may be applied more than once if another thread reconfigures the client meanwhile.
+	 */
+	private void reconfigure(UnaryOperator<ClientConfiguration.ClientConfigurationBuilder> changes) {
+		configuration.updateAndGet(current -> changes.apply(current.toBuilder()).build());
+	}
+	
+	private void reconfigureHttpClient(UnaryOperator<OkHttpClient.Builder> changes) {
+		configuration.updateAndGet(current -> current.toBuilder()
+				.httpClient(changes.apply(httpClient(current).newBuilder()).build())
+				.build());
+	}
+	
+	private static long timeoutMillis(Duration timeout) {
+		Precondition.checkNotNull(timeout, "timeout cannot be null");
+		if (timeout.isNegative()) {
+			throw new IllegalArgumentException("timeout cannot be negative");
+		}
+		return timeout.toMillis();
+	}
+	
+	private static OkHttpClient httpClient(ClientConfiguration config) {
+		return config.getHttpClient() != null ? config.getHttpClient() : DefaultHttpClient.INSTANCE;
+	}
+	
+	private static OkHttpClient createDefaultHttpClient() {
+		Dispatcher dispatcher = new Dispatcher();
+		dispatcher.setMaxRequestsPerHost(DEFAULT_MAX_REQUESTS_PER_HOST);
+		return new OkHttpClient.Builder()
+			.dispatcher(dispatcher)
+			.build();
+	}
+	
+	private static ThreadPoolExecutor createBulkExecutor(int parallelism) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "andon-bulk-update");
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
+	/**
+	 * Holds the shared object mapper, which is only created once a request is made.
+	 */
+	private static final class Json {
+		
+		static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+		
+	}
+	
+	/**
+	 * Holds the HTTP client shared by clients that weren't given one, which is only
+	 * created once such a client makes a request.
+	 */
+	private static final class DefaultHttpClient {
+		
+		static final OkHttpClient INSTANCE = createDefaultHttpClient();
+		
 	}
 	
-}
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.andonapp.client;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Bounded pool of raw (no zlib wrapper) deflaters. Deflaters hold native memory
+ * and are relatively expensive to create, so they are reset and reused across
+ * requests instead of being allocated per body.
+ */
+final class DeflaterPool {
+
+	private final int level;
+	private final BlockingQueue<Deflater> idle;
+	
+	DeflaterPool(int level, int maxIdle) {
+		this.level = level;
+		this.idle = new ArrayBlockingQueue<>(maxIdle);
+	}
+	
+	Deflater acquire() {
+		Deflater deflater = idle.poll();
+		return deflater != null ? deflater : new Deflater(level, true);
+	}
+	
+	void release(Deflater deflater) {
+		deflater.reset();
+		if (!idle.offer(deflater)) {
+			deflater.end();
+		}
+	}
+	
+}
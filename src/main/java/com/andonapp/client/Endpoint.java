@@ -0,0 +1,63 @@
+package com.andonapp.client;
+
+import lombok.Getter;
+import lombok.ToString;
+import okhttp3.HttpUrl;
+
+/**
+ * An Andon endpoint that a client can fail over to, see
+ * {@link DefaultAndonAppClient#setEndpoints(java.util.List)}.
+ * 
+ * <p>Requests go to the healthy endpoint with the lowest recent latency divided by its
+ * weight, so an endpoint with weight 4 is preferred until it is four times slower than
+ * an endpoint with weight 1. Endpoints whose latency isn't known yet are preferred in
+ * the order they are listed.
+ */
+@Getter
+@ToString
+public class Endpoint {
+
+	/**
+	 * URL of the endpoint.
+	 */
+	private final String url;
+	
+	/**
+	 * Preference for the endpoint relative to the others.
+	 */
+	private final double weight;
+	
+	private Endpoint(String url, double weight) {
+		Precondition.checkNotBlank(url, "url cannot be blank");
+		if (HttpUrl.parse(url) == null) {
+			throw new IllegalArgumentException("url is not a valid http or https URL");
+		}
+		if (!(weight > 0) || Double.isInfinite(weight)) {
+			throw new IllegalArgumentException("weight must be positive");
+		}
+		this.url = url;
+		this.weight = weight;
+	}
+	
+	/**
+	 * Returns an endpoint with a weight of 1.
+	 * 
+	 * @param url URL of the endpoint
+	 * @return endpoint
+	 */
+	public static Endpoint of(String url) {
+		return new Endpoint(url, 1);
+	}
+	
+	/**
+	 * Returns an endpoint with the given weight.
+	 * 
+	 * @param url URL of the endpoint
+	 * @param weight preference for the endpoint relative to the others
+	 * @return endpoint
+	 */
+	public static Endpoint of(String url, double weight) {
+		return new Endpoint(url, weight);
+	}
+	
+}
@@ -0,0 +1,295 @@
+package com.andonapp.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.ToDoubleFunction;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Chooses which endpoints a request is tried against, according to a
+ * {@link FailoverPolicy}. Health is tracked passively from the outcome of real requests:
+ * no extra requests are made to check on an endpoint.
+ */
+final class EndpointSelector {
+
+	private final List<Target> targets;
+	private final int failureThreshold;
+	private final long baseEjectionNanos;
+	private final long maxEjectionNanos;
+	private final double latencySmoothing;
+	private final long latencyRefreshNanos;
+	private final boolean endpointsDeduplicate;
+	private final LongSupplier nanoClock;
+	private final LongAdder failovers = new LongAdder();
+	
+	EndpointSelector(List<Endpoint> endpoints, FailoverPolicy policy) {
+		this(endpoints, policy, System::nanoTime);
+	}
+	
+	EndpointSelector(List<Endpoint> endpoints, FailoverPolicy policy, LongSupplier nanoClock) {
+		Precondition.checkNotNull(endpoints, "endpoints cannot be null");
+		Precondition.checkNotNull(policy, "policy cannot be null");
+		if (endpoints.isEmpty()) {
+			throw new IllegalArgumentException("endpoints cannot be empty");
+		}
+		if (policy.getFailureThreshold() < 1) {
+			throw new IllegalArgumentException("failureThreshold must be at least 1");
+		}
+		Precondition.checkNotNull(policy.getBaseEjection(), "baseEjection cannot be null");
+		Precondition.checkNotNull(policy.getMaxEjection(), "maxEjection cannot be null");
+		Precondition.checkNotNull(policy.getLatencyRefreshInterval(), "latencyRefreshInterval cannot be null");
+		if (policy.getBaseEjection().isNegative() || policy.getBaseEjection().isZero()) {
+			throw new IllegalArgumentException("baseEjection must be positive");
+		}
+		if (policy.getMaxEjection().compareTo(policy.getBaseEjection()) < 0) {
+			throw new IllegalArgumentException("maxEjection cannot be less than baseEjection");
+		}
+		if (policy.getLatencySmoothing() <= 0 || policy.getLatencySmoothing() > 1) {
+			throw new IllegalArgumentException("latencySmoothing must be greater than 0 and at most 1");
+		}
+		
+		this.failureThreshold = policy.getFailureThreshold();
+		this.baseEjectionNanos = policy.getBaseEjection().toNanos();
+		this.maxEjectionNanos = policy.getMaxEjection().toNanos();
+		this.latencySmoothing = policy.getLatencySmoothing();
+		this.latencyRefreshNanos = policy.getLatencyRefreshInterval().toNanos();
+		this.endpointsDeduplicate = policy.isEndpointsDeduplicate();
+		this.nanoClock = nanoClock;
+		
+		long now = nanoClock.getAsLong();
+		this.targets = new ArrayList<>(endpoints.size());
+		for (Endpoint endpoint : endpoints) {
+			Precondition.checkNotNull(endpoint, "endpoints cannot contain null");
+			targets.add(new Target(HttpUrl.parse(endpoint.getUrl()), endpoint.getWeight(), now));
+		}
+	}
+	
+	/**
+	 * Returns the endpoints to try a request against, in order. Normally these are the
+	 * healthy endpoints, best first. The first may instead be an ejected endpoint whose
+	 * ejection has ended, or a healthy endpoint whose latency needs refreshing, which is
+	 * then reserved for this request. If no endpoint is healthy, the ejected ones are
+	 * returned, soonest to recover first.
+	 *
+	 * <p>Every endpoint returned that is tried must be reported to {@link #succeeded},
+	 * {@link #failed} or {@link #abandoned}.
+	 */
+	List<Target> plan() {
+		long now = nanoClock.getAsLong();
+		List<Target> healthy = new ArrayList<>(targets.size() + 1);
+		List<Target> ejected = null;
+		Target probe = null;
+		
+		for (Target target : targets) {
+			if (target.isHealthy()) {
+				healthy.add(target);
+			} else if (probe == null && target.tryStartProbe(now)) {
+				probe = target;
+			} else {
+				if (ejected == null) {
+					ejected = new ArrayList<>(targets.size());
+				}
+				ejected.add(target);
+			}
+		}
+		
+		if (healthy.isEmpty() && probe == null) {
+			sort(ejected, Target::ejectedUntil);
+			return ejected;
+		}
+		
+		sort(healthy, Target::score);
+		if (probe != null) {
+			healthy.add(0, probe);
+		} else {
+			for (int i = 1; i < healthy.size(); i++) {
+				if (healthy.get(i).tryStartRefresh(now, latencyRefreshNanos)) {
+					healthy.add(0, healthy.remove(i));
+					break;
+				}
+			}
+		}
+		return healthy;
+	}
+	
+	/**
+	 * Records that the endpoint answered. Any response counts, errors included, as long
+	 * as it came from Andon rather than a failing proxy.
+	 */
+	void succeeded(Target target, long latencyNanos) {
+		target.succeeded(nanoClock.getAsLong(), latencyNanos, latencySmoothing);
+	}
+	
+	/**
+	 * Records that the endpoint couldn't be reached or answered with a gateway error.
+	 */
+	void failed(Target target) {
+		target.failed(nanoClock.getAsLong(), failureThreshold, baseEjectionNanos, maxEjectionNanos);
+	}
+	
+	/**
+	 * Records that a request to the endpoint was cut short by its deadline or by an
+	 * unchecked exception, which says nothing about the endpoint.
+	 */
+	void abandoned(Target target) {
+		target.abandoned();
+	}
+	
+	void recordFailover() {
+		failovers.increment();
+	}
+	
+	long getFailoverCount() {
+		return failovers.sum();
+	}
+	
+	/**
+	 * Whether every endpoint deduplicates requests by idempotency key, so any request
+	 * can be retried on another endpoint.
+	 */
+	boolean endpointsDeduplicate() {
+		return endpointsDeduplicate;
+	}
+	
+	List<Target> getTargets() {
+		return targets;
+	}
+	
+	/**
+	 * Stable sort on keys read once up front, since other threads may change them while
+	 * the sort is running.
+	 */
+	private static void sort(List<Target> list, ToDoubleFunction<Target> key) {
+		double[] keys = new double[list.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = key.applyAsDouble(list.get(i));
+		}
+		for (int i = 1; i < keys.length; i++) {
+			double currentKey = keys[i];
+			Target current = list.get(i);
+			int j = i - 1;
+			for (; j >= 0 && keys[j] > currentKey; j--) {
+				keys[j + 1] = keys[j];
+				list.set(j + 1, list.get(j));
+			}
+			keys[j + 1] = currentKey;
+			list.set(j + 1, current);
+		}
+	}
+	
+	/**
+	 * Health of one endpoint.
+	 */
+	static final class Target {
+		
+		private final HttpUrl url;
+		private final double weight;
+		
+		private int failures;
+		private int ejections;
+		private boolean ejected;
+		private boolean probing;
+		private long ejectedUntilNanos;
+		private long lastAttemptNanos;
+		private double latencyNanos = Double.NaN;
+		
+		Target(HttpUrl url, double weight, long now) {
+			this.url = url;
+			this.weight = weight;
+			this.lastAttemptNanos = now;
+		}
+		
+		HttpUrl url(String path) {
+			return url.newBuilder().addPathSegments(path).build();
+		}
+		
+		HttpUrl getUrl() {
+			return url;
+		}
+		
+		synchronized boolean isHealthy() {
+			return !ejected;
+		}
+		
+		synchronized double getLatencyNanos() {
+			return latencyNanos;
+		}
+		
+		/**
+		 * Lower is better. Endpoints without a latency yet come first, so they get one.
+		 */
+		synchronized double score() {
+			return Double.isNaN(latencyNanos) ? 0 : latencyNanos / weight;
+		}
+		
+		synchronized long ejectedUntil() {
+			return ejectedUntilNanos;
+		}
+		
+		synchronized boolean tryStartProbe(long now) {
+			if (!ejected || probing || now - ejectedUntilNanos < 0) {
+				return false;
+			}
+			probing = true;
+			lastAttemptNanos = now;
+			return true;
+		}
+		
+		synchronized boolean tryStartRefresh(long now, long refreshNanos) {
+			if (ejected || now - lastAttemptNanos < refreshNanos) {
+				return false;
+			}
+			lastAttemptNanos = now;
+			return true;
+		}
+		
+		synchronized void succeeded(long now, long sampleNanos, double smoothing) {
+			if (ejected || Double.isNaN(latencyNanos)) {
+				// what was known from before the ejection is stale
+				latencyNanos = sampleNanos;
+			} else {
+				latencyNanos += smoothing * (sampleNanos - latencyNanos);
+			}
+			failures = 0;
+			ejections = 0;
+			ejected = false;
+			probing = false;
+			lastAttemptNanos = now;
+		}
+		
+		synchronized void failed(long now, int threshold, long baseEjectionNanos, long maxEjectionNanos) {
+			lastAttemptNanos = now;
+			if (ejected && !probing) {
+				// tried as a last resort, already ejected
+				return;
+			}
+			probing = false;
+			if (!ejected && ++failures < threshold) {
+				return;
+			}
+			
+			failures = 0;
+			ejected = true;
+			long ejection = ejections >= 62 ? maxEjectionNanos : baseEjectionNanos << ejections;
+			if (ejection <= 0 || ejection > maxEjectionNanos) {
+				ejection = maxEjectionNanos;
+			}
+			ejections++;
+			ejectedUntilNanos = now + ejection;
+		}
+		
+		synchronized void abandoned() {
+			probing = false;
+		}
+		
+		@Override
+		public String toString() {
+			return url.toString();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,70 @@
+package com.andonapp.client;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Settings for failing over between endpoints. An endpoint that fails several requests
+ * in a row is ejected and gets no traffic until its ejection ends, when a single request
+ * is let through to probe it. Each ejection in a row lasts twice as long as the last,
+ * up to a maximum, so a dead endpoint costs about one request per maximum ejection.
+ * 
+ * <p>The following is an example usage: <pre> {@code
+ *
+ *   andonClient.setEndpoints(endpoints, FailoverPolicy.builder()
+ *           .failureThreshold(2)
+ *           .maxEjection(Duration.ofMinutes(1))
+ *           .build());
+ * }</pre>
+ */
+@Builder
+@Getter
+@ToString
+public class FailoverPolicy {
+
+	/**
+	 * Failed requests in a row after which an endpoint is ejected. Defaults to 3.
+	 */
+	@Builder.Default
+	private final int failureThreshold = 3;
+	
+	/**
+	 * Length of the first ejection. Defaults to 2s.
+	 */
+	@Builder.Default
+	private final Duration baseEjection = Duration.ofSeconds(2);
+	
+	/**
+	 * Upper bound on the length of an ejection. Defaults to 2 minutes.
+	 */
+	@Builder.Default
+	private final Duration maxEjection = Duration.ofMinutes(2);
+	
+	/**
+	 * Weight of the newest request in an endpoint's moving average latency, between 0
+	 * and 1. Defaults to 0.3.
+	 */
+	@Builder.Default
+	private final double latencySmoothing = 0.3;
+	
+	/**
+	 * Time after which a healthy endpoint that isn't getting traffic is sent one request,
+	 * so its latency stays current and traffic can move back to it. Defaults to 30s.
+	 */
+	@Builder.Default
+	private final Duration latencyRefreshInterval = Duration.ofSeconds(30);
+	
+	/**
+	 * Whether every endpoint drops a request whose Idempotency-Key it has already
+	 * processed. If so, a report that timed out or got a 502 or 504 is retried on the
+	 * next endpoint, like a status update. Defaults to false, so a report is only
+	 * retried elsewhere when it certainly wasn't processed: the connection couldn't be
+	 * made, or the endpoint answered 503.
+	 */
+	@Builder.Default
+	private final boolean endpointsDeduplicate = false;
+	
+}
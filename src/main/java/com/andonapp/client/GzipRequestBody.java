@@ -0,0 +1,69 @@
+package com.andonapp.client;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Request body that gzips its content directly into the OkHttp sink. The content is
+ * compressed on every call to {@link #writeTo(BufferedSink)} so that the body can be
+ * safely replayed when OkHttp retries a request.
+ */
+final class GzipRequestBody extends RequestBody {
+
+	private static final int BUFFER_SIZE = 8192;
+	
+	private static final byte[] GZIP_HEADER = {
+			0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+	};
+	
+	private final MediaType contentType;
+	private final byte[] content;
+	private final DeflaterPool deflaterPool;
+	
+	GzipRequestBody(MediaType contentType, byte[] content, DeflaterPool deflaterPool) {
+		this.contentType = contentType;
+		this.content = content;
+		this.deflaterPool = deflaterPool;
+	}
+	
+	@Override
+	public MediaType contentType() {
+		return contentType;
+	}
+	
+	@Override
+	public long contentLength() {
+		return -1;
+	}
+	
+	@Override
+	public void writeTo(BufferedSink sink) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(content, 0, content.length);
+		
+		sink.write(GZIP_HEADER);
+		
+		Deflater deflater = deflaterPool.acquire();
+		try {
+			deflater.setInput(content, 0, content.length);
+			deflater.finish();
+			
+			byte[] buffer = new byte[Math.min(BUFFER_SIZE, content.length + 64)];
+			while (!deflater.finished()) {
+				int count = deflater.deflate(buffer, 0, buffer.length);
+				sink.write(buffer, 0, count);
+			}
+		} finally {
+			deflaterPool.release(deflater);
+		}
+		
+		sink.writeIntLe((int) crc.getValue());
+		sink.writeIntLe(content.length);
+	}
+	
+}
@@ -0,0 +1,44 @@
+package com.andonapp.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket that earns a fraction of a hedge for every request and spends a whole
+ * one for every hedge sent. Tokens are kept in thousandths so the bucket can be a
+ * single lock-free counter.
+ */
+final class HedgeBudget {
+
+	private static final long SCALE = 1000;
+	
+	private final long earnedPerRequest;
+	private final long capacity;
+	private final AtomicLong tokens = new AtomicLong();
+	
+	HedgeBudget(double ratio, int maxBurst) {
+		this.earnedPerRequest = Math.round(ratio * SCALE);
+		this.capacity = maxBurst * SCALE;
+	}
+	
+	void onRequest() {
+		long current;
+		do {
+			current = tokens.get();
+			if (current >= capacity) {
+				return;
+			}
+		} while (!tokens.compareAndSet(current, Math.min(capacity, current + earnedPerRequest)));
+	}
+	
+	boolean tryAcquire() {
+		long current;
+		do {
+			current = tokens.get();
+			if (current < SCALE) {
+				return false;
+			}
+		} while (!tokens.compareAndSet(current, current - SCALE));
+		return true;
+	}
+	
+}
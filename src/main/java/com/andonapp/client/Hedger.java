@@ -0,0 +1,82 @@
+package com.andonapp.client;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Executes requests according to a {@link HedgingPolicy}. The hedge goes through the
+ * same {@link Call.Factory} as the original, and since the original still holds its
+ * HTTP/1.1 connection the hedge is sent over a different one.
+ */
+final class Hedger {
+
+	private final long minDelayNanos;
+	private final LatencyTracker latencies;
+	private final HedgeBudget budget;
+	private final LongAdder hedges = new LongAdder();
+	
+	Hedger(HedgingPolicy policy) {
+		Precondition.checkNotNull(policy, "policy cannot be null");
+		Precondition.checkNotNull(policy.getMinDelay(), "minDelay cannot be null");
+		if (policy.getDelayPercentile() <= 0 || policy.getDelayPercentile() > 100) {
+			throw new IllegalArgumentException("delayPercentile must be greater than 0 and at most 100");
+		}
+		if (policy.getBudgetRatio() < 0 || policy.getBudgetRatio() > 1) {
+			throw new IllegalArgumentException("budgetRatio must be between 0 and 1");
+		}
+		if (policy.getMaxBurst() < 1) {
+			throw new IllegalArgumentException("maxBurst must be at least 1");
+		}
+		if (policy.getLatencyWindow() < 1) {
+			throw new IllegalArgumentException("latencyWindow must be at least 1");
+		}
+		this.minDelayNanos = policy.getMinDelay().toNanos();
+		this.latencies = new LatencyTracker(policy.getLatencyWindow(), policy.getDelayPercentile());
+		this.budget = new HedgeBudget(policy.getBudgetRatio(), policy.getMaxBurst());
+	}
+	
+	Response execute(Call.Factory callFactory, Request request, Deadline deadline) throws IOException {
+		budget.onRequest();
+		long start = System.nanoTime();
+		
+		CallRace race = new CallRace();
+		deadline.cancelOnExpiry(race::cancel);
+		race.start(callFactory.newCall(request));
+		
+		Response response = race.await(Math.min(hedgeDelayNanos(), deadline.remainingNanos()));
+		if (response == null) {
+			if (!deadline.isExpired() && budget.tryAcquire() && race.start(callFactory.newCall(request))) {
+				hedges.increment();
+			}
+			response = race.await();
+		}
+		
+		latencies.record(System.nanoTime() - start);
+		return response;
+	}
+	
+	/**
+	 * Records the latency of a request that wasn't hedged, so that reports and other
+	 * traffic to the same endpoint inform the hedge delay.
+	 */
+	void record(long latencyNanos) {
+		latencies.record(latencyNanos);
+	}
+	
+	long getHedgeCount() {
+		return hedges.sum();
+	}
+	
+	private long hedgeDelayNanos() {
+		long percentile = latencies.percentileNanos();
+		if (percentile < 0) {
+			return Long.MAX_VALUE;
+		}
+		return Math.max(minDelayNanos, percentile);
+	}
+	
+}
@@ -0,0 +1,59 @@
+package com.andonapp.client;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Settings for hedged station status updates. When an update hasn't completed by the
+ * given percentile of recent request latency, a second copy is sent and whichever
+ * finishes first wins. A budget caps hedges to a fraction of all updates, so a slow
+ * endpoint can't double the load on itself.
+ * 
+ * <p>The following is an example usage: <pre> {@code
+ *
+ *   andonClient.setHedgingPolicy(HedgingPolicy.builder()
+ *           .delayPercentile(95.0)
+ *           .minDelay(Duration.ofMillis(20))
+ *           .budgetRatio(0.05)
+ *           .build());
+ * }</pre>
+ */
+@Builder
+@Getter
+@ToString
+public class HedgingPolicy {
+
+	/**
+	 * Percentile of recent latency after which a hedge is sent. Defaults to 95.
+	 */
+	@Builder.Default
+	private final double delayPercentile = 95.0;
+	
+	/**
+	 * Lower bound on the hedge delay. Defaults to 10ms.
+	 */
+	@Builder.Default
+	private final Duration minDelay = Duration.ofMillis(10);
+	
+	/**
+	 * Hedges allowed per status update sent, between 0 and 1. Defaults to 0.05.
+	 */
+	@Builder.Default
+	private final double budgetRatio = 0.05;
+	
+	/**
+	 * Hedges that can be sent back to back once the budget has built up. Defaults to 10.
+	 */
+	@Builder.Default
+	private final int maxBurst = 10;
+	
+	/**
+	 * Number of recent requests the latency percentile is computed over. Defaults to 1024.
+	 */
+	@Builder.Default
+	private final int latencyWindow = 1024;
+	
+}
@@ -0,0 +1,45 @@
+package com.andonapp.client;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.Protocol;
+
+/**
+ * HTTP version the client uses to talk to Andon, see
+ * {@link DefaultAndonAppClient#setHttpMode(HttpMode)}.
+ */
+public enum HttpMode {
+
+	/**
+	 * HTTP/1.1 only. Every request in flight holds its own connection, so concurrent
+	 * requests to the same host open as many sockets as there are requests.
+	 */
+	HTTP_1_1(Protocol.HTTP_1_1),
+	
+	/**
+	 * HTTP/2 negotiated over TLS, falling back to HTTP/1.1 for servers that don't offer
+	 * it. Concurrent requests are multiplexed as streams over a single connection per
+	 * host. Negotiation needs ALPN, which Java 8 has from update 252.
+	 */
+	HTTP_2(Protocol.HTTP_2, Protocol.HTTP_1_1),
+	
+	/**
+	 * HTTP/2 over plaintext with prior knowledge, for relays on the plant network that
+	 * don't terminate TLS. Only works with {@code http://} endpoints that are known to
+	 * speak HTTP/2; there is no fallback.
+	 */
+	H2C(Protocol.H2_PRIOR_KNOWLEDGE);
+	
+	private final List<Protocol> protocols;
+	
+	HttpMode(Protocol... protocols) {
+		this.protocols = Collections.unmodifiableList(Arrays.asList(protocols));
+	}
+	
+	List<Protocol> protocols() {
+		return protocols;
+	}
+	
+}
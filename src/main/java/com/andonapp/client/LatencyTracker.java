@@ -0,0 +1,60 @@
+package com.andonapp.client;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the latencies of the most recent requests in a ring and periodically computes
+ * a percentile over them. Recording is lock-free; the percentile is recomputed by
+ * whichever thread fills the last slot of a refresh interval.
+ */
+final class LatencyTracker {
+
+	private static final int MIN_SAMPLES = 16;
+	
+	private final double percentile;
+	private final AtomicLongArray samples;
+	private final AtomicLong recorded = new AtomicLong();
+	private final int refreshInterval;
+	
+	private volatile long cachedNanos = -1;
+	
+	LatencyTracker(int window, double percentile) {
+		this.samples = new AtomicLongArray(window);
+		this.percentile = percentile;
+		this.refreshInterval = Math.max(1, Math.min(window / 8, 128));
+	}
+	
+	void record(long latencyNanos) {
+		long index = recorded.getAndIncrement();
+		samples.set((int) (index % samples.length()), latencyNanos);
+		
+		long count = index + 1;
+		if (count == MIN_SAMPLES || (count > MIN_SAMPLES && count % refreshInterval == 0)) {
+			cachedNanos = compute(count);
+		}
+	}
+	
+	/**
+	 * Returns the configured percentile of recent latency.
+	 * 
+	 * @return latency in nanoseconds, or -1 until enough requests have been recorded
+	 */
+	long percentileNanos() {
+		return cachedNanos;
+	}
+	
+	private long compute(long count) {
+		int size = (int) Math.min(count, samples.length());
+		long[] sorted = new long[size];
+		for (int i = 0; i < size; i++) {
+			sorted[i] = samples.get(i);
+		}
+		Arrays.sort(sorted);
+		
+		int rank = (int) Math.ceil(percentile / 100.0 * size) - 1;
+		return sorted[Math.max(0, Math.min(size - 1, rank))];
+	}
+	
+}
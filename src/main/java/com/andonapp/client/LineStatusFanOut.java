@@ -0,0 +1,95 @@
+package com.andonapp.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import com.andonapp.client.exception.AndonDeadlineExceededException;
+import com.andonapp.client.model.BulkStatusUpdateRequest;
+import com.andonapp.client.model.BulkStatusUpdateResult;
+
+/**
+ * Sends a {@link BulkStatusUpdateRequest} as one status update per station, running
+ * at most a given number of them at once. The deadline in the call options covers
+ * the whole bulk update.
+ */
+final class LineStatusFanOut {
+
+	private LineStatusFanOut() {
+		// static class
+	}
+	
+	static BulkStatusUpdateResult run(AndonAppClient client, BulkStatusUpdateRequest request,
+			CallOptions options, Executor executor, int parallelism) throws InterruptedException {
+		Precondition.checkNotNull(request, "request cannot be null");
+		Precondition.checkNotNull(request.getStationNames(), "stationNames cannot be null");
+		Precondition.checkNotNull(options, "options cannot be null");
+		
+		long start = System.nanoTime();
+		List<String> stationNames = new ArrayList<>(new LinkedHashSet<>(request.getStationNames()));
+		// each slot is written before the latch counts down, so it's visible after await
+		Exception[] failures = new Exception[stationNames.size()];
+		CountDownLatch done = new CountDownLatch(stationNames.size());
+		Semaphore permits = new Semaphore(parallelism);
+		
+		for (int i = 0; i < stationNames.size(); i++) {
+			int index = i;
+			String stationName = stationNames.get(i);
+			permits.acquire();
+			try {
+				executor.execute(() -> {
+					try {
+						failures[index] = update(client, request, stationName, options, start);
+					} finally {
+						permits.release();
+						done.countDown();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				failures[index] = e;
+				permits.release();
+				done.countDown();
+			}
+		}
+		done.await();
+		
+		List<String> updatedStations = new ArrayList<>();
+		Map<String, Exception> failedStations = new LinkedHashMap<>();
+		for (int i = 0; i < stationNames.size(); i++) {
+			if (failures[i] == null) {
+				updatedStations.add(stationNames.get(i));
+			} else {
+				failedStations.put(stationNames.get(i), failures[i]);
+			}
+		}
+		
+		return BulkStatusUpdateResult.builder()
+				.lineName(request.getLineName())
+				.updatedStations(Collections.unmodifiableList(updatedStations))
+				.failedStations(Collections.unmodifiableMap(failedStations))
+				.build();
+	}
+	
+	private static Exception update(AndonAppClient client, BulkStatusUpdateRequest request, String stationName,
+			CallOptions options, long start) {
+		CallOptions remaining = options.remainingSince(start);
+		if (remaining == null) {
+			return new AndonDeadlineExceededException("deadline exceeded before the update was sent");
+		}
+		try {
+			client.updateStationStatus(request.forStation(stationName), remaining);
+			return null;
+		} catch (IOException | RuntimeException e) {
+			return e;
+		}
+	}
+	
+}
@@ -0,0 +1,49 @@
+package com.andonapp.client.diagnostics;
+
+/**
+ * Phases the time of an HTTP call is split into. A call that is retried by the HTTP
+ * client, after a failed connection attempt for example, adds up each phase over
+ * every attempt.
+ */
+public enum RequestPhase {
+
+	/**
+	 * From the start of the call until it began resolving, connecting or acquired a
+	 * pooled connection. For a call executed synchronously, as unhedged requests are,
+	 * this is only the connection pool lookup. Waiting in the HTTP client's dispatcher
+	 * queue is included only for calls executed asynchronously, as hedges are.
+	 */
+	QUEUE,
+	
+	/**
+	 * Resolving the endpoint's host name.
+	 */
+	DNS,
+	
+	/**
+	 * Opening the TCP connection, excluding the TLS handshake.
+	 */
+	CONNECT,
+	
+	/**
+	 * The TLS handshake.
+	 */
+	TLS,
+	
+	/**
+	 * Writing the request headers and body.
+	 */
+	REQUEST,
+	
+	/**
+	 * From the request being written until the response started arriving: time spent
+	 * by the server and on the network.
+	 */
+	SERVER,
+	
+	/**
+	 * Reading the response headers and body.
+	 */
+	RESPONSE
+	
+}
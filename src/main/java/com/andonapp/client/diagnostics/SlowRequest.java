@@ -0,0 +1,60 @@
+package com.andonapp.client.diagnostics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Timing of one HTTP call kept by a {@link SlowRequestSampler}.
+ */
+@Builder
+@Getter
+@ToString
+public class SlowRequest {
+
+	/**
+	 * API path of the call, such as {@code data/report} or {@code station/update}.
+	 */
+	private final String path;
+	
+	/**
+	 * Full URL of the call, which tells apart the endpoints of a client that fails over.
+	 */
+	private final String url;
+	
+	/**
+	 * When the call started.
+	 */
+	private final Instant startedAt;
+	
+	/**
+	 * Total time of the call.
+	 */
+	private final Duration duration;
+	
+	/**
+	 * Time spent in each phase. Phases the call didn't go through, such as connecting
+	 * over a pooled connection, are zero.
+	 */
+	private final Map<RequestPhase, Duration> phases;
+	
+	/**
+	 * Whether a new connection was opened for the call.
+	 */
+	private final boolean newConnection;
+	
+	/**
+	 * HTTP status of the response. Null if no response was received.
+	 */
+	private final Integer responseCode;
+	
+	/**
+	 * Why the call failed. Null if it completed.
+	 */
+	private final String failure;
+	
+}
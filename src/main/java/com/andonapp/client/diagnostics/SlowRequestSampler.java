@@ -0,0 +1,409 @@
+package com.andonapp.client.diagnostics;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Times every HTTP call of a client phase by phase, and keeps the slowest ones, so
+ * an occasional slow report can be traced to DNS, connecting, TLS, waiting for a
+ * connection, or the server.
+ *
+ * <p>Timing a call costs a handful of {@link System#nanoTime()} reads and one small
+ * allocation. A call that isn't among the slowest so far is discarded without taking
+ * a lock; memory is bounded by the number of calls kept.
+ *
+ * <p>The following is an example usage: <pre> {@code
+ *
+ *   SlowRequestSampler sampler = new SlowRequestSampler();
+ *   andonClient.setSlowRequestSampler(sampler);
+ *   ...
+ *   System.out.println(sampler.dump());
+ * }</pre>
+ *
+ * <p>It can also be set directly on an HTTP client with
+ * {@link okhttp3.OkHttpClient.Builder#eventListenerFactory}.
+ */
+public class SlowRequestSampler implements EventListener.Factory {
+
+	/**
+	 * Default number of calls kept.
+	 */
+	public static final int DEFAULT_CAPACITY = 20;
+	
+	private static final RequestPhase[] PHASES = RequestPhase.values();
+	private static final long UNSET = Long.MIN_VALUE;
+	
+	private static final Comparator<SlowRequest> BY_DURATION = Comparator.comparing(SlowRequest::getDuration);
+	
+	private final int capacity;
+	private final LongSupplier nanoClock;
+	private final LongAdder callCount = new LongAdder();
+	
+	/**
+	 * Fastest of the calls kept, once full.
+	 */
+	private final PriorityQueue<SlowRequest> slowest;
+	
+	/**
+	 * Duration a call must exceed to be kept. Only read without the lock, to skip the
+	 * lock for calls that don't qualify.
+	 */
+	private volatile long thresholdNanos = -1;
+	
+	/**
+	 * Constructs a sampler that keeps the {@link #DEFAULT_CAPACITY} slowest calls.
+	 */
+	public SlowRequestSampler() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Constructs a sampler that keeps the given number of slowest calls.
+	 *
+	 * @param capacity number of calls kept
+	 */
+	public SlowRequestSampler(int capacity) {
+		this(capacity, System::nanoTime);
+	}
+	
+	SlowRequestSampler(int capacity, LongSupplier nanoClock) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		this.capacity = capacity;
+		this.nanoClock = nanoClock;
+		this.slowest = new PriorityQueue<>(capacity + 1, BY_DURATION);
+	}
+	
+	@Override
+	public EventListener create(Call call) {
+		return new CallTimer(call);
+	}
+	
+	/**
+	 * Returns how many calls have finished since the sampler was created or reset.
+	 *
+	 * @return call count
+	 */
+	public long getCallCount() {
+		return callCount.sum();
+	}
+	
+	/**
+	 * Returns the slowest calls so far, slowest first.
+	 *
+	 * @return slowest calls
+	 */
+	public List<SlowRequest> getSlowest() {
+		List<SlowRequest> requests;
+		synchronized (slowest) {
+			requests = new ArrayList<>(slowest);
+		}
+		requests.sort(BY_DURATION.reversed());
+		return requests;
+	}
+	
+	/**
+	 * Forgets the calls kept so far.
+	 */
+	public void reset() {
+		synchronized (slowest) {
+			slowest.clear();
+			thresholdNanos = -1;
+		}
+		callCount.reset();
+	}
+	
+	/**
+	 * Formats the slowest calls so far, slowest first, one per line with the time
+	 * spent in each phase in milliseconds.
+	 *
+	 * @return readable dump
+	 */
+	public String dump() {
+		List<SlowRequest> requests = getSlowest();
+		StringBuilder dump = new StringBuilder(String.format("Slowest %d of %d calls%n",
+				requests.size(), getCallCount()));
+		for (SlowRequest request : requests) {
+			dump.append(String.format("%s %9.1fms %-15s", request.getStartedAt(),
+					millis(request.getDuration()), request.getPath()));
+			for (Map.Entry<RequestPhase, Duration> phase : request.getPhases().entrySet()) {
+				dump.append(String.format(" %s=%.1f", phase.getKey().name().toLowerCase(), millis(phase.getValue())));
+			}
+			if (request.getResponseCode() != null) {
+				dump.append(" status=").append(request.getResponseCode());
+			}
+			if (request.getFailure() != null) {
+				dump.append(" failed=\"").append(request.getFailure()).append('"');
+			}
+			if (request.isNewConnection()) {
+				dump.append(" new-connection");
+			}
+			dump.append(' ').append(request.getUrl()).append(String.format("%n"));
+		}
+		return dump.toString();
+	}
+	
+	private void record(CallTimer timer, long durationNanos, IOException failure) {
+		callCount.increment();
+		if (durationNanos <= thresholdNanos) {
+			return;
+		}
+		
+		SlowRequest request = timer.toSlowRequest(durationNanos, failure);
+		synchronized (slowest) {
+			slowest.add(request);
+			if (slowest.size() > capacity) {
+				slowest.poll();
+			}
+			if (slowest.size() == capacity) {
+				thresholdNanos = slowest.peek().getDuration().toNanos();
+			}
+		}
+	}
+	
+	private static double millis(Duration duration) {
+		return duration.toNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+	
+	/**
+	 * Times one call. OkHttp reports the events of a call in order, so no
+	 * synchronization is needed.
+	 */
+	private final class CallTimer extends EventListener {
+		
+		private final Call call;
+		private final long[] phaseNanos = new long[PHASES.length];
+		
+		private long callStart = UNSET;
+		private boolean active;
+		private long dnsStart = UNSET;
+		private long connectStart = UNSET;
+		private long tlsStart = UNSET;
+		private long tlsEnd = UNSET;
+		private long requestStart = UNSET;
+		private long requestSent = UNSET;
+		private long responseStart = UNSET;
+		private boolean newConnection;
+		private Integer responseCode;
+		
+		CallTimer(Call call) {
+			this.call = call;
+		}
+		
+		@Override
+		public void callStart(Call call) {
+			callStart = nanoClock.getAsLong();
+		}
+		
+		@Override
+		public void dnsStart(Call call, String domainName) {
+			dnsStart = activate();
+		}
+		
+		@Override
+		public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+			dnsStart = end(RequestPhase.DNS, dnsStart, nanoClock.getAsLong());
+		}
+		
+		@Override
+		public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+			connectStart = activate();
+			newConnection = true;
+		}
+		
+		@Override
+		public void secureConnectStart(Call call) {
+			tlsStart = nanoClock.getAsLong();
+		}
+		
+		@Override
+		public void secureConnectEnd(Call call, Handshake handshake) {
+			tlsEnd = nanoClock.getAsLong();
+		}
+		
+		@Override
+		public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+			endConnect(nanoClock.getAsLong());
+		}
+		
+		@Override
+		public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol,
+				IOException ioe) {
+			endConnect(nanoClock.getAsLong());
+		}
+		
+		@Override
+		public void connectionAcquired(Call call, Connection connection) {
+			activate();
+		}
+		
+		@Override
+		public void requestHeadersStart(Call call) {
+			long now = nanoClock.getAsLong();
+			// a retry on a stale connection starts a new exchange without a response to the last
+			if (requestStart != UNSET) {
+				endExchange(now);
+			}
+			requestStart = now;
+			requestSent = UNSET;
+		}
+		
+		@Override
+		public void requestHeadersEnd(Call call, Request request) {
+			requestSent = nanoClock.getAsLong();
+		}
+		
+		@Override
+		public void requestBodyEnd(Call call, long byteCount) {
+			requestSent = nanoClock.getAsLong();
+		}
+		
+		@Override
+		public void responseHeadersStart(Call call) {
+			long now = nanoClock.getAsLong();
+			endExchange(now);
+			responseStart = now;
+		}
+		
+		@Override
+		public void responseHeadersEnd(Call call, Response response) {
+			responseCode = response.code();
+		}
+		
+		@Override
+		public void responseBodyEnd(Call call, long byteCount) {
+			responseStart = end(RequestPhase.RESPONSE, responseStart, nanoClock.getAsLong());
+		}
+		
+		@Override
+		public void callEnd(Call call) {
+			finish(null);
+		}
+		
+		@Override
+		public void callFailed(Call call, IOException ioe) {
+			finish(ioe);
+		}
+		
+		/**
+		 * Ends the queue phase on the first sign of progress.
+		 */
+		private long activate() {
+			long now = nanoClock.getAsLong();
+			if (!active && callStart != UNSET) {
+				active = true;
+				phaseNanos[RequestPhase.QUEUE.ordinal()] += now - callStart;
+			}
+			return now;
+		}
+		
+		private long end(RequestPhase phase, long start, long now) {
+			if (start != UNSET) {
+				phaseNanos[phase.ordinal()] += now - start;
+			}
+			return UNSET;
+		}
+		
+		private void endConnect(long now) {
+			if (tlsStart == UNSET) {
+				end(RequestPhase.CONNECT, connectStart, now);
+			} else {
+				end(RequestPhase.CONNECT, connectStart, tlsStart);
+				end(RequestPhase.TLS, tlsStart, tlsEnd != UNSET ? tlsEnd : now);
+			}
+			connectStart = tlsStart = tlsEnd = UNSET;
+		}
+		
+		/**
+		 * Splits the exchange so far between writing the request and waiting for the
+		 * server, once the response starts, another exchange starts, or the call fails.
+		 */
+		private void endExchange(long now) {
+			if (requestSent == UNSET) {
+				end(RequestPhase.REQUEST, requestStart, now);
+			} else {
+				end(RequestPhase.REQUEST, requestStart, requestSent);
+				end(RequestPhase.SERVER, requestSent, now);
+			}
+			requestStart = requestSent = UNSET;
+		}
+		
+		private void finish(IOException failure) {
+			if (callStart == UNSET) {
+				return;
+			}
+			long now = nanoClock.getAsLong();
+			// a call that fails or is closed early leaves its last phase open
+			dnsStart = end(RequestPhase.DNS, dnsStart, now);
+			if (connectStart != UNSET) {
+				endConnect(now);
+			}
+			endExchange(now);
+			responseStart = end(RequestPhase.RESPONSE, responseStart, now);
+			
+			long duration = now - callStart;
+			callStart = UNSET;
+			record(this, duration, failure);
+		}
+		
+		SlowRequest toSlowRequest(long durationNanos, IOException failure) {
+			Map<RequestPhase, Duration> phases = new EnumMap<>(RequestPhase.class);
+			for (RequestPhase phase : PHASES) {
+				phases.put(phase, Duration.ofNanos(phaseNanos[phase.ordinal()]));
+			}
+			HttpUrl url = call.request().url();
+			return SlowRequest.builder()
+					.path(path(url))
+					.url(url.toString())
+					.startedAt(Instant.now().minusNanos(durationNanos))
+					.duration(Duration.ofNanos(durationNanos))
+					.phases(Collections.unmodifiableMap(phases))
+					.newConnection(newConnection)
+					.responseCode(responseCode)
+					.failure(failure == null ? null : failure.toString())
+					.build();
+		}
+		
+	}
+	
+	/**
+	 * Returns the last two segments of the path, which is the API path for Andon's
+	 * endpoints whatever prefix the endpoint is mounted under.
+	 */
+	private static String path(HttpUrl url) {
+		List<String> segments = url.pathSegments();
+		int size = segments.size();
+		if (size > 0 && segments.get(size - 1).isEmpty()) {
+			size--;
+		}
+		if (size < 2) {
+			return url.encodedPath();
+		}
+		return segments.get(size - 2) + "/" + segments.get(size - 1);
+	}
+	
+}
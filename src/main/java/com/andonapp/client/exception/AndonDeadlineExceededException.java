@@ -0,0 +1,30 @@
+package com.andonapp.client.exception;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Exception when a request to Andon doesn't complete within its deadline. The
+ * request may or may not have been processed by Andon.
+ * 
+ * <p>Unlike {@link AndonAppException} and its subclasses, this isn't an answer from
+ * Andon but a timeout on the client's side, so it's an {@link InterruptedIOException}
+ * like OkHttp's own {@link java.net.SocketTimeoutException}. Code that already retries
+ * or logs timeouts as {@link java.io.IOException} handles it without changes.
+ */
+public class AndonDeadlineExceededException extends InterruptedIOException {
+
+	private static final long serialVersionUID = -2370416284941398263L;
+
+	public AndonDeadlineExceededException() {
+	}
+
+	public AndonDeadlineExceededException(String message) {
+		super(message);
+	}
+
+	public AndonDeadlineExceededException(String message, Throwable cause) {
+		super(message);
+		initCause(cause);
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.andonapp.client.exception;
+
+/**
+ * Exception when a request isn't sent because another one with the same idempotency
+ * key is still in flight. Whether the event reaches Andon depends on the outcome of
+ * the other request; retry once it completes, and the retry is dropped if it was
+ * accepted.
+ */
+public class AndonRequestInFlightException extends AndonAppException {
+
+	private static final long serialVersionUID = -4021653390714585226L;
+
+	public AndonRequestInFlightException() {
+	}
+
+	public AndonRequestInFlightException(String message) {
+		super(message);
+	}
+
+	public AndonRequestInFlightException(Throwable cause) {
+		super(cause);
+	}
+
+	public AndonRequestInFlightException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public AndonRequestInFlightException(String message, Throwable cause, boolean enableSuppression,
+			boolean writableStackTrace) {
+		super(message, cause, enableSuppression, writableStackTrace);
+	}
+
+}
@@ -0,0 +1,418 @@
+package com.andonapp.client.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+/**
+ * Append-only binary journal of the events a client submits to Andon and the ones
+ * Andon acknowledges. Numbers are varint encoded and org, line, station, pass result,
+ * status color and reason strings are written once to a dictionary and referenced by
+ * number afterwards, so a typical report takes around a dozen bytes instead of the
+ * couple of hundred its JSON does. An idempotency key that ends in a number, such as
+ * a PLC name and cycle number, adds a few bytes; other keys are written out in full.
+ * See {@link JournalFormat} for the layout.
+ * 
+ * <p>How much a crash can lose depends on the {@link Durability}. By default each
+ * record is written to the file as it's appended, so a crash of the process loses
+ * nothing, but a crash of the machine can lose what the operating system hasn't
+ * written to disk yet. {@link Durability#SYNC} closes that window at the cost of a
+ * disk sync per record, and {@link Durability#BUFFERED} widens it to everything
+ * appended since the last {@link #flush()}, up to 64KB. Opening an existing journal
+ * appends to it, dropping a record cut short by a crash. Use {@link JournalReader} to
+ * read it back.
+ * 
+ * <p>The following is an example usage: <pre> {@code
+ *
+ *   EventJournal journal = EventJournal.open(Paths.get("andon.journal"));
+ *   andonClient.setJournal(journal);
+ *   ...
+ *   journal.close();
+ * }</pre>
+ */
+public class EventJournal implements Closeable {
+
+	/**
+	 * When appended records reach the file and the storage device.
+	 */
+	public enum Durability {
+		
+		/**
+		 * Records are written to the file when 64KB have been buffered, on
+		 * {@link EventJournal#flush()} and on {@link EventJournal#close()}. A crash of the
+		 * process loses the buffered records.
+		 */
+		BUFFERED,
+		
+		/**
+		 * Each record is written to the file as it's appended. A crash of the process
+		 * loses nothing; a crash of the machine can lose records the operating system
+		 * hasn't written to disk yet.
+		 */
+		WRITE,
+		
+		/**
+		 * Each record is written to the file and forced to the storage device as it's
+		 * appended, so a request isn't sent, and its acknowledgement isn't returned,
+		 * until its record is on disk.
+		 */
+		SYNC
+		
+	}
+	
+	/**
+	 * Default durability.
+	 */
+	public static final Durability DEFAULT_DURABILITY = Durability.WRITE;
+	
+	/**
+	 * Default maximum number of dictionary entries. Strings seen after the dictionary
+	 * is full are written inline.
+	 */
+	public static final int DEFAULT_MAX_DICTIONARY_SIZE = 65536;
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final FileChannel channel;
+	private final Clock clock;
+	private final int maxDictionarySize;
+	private final Durability durability;
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private final RecordBuffer definitions = new RecordBuffer(64);
+	private final RecordBuffer record = new RecordBuffer(256);
+	
+	private long sequence;
+	private long timestampMillis;
+	private boolean closed;
+	
+	private EventJournal(FileChannel channel, Clock clock, int maxDictionarySize, Durability durability) {
+		this.channel = channel;
+		this.clock = clock;
+		this.maxDictionarySize = maxDictionarySize;
+		this.durability = durability;
+	}
+	
+	/**
+	 * Opens a journal for appending, creating it if it doesn't exist.
+	 * 
+	 * @param path journal file
+	 * @return the journal
+	 * @throws IOException if the file can't be opened or isn't a journal
+	 */
+	public static EventJournal open(Path path) throws IOException {
+		return open(path, DEFAULT_DURABILITY);
+	}
+	
+	/**
+	 * Opens a journal for appending, creating it if it doesn't exist.
+	 * 
+	 * @param path journal file
+	 * @param durability when records reach the file and the storage device
+	 * @return the journal
+	 * @throws IOException if the file can't be opened or isn't a journal
+	 */
+	public static EventJournal open(Path path, Durability durability) throws IOException {
+		return open(path, DEFAULT_MAX_DICTIONARY_SIZE, Clock.systemUTC(), durability);
+	}
+	
+	/**
+	 * Opens a journal for appending, creating it if it doesn't exist.
+	 * 
+	 * @param path journal file
+	 * @param maxDictionarySize maximum number of dictionary entries
+	 * @param clock clock to timestamp entries with
+	 * @return the journal
+	 * @throws IOException if the file can't be opened or isn't a journal
+	 */
+	public static EventJournal open(Path path, int maxDictionarySize, Clock clock) throws IOException {
+		return open(path, maxDictionarySize, clock, DEFAULT_DURABILITY);
+	}
+	
+	/**
+	 * Opens a journal for appending, creating it if it doesn't exist.
+	 * 
+	 * @param path journal file
+	 * @param maxDictionarySize maximum number of dictionary entries
+	 * @param clock clock to timestamp entries with
+	 * @param durability when records reach the file and the storage device
+	 * @return the journal
+	 * @throws IOException if the file can't be opened or isn't a journal
+	 */
+	public static EventJournal open(Path path, int maxDictionarySize, Clock clock, Durability durability)
+			throws IOException {
+		if (path == null) {
+			throw new IllegalArgumentException("path cannot be null");
+		}
+		if (maxDictionarySize < 0) {
+			throw new IllegalArgumentException("maxDictionarySize cannot be negative");
+		}
+		if (clock == null) {
+			throw new IllegalArgumentException("clock cannot be null");
+		}
+		if (durability == null) {
+			throw new IllegalArgumentException("durability cannot be null");
+		}
+		
+		FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		EventJournal journal = new EventJournal(channel, clock, maxDictionarySize, durability);
+		try {
+			if (channel.size() == 0) {
+				journal.writeHeader();
+			} else {
+				journal.recover(path);
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return journal;
+	}
+	
+	/**
+	 * Appends a report that is about to be submitted, along with its idempotency key.
+	 * 
+	 * @param request the report
+	 * @return sequence number to acknowledge the report with
+	 * @throws IOException if the journal can't be written
+	 */
+	public synchronized long reportSubmitted(ReportDataRequest request) throws IOException {
+		beginRecord(JournalFormat.REPORT_SUBMITTED);
+		writeReference(request.getOrgName());
+		writeReference(request.getLineName());
+		writeReference(request.getStationName());
+		writeReference(request.getPassResult());
+		Long processTime = request.getProcessTimeSeconds();
+		record.writeVarLong(processTime == null ? 0 : JournalFormat.zigzag(processTime) + 1);
+		writeReference(request.getFailReason());
+		writeInline(request.getFailNotes());
+		writeIdempotencyKey(request.getIdempotencyKey());
+		endRecord();
+		return ++sequence;
+	}
+	
+	/**
+	 * Appends a status update that is about to be submitted, along with its idempotency
+	 * key.
+	 * 
+	 * @param request the status update
+	 * @return sequence number to acknowledge the status update with
+	 * @throws IOException if the journal can't be written
+	 */
+	public synchronized long statusSubmitted(UpdateStationStatusRequest request) throws IOException {
+		beginRecord(JournalFormat.STATUS_SUBMITTED);
+		writeReference(request.getOrgName());
+		writeReference(request.getLineName());
+		writeReference(request.getStationName());
+		writeReference(request.getStatusColor());
+		writeReference(request.getStatusReason());
+		writeInline(request.getStatusNotes());
+		writeIdempotencyKey(request.getIdempotencyKey());
+		endRecord();
+		return ++sequence;
+	}
+	
+	/**
+	 * Appends the acknowledgement of a submitted event.
+	 * 
+	 * @param submittedSequence sequence number returned when the event was submitted
+	 * @throws IOException if the journal can't be written
+	 */
+	public synchronized void acknowledged(long submittedSequence) throws IOException {
+		if (submittedSequence < 1 || submittedSequence > sequence) {
+			throw new IllegalArgumentException("unknown sequence number " + submittedSequence);
+		}
+		beginRecord(JournalFormat.ACKNOWLEDGED);
+		record.writeVarLong(sequence - submittedSequence);
+		endRecord();
+	}
+	
+	/**
+	 * Writes buffered records to the file. Doesn't force them to the storage device
+	 * unless the journal is {@link Durability#SYNC}.
+	 * 
+	 * @throws IOException if the journal can't be written
+	 */
+	public synchronized void flush() throws IOException {
+		ensureOpen();
+		drain();
+		if (durability == Durability.SYNC) {
+			force();
+		}
+	}
+	
+	/**
+	 * Writes buffered records to the file and closes it.
+	 * 
+	 * @throws IOException if the journal can't be written
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			drain();
+		} finally {
+			closed = true;
+			channel.close();
+		}
+	}
+	
+	private void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(JournalFormat.HEADER_LENGTH);
+		header.put(JournalFormat.MAGIC).put(JournalFormat.VERSION).flip();
+		writeFully(header);
+	}
+	
+	private void recover(Path path) throws IOException {
+		try (JournalReader reader = JournalReader.open(path)) {
+			if (reader.getVersion() != JournalFormat.VERSION) {
+				throw new IOException(String.format("%s has journal version %s and can only be read; start a new journal",
+						path, reader.getVersion()));
+			}
+			while (reader.next() != null) {
+				// replay to rebuild the dictionary and counters
+			}
+			List<String> entries = reader.getDictionary();
+			for (int i = 0; i < entries.size(); i++) {
+				dictionary.put(entries.get(i), i + 1);
+			}
+			sequence = reader.getSequence();
+			timestampMillis = reader.getTimestampMillis();
+			channel.truncate(reader.getValidLength());
+			channel.position(reader.getValidLength());
+		}
+	}
+	
+	private void beginRecord(byte type) throws IOException {
+		ensureOpen();
+		definitions.clear();
+		record.clear();
+		
+		long now = clock.millis();
+		record.writeByte(type);
+		record.writeVarLong(JournalFormat.zigzag(now - timestampMillis));
+		timestampMillis = now;
+	}
+	
+	private void endRecord() throws IOException {
+		append(definitions.asByteBuffer());
+		append(record.asByteBuffer());
+		if (durability != Durability.BUFFERED) {
+			flush();
+		}
+	}
+	
+	private void writeReference(String value) {
+		if (value == null) {
+			record.writeVarLong(JournalFormat.NULL_TAG);
+			return;
+		}
+		
+		Integer id = dictionary.get(value);
+		if (id == null) {
+			if (dictionary.size() >= maxDictionarySize) {
+				writeInline(value);
+				return;
+			}
+			id = dictionary.size() + 1;
+			dictionary.put(value, id);
+			
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			definitions.writeByte(JournalFormat.DEFINE);
+			definitions.writeVarLong(bytes.length);
+			definitions.writeBytes(bytes);
+		}
+		record.writeVarLong((long) id << 1);
+	}
+	
+	private void writeIdempotencyKey(String key) {
+		if (key == null) {
+			record.writeVarLong(JournalFormat.NULL_KEY);
+			return;
+		}
+		
+		int numberStart = JournalFormat.keyNumberStart(key);
+		if (numberStart < 0) {
+			record.writeVarLong(JournalFormat.INLINE_KEY);
+			writeInline(key);
+		} else {
+			record.writeVarLong(Long.parseLong(key.substring(numberStart)) + JournalFormat.NUMBERED_KEY);
+			writeReference(key.substring(0, numberStart));
+		}
+	}
+	
+	private void writeInline(String value) {
+		if (value == null) {
+			record.writeVarLong(JournalFormat.NULL_TAG);
+			return;
+		}
+		
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		record.writeVarLong(((long) bytes.length << 1) | 1);
+		record.writeBytes(bytes);
+	}
+	
+	private void append(ByteBuffer bytes) throws IOException {
+		if (bytes.remaining() > buffer.remaining()) {
+			drain();
+		}
+		if (bytes.remaining() > buffer.remaining()) {
+			writeFully(bytes);
+		} else {
+			buffer.put(bytes);
+		}
+	}
+	
+	private void drain() throws IOException {
+		buffer.flip();
+		try {
+			writeFully(buffer);
+		} finally {
+			buffer.clear();
+		}
+	}
+	
+	private void writeFully(ByteBuffer bytes) throws IOException {
+		try {
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		} catch (IOException e) {
+			// the file no longer matches the dictionary and counters
+			closed = true;
+			channel.close();
+			throw e;
+		}
+	}
+	
+	private void force() throws IOException {
+		try {
+			channel.force(false);
+		} catch (IOException e) {
+			closed = true;
+			channel.close();
+			throw e;
+		}
+	}
+	
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("journal is closed");
+		}
+	}
+	
+}
@@ -0,0 +1,61 @@
+package com.andonapp.client.journal;
+
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A single event read back from an {@link EventJournal}.
+ */
+@Builder
+@Getter
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JournalEntry {
+
+	/**
+	 * Kinds of journal entries.
+	 */
+	public enum Type {
+		REPORT_SUBMITTED,
+		STATUS_SUBMITTED,
+		ACKNOWLEDGED
+	}
+	
+	/**
+	 * Kind of entry.
+	 */
+	private final Type type;
+	
+	/**
+	 * Sequence number of the submitted event. For an acknowledgement, the sequence
+	 * number of the event that was acknowledged.
+	 */
+	private final long sequence;
+	
+	/**
+	 * Time the entry was written, in milliseconds since the epoch.
+	 */
+	private final long timestampMillis;
+	
+	/**
+	 * The report, for {@link Type#REPORT_SUBMITTED} entries.
+	 */
+	private final ReportDataRequest report;
+	
+	/**
+	 * The status update, for {@link Type#STATUS_SUBMITTED} entries.
+	 */
+	private final UpdateStationStatusRequest status;
+	
+	/**
+	 * Idempotency key the caller set on the event, for submitted entries. Null if the
+	 * event was sent with a random key, or in journals written before keys were recorded.
+	 */
+	private final String idempotencyKey;
+	
+}
@@ -0,0 +1,81 @@
+package com.andonapp.client.journal;
+
+/**
+ * Layout of a journal file.
+ * 
+ * <p>A journal starts with the four magic bytes {@code ANDJ} and a version byte,
+ * followed by records that each start with a type byte. Numbers are unsigned LEB128
+ * varints, and signed numbers are zigzag encoded first. Strings are written as a
+ * varint tag: 0 for null, an odd tag for an inline UTF-8 string of {@code tag >> 1}
+ * bytes, or an even tag for entry {@code tag >> 1} of the dictionary.
+ * 
+ * <pre>
+ * DEFINE            length, UTF-8 bytes          next dictionary entry, numbered from 1
+ * REPORT_SUBMITTED  time, org, line, station, passResult, processTime, failReason, failNotes, key
+ * STATUS_SUBMITTED  time, org, line, station, statusColor, statusReason, statusNotes, key
+ * ACKNOWLEDGED      time, sequences back
+ * </pre>
+ * 
+ * <p>Times are the signed difference in milliseconds from the previous record's time.
+ * Submitted records are numbered from 1 in file order, and an acknowledgement stores
+ * how far back from the latest submitted record the acknowledged one is. A process
+ * time is 0 for null, otherwise the zigzag encoded value plus one.
+ * 
+ * <p>An idempotency key starts with a varint: 0 for null, 1 for a key written as an
+ * inline string, or {@code n + 2} for a key that ends in the number {@code n}, written
+ * as the string before the number. That string is usually the same for every event
+ * from a source, such as {@code plc-7:cycle-}, so it goes in the dictionary. Version 1
+ * journals don't have keys.
+ */
+final class JournalFormat {
+
+	static final byte[] MAGIC = {'A', 'N', 'D', 'J'};
+	static final byte VERSION = 2;
+	static final byte FIRST_VERSION = 1;
+	static final int HEADER_LENGTH = MAGIC.length + 1;
+	
+	static final byte DEFINE = 0;
+	static final byte REPORT_SUBMITTED = 1;
+	static final byte STATUS_SUBMITTED = 2;
+	static final byte ACKNOWLEDGED = 3;
+	
+	static final int NULL_TAG = 0;
+	
+	static final int NULL_KEY = 0;
+	static final int INLINE_KEY = 1;
+	static final int NUMBERED_KEY = 2;
+	
+	/**
+	 * Longest number split off the end of an idempotency key, so that it fits a long.
+	 */
+	private static final int MAX_KEY_NUMBER_DIGITS = 18;
+	
+	private JournalFormat() {
+		// static class
+	}
+	
+	static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+	
+	static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	/**
+	 * Returns where the number a key ends in starts, or -1 if it doesn't end in one.
+	 * Leading zeros are left out of the number, so that it prints back the same.
+	 */
+	static int keyNumberStart(String key) {
+		int start = key.length();
+		while (start > 0 && key.charAt(start - 1) >= '0' && key.charAt(start - 1) <= '9') {
+			start--;
+		}
+		while (start < key.length() - 1 && key.charAt(start) == '0') {
+			start++;
+		}
+		int digits = key.length() - start;
+		return digits > 0 && digits <= MAX_KEY_NUMBER_DIGITS ? start : -1;
+	}
+	
+}
@@ -0,0 +1,328 @@
+package com.andonapp.client.journal;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Sequential reader for files written by {@link EventJournal}. A record cut short at
+ * the end of the file, as left by a crash mid-write, is treated as the end of the
+ * journal.
+ * 
+ * <p>The following is an example usage: <pre> {@code
+ *
+ *   try (JournalReader reader = JournalReader.open(path)) {
+ *       JournalEntry entry;
+ *       while ((entry = reader.next()) != null) {
+ *           ...
+ *       }
+ *   }
+ * }</pre>
+ */
+public class JournalReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final Path path;
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private final List<String> dictionary = new ArrayList<>();
+	
+	private byte version;
+	private long position;
+	private long validLength;
+	private long sequence;
+	private long timestampMillis;
+	
+	private JournalReader(Path path, FileChannel channel) {
+		this.path = path;
+		this.channel = channel;
+		this.buffer.flip();
+	}
+	
+	/**
+	 * Opens a journal for reading.
+	 * 
+	 * @param path journal file
+	 * @return reader positioned at the first entry
+	 * @throws IOException if the file can't be read or isn't a journal
+	 */
+	public static JournalReader open(Path path) throws IOException {
+		JournalReader reader = new JournalReader(path, FileChannel.open(path, StandardOpenOption.READ));
+		try {
+			reader.readHeader();
+		} catch (IOException e) {
+			reader.close();
+			throw e;
+		}
+		return reader;
+	}
+	
+	/**
+	 * Reads the next entry.
+	 * 
+	 * @return the entry, or null at the end of the journal
+	 * @throws IOException if the file can't be read or is corrupt
+	 */
+	public JournalEntry next() throws IOException {
+		while (true) {
+			if (!buffer.hasRemaining() && !fill()) {
+				return null;
+			}
+			
+			JournalEntry entry;
+			try {
+				entry = readRecord();
+			} catch (EOFException e) {
+				return null;
+			}
+			validLength = position;
+			if (entry != null) {
+				return entry;
+			}
+		}
+	}
+	
+	/**
+	 * Writes every remaining entry as a line of JSON.
+	 * 
+	 * @param writer destination, left open
+	 * @return number of entries written
+	 * @throws IOException if the journal can't be read or the writer fails
+	 */
+	public long exportJson(Writer writer) throws IOException {
+		ObjectMapper objectMapper = new ObjectMapper();
+		long count = 0;
+		JournalEntry entry;
+		while ((entry = next()) != null) {
+			writer.write(objectMapper.writeValueAsString(entry));
+			writer.write('\n');
+			count++;
+		}
+		writer.flush();
+		return count;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	/**
+	 * Length of the journal up to the end of the last complete record read.
+	 */
+	long getValidLength() {
+		return validLength;
+	}
+	
+	byte getVersion() {
+		return version;
+	}
+	
+	long getSequence() {
+		return sequence;
+	}
+	
+	long getTimestampMillis() {
+		return timestampMillis;
+	}
+	
+	List<String> getDictionary() {
+		return dictionary;
+	}
+	
+	private void readHeader() throws IOException {
+		try {
+			byte[] magic = readBytes(JournalFormat.MAGIC.length);
+			if (!Arrays.equals(magic, JournalFormat.MAGIC)) {
+				throw new IOException(path + " is not an Andon event journal");
+			}
+			version = readByte();
+			if (version < JournalFormat.FIRST_VERSION || version > JournalFormat.VERSION) {
+				throw new IOException(String.format("%s has unsupported journal version %s", path, version));
+			}
+		} catch (EOFException e) {
+			throw new IOException(path + " is not an Andon event journal", e);
+		}
+		validLength = position;
+	}
+	
+	/**
+	 * Reads one record, returning null for dictionary definitions.
+	 */
+	private JournalEntry readRecord() throws IOException {
+		long recordStart = position;
+		byte type = readByte();
+		if (type == JournalFormat.DEFINE) {
+			dictionary.add(new String(readBytes(readLength()), StandardCharsets.UTF_8));
+			return null;
+		}
+		
+		long timestamp = timestampMillis + JournalFormat.unzigzag(readVarLong());
+		JournalEntry entry;
+		switch (type) {
+		case JournalFormat.REPORT_SUBMITTED: {
+			ReportDataRequest report = ReportDataRequest.builder()
+					.orgName(readString())
+					.lineName(readString())
+					.stationName(readString())
+					.passResult(readString())
+					.processTimeSeconds(readNullableLong())
+					.failReason(readString())
+					.failNotes(readString())
+					.idempotencyKey(readIdempotencyKey())
+					.build();
+			entry = JournalEntry.builder()
+					.type(JournalEntry.Type.REPORT_SUBMITTED)
+					.sequence(sequence + 1)
+					.timestampMillis(timestamp)
+					.report(report)
+					.idempotencyKey(report.getIdempotencyKey())
+					.build();
+			sequence++;
+			break;
+		}
+		case JournalFormat.STATUS_SUBMITTED: {
+			UpdateStationStatusRequest status = UpdateStationStatusRequest.builder()
+					.orgName(readString())
+					.lineName(readString())
+					.stationName(readString())
+					.statusColor(readString())
+					.statusReason(readString())
+					.statusNotes(readString())
+					.idempotencyKey(readIdempotencyKey())
+					.build();
+			entry = JournalEntry.builder()
+					.type(JournalEntry.Type.STATUS_SUBMITTED)
+					.sequence(sequence + 1)
+					.timestampMillis(timestamp)
+					.status(status)
+					.idempotencyKey(status.getIdempotencyKey())
+					.build();
+			sequence++;
+			break;
+		}
+		case JournalFormat.ACKNOWLEDGED:
+			entry = JournalEntry.builder()
+					.type(JournalEntry.Type.ACKNOWLEDGED)
+					.sequence(sequence - readVarLong())
+					.timestampMillis(timestamp)
+					.build();
+			break;
+		default:
+			throw corrupt(recordStart, "unknown record type " + type);
+		}
+		
+		timestampMillis = timestamp;
+		return entry;
+	}
+	
+	private String readString() throws IOException {
+		long tag = readVarLong();
+		if (tag == JournalFormat.NULL_TAG) {
+			return null;
+		}
+		if ((tag & 1) == 1) {
+			return new String(readBytes(checkLength(tag >>> 1)), StandardCharsets.UTF_8);
+		}
+		long id = tag >>> 1;
+		if (id > dictionary.size()) {
+			throw corrupt(position, "undefined dictionary entry " + id);
+		}
+		return dictionary.get((int) id - 1);
+	}
+	
+	private String readIdempotencyKey() throws IOException {
+		if (version == JournalFormat.FIRST_VERSION) {
+			return null;
+		}
+		long tag = readVarLong();
+		if (tag == JournalFormat.NULL_KEY) {
+			return null;
+		}
+		String key = readString();
+		if (key == null) {
+			throw corrupt(position, "missing idempotency key");
+		}
+		return tag == JournalFormat.INLINE_KEY ? key : key + (tag - JournalFormat.NUMBERED_KEY);
+	}
+	
+	private Long readNullableLong() throws IOException {
+		long value = readVarLong();
+		return value == 0 ? null : JournalFormat.unzigzag(value - 1);
+	}
+	
+	private int readLength() throws IOException {
+		return checkLength(readVarLong());
+	}
+	
+	private int checkLength(long length) throws IOException {
+		if (length > Integer.MAX_VALUE - 8) {
+			throw corrupt(position, "string of " + length + " bytes");
+		}
+		return (int) length;
+	}
+	
+	private long readVarLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw corrupt(position, "varint longer than 10 bytes");
+	}
+	
+	private byte readByte() throws IOException {
+		if (!buffer.hasRemaining() && !fill()) {
+			throw new EOFException();
+		}
+		position++;
+		return buffer.get();
+	}
+	
+	private byte[] readBytes(int length) throws IOException {
+		if (length > buffer.remaining() && position + length > channel.size()) {
+			throw new EOFException();
+		}
+		byte[] bytes = new byte[length];
+		int offset = 0;
+		while (offset < length) {
+			if (!buffer.hasRemaining() && !fill()) {
+				throw new EOFException();
+			}
+			int chunk = Math.min(buffer.remaining(), length - offset);
+			buffer.get(bytes, offset, chunk);
+			offset += chunk;
+			position += chunk;
+		}
+		return bytes;
+	}
+	
+	private boolean fill() throws IOException {
+		buffer.clear();
+		int read = channel.read(buffer);
+		buffer.flip();
+		return read > 0;
+	}
+	
+	private IOException corrupt(long offset, String message) {
+		return new IOException(String.format("Corrupt journal %s at offset %s: %s", path, offset, message));
+	}
+	
+}
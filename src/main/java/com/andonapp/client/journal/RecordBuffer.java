@@ -0,0 +1,59 @@
+package com.andonapp.client.journal;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable byte array that a single record is encoded into before it is appended.
+ */
+final class RecordBuffer {
+
+	private byte[] bytes;
+	private int length;
+	
+	RecordBuffer(int initialCapacity) {
+		this.bytes = new byte[initialCapacity];
+	}
+	
+	void clear() {
+		length = 0;
+	}
+	
+	int length() {
+		return length;
+	}
+	
+	void writeByte(int value) {
+		ensureCapacity(1);
+		bytes[length++] = (byte) value;
+	}
+	
+	void writeVarLong(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[length++] = (byte) value;
+	}
+	
+	void writeBytes(byte[] value) {
+		ensureCapacity(value.length);
+		System.arraycopy(value, 0, bytes, length, value.length);
+		length += value.length;
+	}
+	
+	/**
+	 * Returns a view of the encoded bytes, valid until the next write.
+	 */
+	ByteBuffer asByteBuffer() {
+		return ByteBuffer.wrap(bytes, 0, length);
+	}
+	
+	private void ensureCapacity(int extra) {
+		if (length + extra > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+		}
+	}
+	
+}
@@ -0,0 +1,71 @@
+package com.andonapp.client.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Request object for setting the same status on several stations of a line.
+ */
+@Builder
+@ToString
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusUpdateRequest {
+
+	/**
+	 * Name of the line. Cannot be null.
+	 */
+	private String lineName;
+	
+	/**
+	 * Names of the stations to update. Cannot be null. Duplicates are updated once.
+	 */
+	private List<String> stationNames;
+	
+	/**
+	 * Must be 'GREEN', 'YELLOW', or 'RED'.
+	 */
+	private String statusColor;
+	
+	/**
+	 * Reason for the change. May be null.
+	 */
+	private String statusReason;
+	
+	/**
+	 * Notes on the change. May be null, depending on org settings.
+	 */
+	private String statusNotes;
+	
+	/**
+	 * Key identifying this event. Each station's update is sent with the key followed
+	 * by ':' and the station name. A random key is sent for each update if null.
+	 */
+	private String idempotencyKey;
+	
+	/**
+	 * Creates the status update for one of the stations.
+	 * 
+	 * @param stationName name of the station
+	 * @return status update
+	 */
+	public UpdateStationStatusRequest forStation(String stationName) {
+		return UpdateStationStatusRequest.builder()
+				.lineName(lineName)
+				.stationName(stationName)
+				.statusColor(statusColor)
+				.statusReason(statusReason)
+				.statusNotes(statusNotes)
+				.idempotencyKey(idempotencyKey == null ? null : idempotencyKey + ":" + stationName)
+				.build();
+	}
+	
+}
@@ -0,0 +1,43 @@
+package com.andonapp.client.model;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Outcome of a {@link BulkStatusUpdateRequest} for each of its stations.
+ */
+@Builder
+@Getter
+@ToString
+public class BulkStatusUpdateResult {
+
+	/**
+	 * Name of the line.
+	 */
+	private final String lineName;
+	
+	/**
+	 * Stations whose status was updated, in request order.
+	 */
+	private final List<String> updatedStations;
+	
+	/**
+	 * Stations whose update failed, in request order, with the exception each update
+	 * failed with.
+	 */
+	private final Map<String, Exception> failedStations;
+	
+	/**
+	 * Returns whether every station was updated.
+	 * 
+	 * @return true if no update failed
+	 */
+	public boolean isSuccessful() {
+		return failedStations.isEmpty();
+	}
+	
+}
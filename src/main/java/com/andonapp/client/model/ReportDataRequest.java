@@ -1,5 +1,6 @@
 package com.andonapp.client.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
@@ -13,7 +14,7 @@ import lombok.ToString;
 /**
  * Request object for reporting process data.
  */
-@Builder
+@Builder(toBuilder = true)
 @ToString
 @Getter
 @Setter
@@ -58,4 +59,12 @@ public class ReportDataRequest {
 	 */
 	private String failNotes;
 	
+	/**
+	 * Key identifying this event, so that resubmissions of it can be recognized. Sent
+	 * as the Idempotency-Key header rather than in the body. A random key is sent for
+	 * each call if null.
+	 */
+	@JsonIgnore
+	private String idempotencyKey;
+	
 }
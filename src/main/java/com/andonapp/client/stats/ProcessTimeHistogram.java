@@ -0,0 +1,80 @@
+package com.andonapp.client.stats;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Compact log-linear histogram of process times in seconds. Values below 8 are
+ * counted exactly; above that every power of two is split into 8 sub-buckets, so a
+ * reported percentile is within 1/16 of the true value. Values of 2^21 seconds
+ * (about 24 days) and above share the last bucket.
+ */
+final class ProcessTimeHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 20;
+	
+	static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+	
+	private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+	
+	private final AtomicIntegerArray counts = new AtomicIntegerArray(BUCKET_COUNT);
+	
+	void record(long seconds) {
+		counts.incrementAndGet(indexOf(seconds));
+	}
+	
+	/**
+	 * Adds this histogram's counts to the given totals.
+	 */
+	void addTo(long[] totals) {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			totals[i] += counts.get(i);
+		}
+	}
+	
+	static int indexOf(long seconds) {
+		long value = Math.max(0, Math.min(MAX_VALUE, seconds));
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+	}
+	
+	/**
+	 * Returns a representative value for a bucket, the midpoint of the values it holds.
+	 */
+	static long valueOf(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+		int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		long lower = (SUB_BUCKETS + subBucket) * width;
+		return lower + (width - 1) / 2;
+	}
+	
+	/**
+	 * Returns the value at a percentile of the given totals.
+	 * 
+	 * @return value in seconds, or null if the totals are empty
+	 */
+	static Long percentile(long[] totals, long count, double percentile) {
+		if (count == 0) {
+			return null;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+		long seen = 0;
+		for (int i = 0; i < totals.length; i++) {
+			seen += totals[i];
+			if (seen >= rank) {
+				return valueOf(i);
+			}
+		}
+		return valueOf(totals.length - 1);
+	}
+	
+}
@@ -0,0 +1,262 @@
+package com.andonapp.client.stats;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.andonapp.client.model.ReportDataRequest;
+
+/**
+ * Rolling per-station production statistics built from the reports a client has
+ * successfully sent. For every (lineName, stationName) it keeps PASS/FAIL counts, fail
+ * reasons and a process time histogram over a trailing window, split into buckets
+ * that age out one at a time.
+ *
+ * <p>Recording for a station that has been seen before takes no locks. Memory is
+ * bounded by the maximum number of stations, the number of buckets, and the maximum
+ * number of fail reasons per bucket; reports for stations beyond the maximum are
+ * counted but otherwise ignored.
+ *
+ * <p>The following is an example usage: <pre> {@code
+ *
+ *   StationStatistics statistics = new StationStatistics();
+ *   andonClient.setStatistics(statistics);
+ *   ...
+ *   StationStatisticsSnapshot snapshot = statistics.snapshot("line 1", "station 1");
+ * }</pre>
+ */
+public class StationStatistics {
+
+	/**
+	 * Default window of one hour.
+	 */
+	public static final Duration DEFAULT_WINDOW = Duration.ofHours(1);
+	
+	/**
+	 * Default number of buckets the window is split into.
+	 */
+	public static final int DEFAULT_BUCKET_COUNT = 12;
+	
+	/**
+	 * Default maximum number of stations tracked.
+	 */
+	public static final int DEFAULT_MAX_STATIONS = 2000;
+	
+	/**
+	 * Default maximum number of distinct fail reasons per bucket.
+	 */
+	public static final int DEFAULT_MAX_FAIL_REASONS = 16;
+	
+	private static final int PASS = 0;
+	private static final int FAIL = 1;
+	private static final int MAX = 2;
+	
+	private final Clock clock;
+	private final long bucketMillis;
+	private final int bucketCount;
+	private final int maxStations;
+	private final int maxFailReasons;
+	
+	private final ConcurrentMap<String, ConcurrentMap<String, StationWindow>> lines = new ConcurrentHashMap<>();
+	private final AtomicInteger stationCount = new AtomicInteger();
+	private final LongAdder droppedReports = new LongAdder();
+	
+	/**
+	 * Constructs statistics with the default window and limits.
+	 */
+	public StationStatistics() {
+		this(DEFAULT_WINDOW, DEFAULT_BUCKET_COUNT, DEFAULT_MAX_STATIONS, DEFAULT_MAX_FAIL_REASONS, Clock.systemUTC());
+	}
+	
+	/**
+	 * Constructs statistics with a custom window and limits.
+	 *
+	 * @param window length of the trailing window
+	 * @param bucketCount number of buckets the window is split into
+	 * @param maxStations maximum number of stations tracked
+	 * @param maxFailReasons maximum number of distinct fail reasons per bucket
+	 * @param clock clock to read the time from
+	 */
+	public StationStatistics(Duration window, int bucketCount, int maxStations, int maxFailReasons, Clock clock) {
+		if (window == null || window.isNegative() || window.isZero()) {
+			throw new IllegalArgumentException("window must be positive");
+		}
+		if (bucketCount < 1 || window.toMillis() < bucketCount) {
+			throw new IllegalArgumentException("bucketCount must be between 1 and the window in millis");
+		}
+		if (maxStations < 1) {
+			throw new IllegalArgumentException("maxStations must be at least 1");
+		}
+		if (maxFailReasons < 1) {
+			throw new IllegalArgumentException("maxFailReasons must be at least 1");
+		}
+		if (clock == null) {
+			throw new IllegalArgumentException("clock cannot be null");
+		}
+		this.bucketMillis = window.toMillis() / bucketCount;
+		this.bucketCount = bucketCount;
+		this.maxStations = maxStations;
+		this.maxFailReasons = maxFailReasons;
+		this.clock = clock;
+	}
+	
+	/**
+	 * Records a report that Andon accepted.
+	 *
+	 * @param request the report
+	 */
+	public void record(ReportDataRequest request) {
+		if (request.getLineName() == null || request.getStationName() == null) {
+			return;
+		}
+		
+		long now = clock.millis();
+		StationWindow station = findOrCreate(request.getLineName(), request.getStationName(), now);
+		if (station == null) {
+			droppedReports.increment();
+			return;
+		}
+		
+		station.bucketFor(now / bucketMillis).record("PASS".equals(request.getPassResult()),
+				request.getFailReason(), request.getProcessTimeSeconds());
+	}
+	
+	/**
+	 * Returns the statistics of a station over the trailing window.
+	 *
+	 * @param lineName name of the line
+	 * @param stationName name of the station
+	 * @return snapshot, or null if nothing was ever recorded for the station
+	 */
+	public StationStatisticsSnapshot snapshot(String lineName, String stationName) {
+		Map<String, StationWindow> stations = lines.get(lineName);
+		StationWindow station = stations == null ? null : stations.get(stationName);
+		return station == null ? null : snapshot(station, clock.millis());
+	}
+	
+	/**
+	 * Returns the statistics of every station on a line.
+	 *
+	 * @param lineName name of the line
+	 * @return snapshots, empty if nothing was recorded for the line
+	 */
+	public List<StationStatisticsSnapshot> snapshotLine(String lineName) {
+		Map<String, StationWindow> stations = lines.get(lineName);
+		if (stations == null) {
+			return Collections.emptyList();
+		}
+		long now = clock.millis();
+		List<StationStatisticsSnapshot> snapshots = new ArrayList<>(stations.size());
+		for (StationWindow station : stations.values()) {
+			snapshots.add(snapshot(station, now));
+		}
+		return snapshots;
+	}
+	
+	/**
+	 * Returns the statistics of every station.
+	 *
+	 * @return snapshots
+	 */
+	public List<StationStatisticsSnapshot> snapshotAll() {
+		long now = clock.millis();
+		List<StationStatisticsSnapshot> snapshots = new ArrayList<>(stationCount.get());
+		for (Map<String, StationWindow> stations : lines.values()) {
+			for (StationWindow station : stations.values()) {
+				snapshots.add(snapshot(station, now));
+			}
+		}
+		return snapshots;
+	}
+	
+	/**
+	 * Returns how many reports were ignored because the maximum number of stations
+	 * was already tracked.
+	 *
+	 * @return count
+	 */
+	public long getDroppedReportCount() {
+		return droppedReports.sum();
+	}
+	
+	private StationWindow findOrCreate(String lineName, String stationName, long now) {
+		ConcurrentMap<String, StationWindow> stations = lines.get(lineName);
+		StationWindow station = stations == null ? null : stations.get(stationName);
+		if (station != null) {
+			return station;
+		}
+		
+		if (stationCount.get() >= maxStations) {
+			return null;
+		}
+		if (stations == null) {
+			stations = lines.computeIfAbsent(lineName, key -> new ConcurrentHashMap<>());
+		}
+		return stations.computeIfAbsent(stationName, key -> {
+			if (stationCount.incrementAndGet() > maxStations) {
+				stationCount.decrementAndGet();
+				return null;
+			}
+			return new StationWindow(lineName, stationName, bucketCount, maxFailReasons, now);
+		});
+	}
+	
+	private StationStatisticsSnapshot snapshot(StationWindow station, long now) {
+		long[] histogram = new long[ProcessTimeHistogram.BUCKET_COUNT];
+		Map<String, Long> failReasons = new HashMap<>();
+		long[] totals = {0, 0, Long.MIN_VALUE};
+		
+		station.forEachLive(now / bucketMillis, bucket -> {
+			totals[PASS] += bucket.passCount.sum();
+			totals[FAIL] += bucket.failCount.sum();
+			totals[MAX] = Math.max(totals[MAX], bucket.maxProcessTime.get());
+			bucket.processTimes.addTo(histogram);
+			bucket.failReasons.forEach((reason, count) -> failReasons.merge(reason, count.sum(), Long::sum));
+		});
+		
+		long passes = totals[PASS];
+		long fails = totals[FAIL];
+		long reports = passes + fails;
+		long timed = 0;
+		for (long count : histogram) {
+			timed += count;
+		}
+		
+		long windowMillis = Math.min(bucketMillis * bucketCount, Math.max(1, now - station.firstSeenMillis));
+		
+		return StationStatisticsSnapshot.builder()
+				.lineName(station.lineName)
+				.stationName(station.stationName)
+				.window(Duration.ofMillis(windowMillis))
+				.passCount(passes)
+				.failCount(fails)
+				.firstPassYield(reports == 0 ? Double.NaN : (double) passes / reports)
+				.throughputPerHour(reports * (double) Duration.ofHours(1).toMillis() / windowMillis)
+				.failReasons(sortByCount(failReasons))
+				.processTimeP50(ProcessTimeHistogram.percentile(histogram, timed, 50))
+				.processTimeP90(ProcessTimeHistogram.percentile(histogram, timed, 90))
+				.processTimeP99(ProcessTimeHistogram.percentile(histogram, timed, 99))
+				.processTimeMax(timed == 0 ? null : totals[MAX])
+				.build();
+	}
+	
+	private static Map<String, Long> sortByCount(Map<String, Long> counts) {
+		List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+		entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+		Map<String, Long> sorted = new LinkedHashMap<>();
+		for (Map.Entry<String, Long> entry : entries) {
+			sorted.put(entry.getKey(), entry.getValue());
+		}
+		return Collections.unmodifiableMap(sorted);
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.andonapp.client.stats;
+
+import java.time.Duration;
+import java.util.Map;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Statistics for a single station over the trailing statistics window, as of the time
+ * the snapshot was taken.
+ */
+@Builder
+@Getter
+@ToString
+public class StationStatisticsSnapshot {
+
+	/**
+	 * Name of the line.
+	 */
+	private final String lineName;
+	
+	/**
+	 * Name of the station.
+	 */
+	private final String stationName;
+	
+	/**
+	 * Length of time the counts cover. Shorter than the configured window if the
+	 * station was first seen less than a window ago.
+	 */
+	private final Duration window;
+	
+	/**
+	 * Number of PASS reports.
+	 */
+	private final long passCount;
+	
+	/**
+	 * Number of FAIL reports.
+	 */
+	private final long failCount;
+	
+	/**
+	 * Fraction of reports that passed, between 0 and 1. NaN when nothing was reported.
+	 * Andon counts every report as a first pass, so this is the pass rate of reports.
+	 */
+	private final double firstPassYield;
+	
+	/**
+	 * Reports per hour over the window.
+	 */
+	private final double throughputPerHour;
+	
+	/**
+	 * FAIL counts by fail reason, most frequent first. Reasons beyond the tracked limit
+	 * are counted under {@code (other)}, and FAILs without a reason under {@code (none)}.
+	 */
+	private final Map<String, Long> failReasons;
+	
+	/**
+	 * Median process time in seconds. Null when nothing was reported.
+	 */
+	private final Long processTimeP50;
+	
+	/**
+	 * 90th percentile process time in seconds. Null when nothing was reported.
+	 */
+	private final Long processTimeP90;
+	
+	/**
+	 * 99th percentile process time in seconds. Null when nothing was reported.
+	 */
+	private final Long processTimeP99;
+	
+	/**
+	 * Longest process time in seconds. Null when nothing was reported.
+	 */
+	private final Long processTimeMax;
+	
+}
@@ -0,0 +1,56 @@
+package com.andonapp.client.stats;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Ring of buckets covering the statistics window of a single station. A slot is
+ * recycled by swapping in a fresh bucket with a compare-and-set once its epoch has
+ * passed out of the window, so recording never blocks.
+ */
+final class StationWindow {
+
+	final String lineName;
+	final String stationName;
+	final long firstSeenMillis;
+	
+	private final AtomicReferenceArray<StatsBucket> buckets;
+	private final int maxFailReasons;
+	
+	StationWindow(String lineName, String stationName, int bucketCount, int maxFailReasons, long nowMillis) {
+		this.lineName = lineName;
+		this.stationName = stationName;
+		this.firstSeenMillis = nowMillis;
+		this.buckets = new AtomicReferenceArray<>(bucketCount);
+		this.maxFailReasons = maxFailReasons;
+	}
+	
+	StatsBucket bucketFor(long epoch) {
+		int slot = (int) (epoch % buckets.length());
+		while (true) {
+			StatsBucket bucket = buckets.get(slot);
+			if (bucket != null && bucket.epoch >= epoch) {
+				// a late record for an older slice lands in the newer one
+				return bucket;
+			}
+			StatsBucket fresh = new StatsBucket(epoch, maxFailReasons);
+			if (buckets.compareAndSet(slot, bucket, fresh)) {
+				return fresh;
+			}
+		}
+	}
+	
+	/**
+	 * Visits every bucket whose epoch is within the window ending at the given epoch.
+	 */
+	void forEachLive(long currentEpoch, Consumer<StatsBucket> visitor) {
+		long oldest = currentEpoch - buckets.length() + 1;
+		for (int i = 0; i < buckets.length(); i++) {
+			StatsBucket bucket = buckets.get(i);
+			if (bucket != null && bucket.epoch >= oldest && bucket.epoch <= currentEpoch) {
+				visitor.accept(bucket);
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,53 @@
+package com.andonapp.client.stats;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts for one station over one slice of the statistics window.
+ */
+final class StatsBucket {
+
+	static final String OTHER_FAIL_REASON = "(other)";
+	static final String NO_FAIL_REASON = "(none)";
+	
+	final long epoch;
+	final LongAdder passCount = new LongAdder();
+	final LongAdder failCount = new LongAdder();
+	final LongAccumulator maxProcessTime = new LongAccumulator(Math::max, Long.MIN_VALUE);
+	final ProcessTimeHistogram processTimes = new ProcessTimeHistogram();
+	final Map<String, LongAdder> failReasons = new ConcurrentHashMap<>();
+	
+	private final int maxFailReasons;
+	
+	StatsBucket(long epoch, int maxFailReasons) {
+		this.epoch = epoch;
+		this.maxFailReasons = maxFailReasons;
+	}
+	
+	void record(boolean pass, String failReason, Long processTimeSeconds) {
+		if (pass) {
+			passCount.increment();
+		} else {
+			failCount.increment();
+			failReasonCount(failReason == null ? NO_FAIL_REASON : failReason).increment();
+		}
+		if (processTimeSeconds != null) {
+			processTimes.record(processTimeSeconds);
+			maxProcessTime.accumulate(processTimeSeconds);
+		}
+	}
+	
+	private LongAdder failReasonCount(String failReason) {
+		LongAdder count = failReasons.get(failReason);
+		if (count != null) {
+			return count;
+		}
+		// the cap is approximate under contention, which is fine for bounding memory
+		String key = failReasons.size() < maxFailReasons ? failReason : OTHER_FAIL_REASON;
+		return failReasons.computeIfAbsent(key, reason -> new LongAdder());
+	}
+	
+}
@@ -0,0 +1,146 @@
+package com.andonapp.client;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InterruptedIOException;
+
+import org.junit.Test;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+
+public class CallRaceTest {
+
+	private final Request request = new Request.Builder().url("http://localhost/station/update").build();
+	
+	@Test
+	public void shouldCancelCallsAndCloseLateResponseWhenInterrupted() throws Exception {
+		CallRace race = new CallRace();
+		PendingCall original = new PendingCall();
+		PendingCall hedge = new PendingCall();
+		race.start(original);
+		race.start(hedge);
+		
+		Thread.currentThread().interrupt();
+		try {
+			race.await();
+			fail("no exception was thrown");
+		} catch (InterruptedIOException e) {
+			assertTrue(Thread.interrupted());
+		}
+		assertTrue(original.canceled);
+		assertTrue(hedge.canceled);
+		
+		TrackingBody body = new TrackingBody();
+		race.onResponse(hedge, response(body));
+		assertTrue(body.closed);
+	}
+	
+	@Test
+	public void shouldCloseLosingResponse() throws Exception {
+		CallRace race = new CallRace();
+		PendingCall original = new PendingCall();
+		PendingCall hedge = new PendingCall();
+		race.start(original);
+		race.start(hedge);
+		
+		TrackingBody winningBody = new TrackingBody();
+		TrackingBody losingBody = new TrackingBody();
+		race.onResponse(hedge, response(winningBody));
+		race.onResponse(original, response(losingBody));
+		
+		try (Response response = race.await()) {
+			assertTrue(original.canceled);
+			assertTrue(losingBody.closed);
+			assertTrue(!winningBody.closed);
+		}
+	}
+	
+	private Response response(ResponseBody body) {
+		return new Response.Builder()
+				.request(request)
+				.protocol(Protocol.HTTP_1_1)
+				.code(200)
+				.message("OK")
+				.body(body)
+				.build();
+	}
+	
+	/**
+	 * Call that never completes on its own.
+	 */
+	private class PendingCall implements Call {
+		
+		volatile boolean canceled;
+		
+		@Override
+		public Request request() {
+			return request;
+		}
+		
+		@Override
+		public Response execute() {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void enqueue(Callback responseCallback) {
+		}
+		
+		@Override
+		public void cancel() {
+			canceled = true;
+		}
+		
+		@Override
+		public boolean isExecuted() {
+			return true;
+		}
+		
+		@Override
+		public boolean isCanceled() {
+			return canceled;
+		}
+		
+		@Override
+		public Call clone() {
+			return new PendingCall();
+		}
+		
+	}
+	
+	private static class TrackingBody extends ResponseBody {
+		
+		volatile boolean closed;
+		
+		@Override
+		public MediaType contentType() {
+			return null;
+		}
+		
+		@Override
+		public long contentLength() {
+			return 0;
+		}
+		
+		@Override
+		public BufferedSource source() {
+			return new Buffer();
+		}
+		
+		@Override
+		public void close() {
+			closed = true;
+		}
+		
+	}
+	
+}
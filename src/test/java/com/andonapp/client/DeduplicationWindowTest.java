@@ -0,0 +1,145 @@
+package com.andonapp.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.andonapp.client.DeduplicationWindow.Admission;
+
+public class DeduplicationWindowTest {
+
+	private MutableClock clock;
+	
+	private DeduplicationWindow window;
+	
+	@Before
+	public void before() {
+		clock = new MutableClock();
+		window = new DeduplicationWindow(Duration.ofMinutes(10), 5, 100, clock);
+	}
+	
+	@Test
+	public void shouldDetectDuplicates() {
+		assertEquals(Admission.NEW, window.tryAcquire("plc-1:1"));
+		assertEquals(Admission.NEW, window.tryAcquire("plc-1:2"));
+		window.complete("plc-1:1");
+		assertEquals(Admission.DUPLICATE, window.tryAcquire("plc-1:1"));
+		assertEquals(1, window.getDuplicateCount());
+	}
+	
+	@Test
+	public void shouldReportDuplicatesInFlight() {
+		assertEquals(Admission.NEW, window.tryAcquire("plc-1:1"));
+		assertEquals(Admission.IN_FLIGHT, window.tryAcquire("plc-1:1"));
+		window.complete("plc-1:1");
+		assertEquals(Admission.DUPLICATE, window.tryAcquire("plc-1:1"));
+		assertEquals(1, window.getDuplicateCount());
+	}
+	
+	@Test
+	public void shouldRememberKeysForWindow() {
+		assertEquals(Admission.NEW, window.tryAcquire("plc-1:1"));
+		window.complete("plc-1:1");
+		clock.advance(Duration.ofMinutes(9));
+		assertEquals(Admission.DUPLICATE, window.tryAcquire("plc-1:1"));
+		clock.advance(Duration.ofMinutes(3));
+		assertEquals(Admission.NEW, window.tryAcquire("plc-1:1"));
+	}
+	
+	@Test
+	public void shouldForgetKeys() {
+		assertEquals(Admission.NEW, window.tryAcquire("plc-1:1"));
+		window.forget("plc-1:1");
+		assertEquals(Admission.NEW, window.tryAcquire("plc-1:1"));
+	}
+	
+	@Test
+	public void shouldNotDropKeysOverLimit() {
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Admission.NEW, window.tryAcquire("plc-1:" + i));
+			window.complete("plc-1:" + i);
+		}
+		assertEquals(Admission.UNTRACKED, window.tryAcquire("plc-1:100"));
+		assertEquals(Admission.UNTRACKED, window.tryAcquire("plc-1:100"));
+		assertEquals(2, window.getUntrackedCount());
+		assertEquals(Admission.DUPLICATE, window.tryAcquire("plc-1:99"));
+	}
+	
+	@Test
+	public void shouldAdmitEachKeyOnceWhenConcurrent() throws Exception {
+		window = new DeduplicationWindow(Duration.ofMinutes(10), 5, 10_000, clock);
+		int threads = 8;
+		int keys = 5_000;
+		AtomicInteger admitted = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < keys; i++) {
+						if (window.tryAcquire("plc-1:" + i) == Admission.NEW) {
+							admitted.incrementAndGet();
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		assertEquals(keys, admitted.get());
+		assertEquals(0, window.getDuplicateCount());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowExceptionWhenWindowZero() {
+		new DeduplicationWindow(Duration.ZERO, 5, 100, clock);
+	}
+	
+	private static class MutableClock extends Clock {
+		
+		private Instant now = Instant.parse("2018-03-07T16:00:00Z");
+		
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+		
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+		
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+		
+		@Override
+		public Instant instant() {
+			return now;
+		}
+		
+	}
+	
+}
@@ -1,30 +1,68 @@
 package com.andonapp.client;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
+import com.andonapp.client.diagnostics.RequestPhase;
+import com.andonapp.client.diagnostics.SlowRequest;
+import com.andonapp.client.diagnostics.SlowRequestSampler;
 import com.andonapp.client.exception.AndonAppException;
+import com.andonapp.client.exception.AndonDeadlineExceededException;
+import com.andonapp.client.exception.AndonInternalErrorException;
 import com.andonapp.client.exception.AndonInvalidRequestException;
+import com.andonapp.client.exception.AndonRequestInFlightException;
 import com.andonapp.client.exception.AndonResourceNotFoundException;
 import com.andonapp.client.exception.AndonUnauthorizedRequestException;
+import com.andonapp.client.journal.EventJournal;
+import com.andonapp.client.journal.JournalEntry;
+import com.andonapp.client.journal.JournalReader;
+import com.andonapp.client.model.BulkStatusUpdateRequest;
+import com.andonapp.client.model.BulkStatusUpdateResult;
 import com.andonapp.client.model.ErrorResponse;
 import com.andonapp.client.model.ReportDataRequest;
 import com.andonapp.client.model.SpringErrorResponse;
 import com.andonapp.client.model.UpdateStationStatusRequest;
+import com.andonapp.client.stats.StationStatistics;
+import com.andonapp.client.stats.StationStatisticsSnapshot;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.GzipSource;
+import okio.Okio;
 
 public class DefaultAndonAppClientTest {
 
@@ -34,6 +72,9 @@ public class DefaultAndonAppClientTest {
 	@Rule
 	public ExpectedException exception = ExpectedException.none();
 	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
 	private MockWebServer server;
 	
 	private DefaultAndonAppClient client;
@@ -243,13 +284,759 @@ public class DefaultAndonAppClientTest {
 		verifyRequest(request, server.takeRequest());
 	}
 	
+	@Test
+	public void shouldCompressRequestWhenAboveThreshold() throws Exception {
+		expectSuccess();
+		client.setRequestCompressionThreshold(256);
+		
+		ReportDataRequest request = ReportDataRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.passResult("FAIL")
+				.processTimeSeconds(200L)
+				.failReason("Test Failure")
+				.failNotes(repeat("leak test channel 3 exceeded limit; ", 40))
+				.build();
+		
+		client.reportData(request);
+		
+		RecordedRequest recordedRequest = server.takeRequest();
+		assertEquals("gzip", recordedRequest.getHeader("Content-Encoding"));
+		assertEquals(expectedBody(request),
+				Okio.buffer(new GzipSource(recordedRequest.getBody())).readUtf8());
+	}
+	
+	@Test
+	public void shouldNotCompressRequestWhenBelowThreshold() throws Exception {
+		expectSuccess();
+		client.setRequestCompressionThreshold(4096);
+		
+		ReportDataRequest request = ReportDataRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.passResult("PASS")
+				.processTimeSeconds(100L)
+				.build();
+		
+		client.reportData(request);
+		
+		RecordedRequest recordedRequest = server.takeRequest();
+		assertNull(recordedRequest.getHeader("Content-Encoding"));
+		verifyRequest(request, recordedRequest);
+	}
+	
+	@Test
+	public void shouldThrowExceptionWhenCompressionThresholdNegative() {
+		exception.expect(IllegalArgumentException.class);
+		client.setRequestCompressionThreshold(-5);
+	}
+	
+	@Test
+	public void shouldHedgeStatusUpdateWhenFirstAttemptStalls() throws Exception {
+		client.setHedgingPolicy(HedgingPolicy.builder()
+				.minDelay(Duration.ofMillis(50))
+				.budgetRatio(1.0)
+				.build());
+		
+		UpdateStationStatusRequest request = UpdateStationStatusRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.statusColor("RED")
+				.build();
+		
+		for (int i = 0; i < 20; i++) {
+			expectSuccess();
+			client.updateStationStatus(request);
+		}
+		
+		server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+		expectSuccess();
+		
+		client.updateStationStatus(request);
+		
+		assertEquals(22, server.getRequestCount());
+		assertEquals(1, client.getHedgeCount());
+	}
+	
+	@Test
+	public void shouldThrowExceptionWhenHedgingBudgetInvalid() {
+		exception.expect(IllegalArgumentException.class);
+		client.setHedgingPolicy(HedgingPolicy.builder().budgetRatio(2.0).build());
+	}
+	
+	@Test
+	public void shouldReportDataWhenWithinDeadline() throws Exception {
+		expectSuccess();
+		
+		ReportDataRequest request = ReportDataRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.passResult("PASS")
+				.processTimeSeconds(100L)
+				.build();
+		
+		client.reportData(request, CallOptions.withDeadline(Duration.ofSeconds(5)));
+		
+		verifyRequest(request, server.takeRequest());
+	}
+	
+	@Test
+	public void shouldThrowExceptionWhenDeadlineExceeded() throws Exception {
+		server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+		
+		UpdateStationStatusRequest request = UpdateStationStatusRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.statusColor("RED")
+				.build();
+		
+		long start = System.nanoTime();
+		try {
+			client.updateStationStatus(request, CallOptions.withDeadline(Duration.ofMillis(200)));
+			fail("no exception was thrown");
+		} catch (AndonDeadlineExceededException e) {
+			long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 2000);
+		}
+	}
+	
+	@Test
+	public void shouldThrowExceptionWhenHedgedDeadlineExceeded() throws Exception {
+		client.setHedgingPolicy(HedgingPolicy.builder().build());
+		server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+		
+		UpdateStationStatusRequest request = UpdateStationStatusRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.statusColor("RED")
+				.build();
+		
+		exception.expect(AndonDeadlineExceededException.class);
+		client.updateStationStatus(request, CallOptions.withDeadline(Duration.ofMillis(200)));
+	}
+	
+	@Test
+	public void shouldApplyReadTimeoutOverride() throws Exception {
+		server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+		
+		ReportDataRequest request = ReportDataRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.passResult("PASS")
+				.processTimeSeconds(100L)
+				.build();
+		
+		exception.expect(SocketTimeoutException.class);
+		client.reportData(request, CallOptions.builder()
+				.readTimeout(Duration.ofMillis(200))
+				.build());
+	}
+	
+	@Test
+	public void shouldThrowExceptionWhenDeadlineNotPositive() throws Exception {
+		exception.expect(IllegalArgumentException.class);
+		client.reportData(ReportDataRequest.builder().build(), CallOptions.withDeadline(Duration.ZERO));
+	}
+	
+	@Test
+	public void shouldRecordStatisticsWhenReportAccepted() throws Exception {
+		StationStatistics statistics = new StationStatistics();
+		client.setStatistics(statistics);
+		expectSuccess();
+		expectFailure(400, new ErrorResponse("RESOURCE_NOT_FOUND", "Station not found."));
+		
+		ReportDataRequest request = ReportDataRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.passResult("PASS")
+				.processTimeSeconds(100L)
+				.build();
+		
+		client.reportData(request);
+		try {
+			client.reportData(request);
+			fail("no exception was thrown");
+		} catch (AndonResourceNotFoundException e) {
+			StationStatisticsSnapshot snapshot = statistics.snapshot("line 1", "station 1");
+			assertEquals(1, snapshot.getPassCount());
+			assertEquals(0, snapshot.getFailCount());
+		}
+	}
+	
+	@Test
+	public void shouldJournalSubmittedAndAcknowledgedRequests() throws Exception {
+		Path path = temporaryFolder.getRoot().toPath().resolve("andon.journal");
+		EventJournal journal = EventJournal.open(path);
+		client.setJournal(journal);
+		expectSuccess();
+		expectFailure(400, new ErrorResponse("RESOURCE_NOT_FOUND", "Station not found."));
+		
+		client.updateStationStatus(UpdateStationStatusRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.statusColor("RED")
+				.build());
+		try {
+			client.reportData(ReportDataRequest.builder()
+					.lineName("line 1")
+					.stationName("station 2")
+					.passResult("PASS")
+					.processTimeSeconds(100L)
+					.idempotencyKey("plc-1:42")
+					.build());
+			fail("no exception was thrown");
+		} catch (AndonResourceNotFoundException e) {
+			journal.close();
+		}
+		
+		try (JournalReader reader = JournalReader.open(path)) {
+			JournalEntry status = reader.next();
+			assertEquals(JournalEntry.Type.STATUS_SUBMITTED, status.getType());
+			assertNull(status.getIdempotencyKey());
+			assertEquals(JournalEntry.Type.ACKNOWLEDGED, reader.next().getType());
+			JournalEntry report = reader.next();
+			assertEquals(JournalEntry.Type.REPORT_SUBMITTED, report.getType());
+			assertEquals(orgName, report.getReport().getOrgName());
+			assertNull(reader.next());
+			
+			assertNotNull(server.takeRequest().getHeader("Idempotency-Key"));
+			assertEquals("plc-1:42", report.getIdempotencyKey());
+			assertEquals("plc-1:42", server.takeRequest().getHeader("Idempotency-Key"));
+		}
+	}
+	
+	@Test
+	public void shouldSendIdempotencyKey() throws Exception {
+		expectSuccess();
+		expectSuccess();
+		expectSuccess();
+		
+		client.reportData(ReportDataRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.passResult("PASS")
+				.processTimeSeconds(100L)
+				.idempotencyKey("plc-1:42")
+				.build());
+		UpdateStationStatusRequest status = UpdateStationStatusRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.statusColor("RED")
+				.build();
+		client.updateStationStatus(status);
+		client.updateStationStatus(status);
+		
+		RecordedRequest report = server.takeRequest();
+		assertEquals("plc-1:42", report.getHeader("Idempotency-Key"));
+		assertFalse(report.getBody().readUtf8().contains("plc-1:42"));
+		
+		String firstKey = server.takeRequest().getHeader("Idempotency-Key");
+		String secondKey = server.takeRequest().getHeader("Idempotency-Key");
+		assertEquals(36, firstKey.length());
+		assertNotEquals(firstKey, secondKey);
+		assertNull(status.getIdempotencyKey());
+	}
+	
+	@Test
+	public void shouldDropDuplicateSubmissions() throws Exception {
+		DeduplicationWindow window = new DeduplicationWindow();
+		client.setDeduplicationWindow(window);
+		expectSuccess();
+		expectSuccess();
+		
+		client.reportData(report("plc-1:42"));
+		client.reportData(report("plc-1:42"));
+		client.reportData(report("plc-1:43"));
+		
+		assertEquals(2, server.getRequestCount());
+		assertEquals(1, window.getDuplicateCount());
+	}
+	
+	@Test
+	public void shouldRejectDuplicateOfSubmissionInFlight() throws Exception {
+		client.setDeduplicationWindow(new DeduplicationWindow());
+		CountDownLatch release = new CountDownLatch(1);
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+				release.await(5, TimeUnit.SECONDS);
+				return new MockResponse().setResponseCode(200);
+			}
+		});
+		
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> first = executor.submit(() -> {
+				client.reportData(report("plc-1:42"));
+				return null;
+			});
+			server.takeRequest(5, TimeUnit.SECONDS);
+			try {
+				client.reportData(report("plc-1:42"));
+				fail("no exception was thrown");
+			} catch (AndonRequestInFlightException e) {
+				release.countDown();
+			}
+			first.get(5, TimeUnit.SECONDS);
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+		
+		client.reportData(report("plc-1:42"));
+		assertEquals(1, server.getRequestCount());
+	}
+	
+	@Test
+	public void shouldResendDuplicateOfFailedSubmission() throws Exception {
+		client.setDeduplicationWindow(new DeduplicationWindow());
+		expectFailure(500, new ErrorResponse("INTERNAL_ERROR", "Something went wrong."));
+		expectSuccess();
+		
+		try {
+			client.reportData(report("plc-1:42"));
+			fail("no exception was thrown");
+		} catch (AndonInternalErrorException e) {
+			client.reportData(report("plc-1:42"));
+		}
+		
+		assertEquals(2, server.getRequestCount());
+	}
+	
+	@Test
+	public void shouldUpdateLineStatusConcurrently() throws Exception {
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+				Thread.sleep(200);
+				if (request.getBody().readUtf8().contains("\"station 3\"")) {
+					return new MockResponse()
+							.setResponseCode(400)
+							.setBody("{\"errorType\":\"RESOURCE_NOT_FOUND\",\"errorMessage\":\"Station not found.\"}");
+				}
+				return new MockResponse().setResponseCode(200);
+			}
+		});
+		
+		List<String> stationNames = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			stationNames.add("station " + i);
+		}
+		stationNames.add("station 0");
+		
+		long start = System.nanoTime();
+		BulkStatusUpdateResult result = client.updateLineStatus(BulkStatusUpdateRequest.builder()
+				.lineName("line 1")
+				.stationNames(stationNames)
+				.statusColor("RED")
+				.statusReason("Line down")
+				.idempotencyKey("outage-7")
+				.build());
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		
+		assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 2000);
+		assertEquals(20, server.getRequestCount());
+		assertEquals("line 1", result.getLineName());
+		assertEquals(19, result.getUpdatedStations().size());
+		assertEquals("station 0", result.getUpdatedStations().get(0));
+		assertFalse(result.isSuccessful());
+		assertTrue(result.getFailedStations().get("station 3") instanceof AndonResourceNotFoundException);
+		
+		RecordedRequest request = server.takeRequest();
+		assertTrue(request.getHeader("Idempotency-Key").startsWith("outage-7:station "));
+	}
+	
+	@Test
+	public void shouldNotRunBulkUpdatesOnDispatcherThreads() throws Exception {
+		List<String> threadNames = new CopyOnWriteArrayList<>();
+		DefaultAndonAppClient client = new DefaultAndonAppClient(orgName, API_TOKEN) {
+			@Override
+			public void updateStationStatus(UpdateStationStatusRequest request, CallOptions options) {
+				threadNames.add(Thread.currentThread().getName());
+			}
+		};
+		client.setBulkParallelism(2);
+		
+		BulkStatusUpdateResult result = client.updateLineStatus(BulkStatusUpdateRequest.builder()
+				.lineName("line 1")
+				.stationNames(Arrays.asList("station 1", "station 2", "station 3"))
+				.statusColor("RED")
+				.build());
+		
+		assertTrue(result.isSuccessful());
+		assertEquals(3, threadNames.size());
+		for (String threadName : threadNames) {
+			assertEquals("andon-bulk-update", threadName);
+		}
+	}
+	
+	@Test
+	public void shouldLimitBulkParallelism() throws Exception {
+		client.setBulkParallelism(1);
+		for (int i = 0; i < 3; i++) {
+			server.enqueue(new MockResponse()
+					.setResponseCode(200)
+					.setHeadersDelay(200, TimeUnit.MILLISECONDS));
+		}
+		
+		BulkStatusUpdateResult result = client.updateLineStatus(BulkStatusUpdateRequest.builder()
+				.lineName("line 1")
+				.stationNames(Arrays.asList("station 1", "station 2", "station 3"))
+				.statusColor("GREEN")
+				.build(), CallOptions.withDeadline(Duration.ofMillis(300)));
+		
+		assertEquals(Arrays.asList("station 1"), result.getUpdatedStations());
+		assertTrue(result.getFailedStations().get("station 2") instanceof AndonDeadlineExceededException);
+		assertTrue(result.getFailedStations().get("station 3") instanceof AndonDeadlineExceededException);
+	}
+	
+	@Test
+	public void shouldFailOverWhenEndpointUnreachable() throws Exception {
+		MockWebServer deadServer = new MockWebServer();
+		deadServer.start();
+		String deadEndpoint = deadServer.url("/").toString();
+		deadServer.shutdown();
+		
+		client.setEndpoints(Arrays.asList(Endpoint.of(deadEndpoint), Endpoint.of(server.url("/").toString())),
+				FailoverPolicy.builder().failureThreshold(1).build());
+		expectSuccess();
+		expectSuccess();
+		
+		client.reportData(report("plc-1:42"));
+		client.reportData(report("plc-1:43"));
+		
+		assertEquals(2, server.getRequestCount());
+		assertEquals(1, client.getFailoverCount());
+	}
+	
+	@Test
+	public void shouldFailOverWithSameIdempotencyKeyWhenServiceUnavailable() throws Exception {
+		MockWebServer fallback = new MockWebServer();
+		fallback.start();
+		try {
+			client.setEndpoints(Arrays.asList(Endpoint.of(server.url("/").toString()),
+					Endpoint.of(fallback.url("/").toString())));
+			server.enqueue(new MockResponse().setResponseCode(503));
+			fallback.enqueue(new MockResponse().setResponseCode(200));
+			
+			client.reportData(report("plc-1:42"));
+			
+			assertEquals("plc-1:42", server.takeRequest().getHeader("Idempotency-Key"));
+			assertEquals("plc-1:42", fallback.takeRequest().getHeader("Idempotency-Key"));
+			assertEquals(1, client.getFailoverCount());
+		} finally {
+			fallback.shutdown();
+		}
+	}
+	
+	@Test
+	public void shouldNotFailOverReportOnGatewayTimeout() throws Exception {
+		MockWebServer fallback = new MockWebServer();
+		fallback.start();
+		try {
+			client.setEndpoints(Arrays.asList(Endpoint.of(server.url("/").toString()),
+					Endpoint.of(fallback.url("/").toString())));
+			server.enqueue(new MockResponse().setResponseCode(504));
+			
+			try {
+				client.reportData(report("plc-1:42"));
+				fail("no exception was thrown");
+			} catch (AndonAppException e) {
+				assertEquals(0, fallback.getRequestCount());
+				assertEquals(0, client.getFailoverCount());
+			}
+		} finally {
+			fallback.shutdown();
+		}
+	}
+	
+	@Test
+	public void shouldNotFailOverReportAfterReadTimeout() throws Exception {
+		MockWebServer fallback = new MockWebServer();
+		fallback.start();
+		try {
+			client.setEndpoints(Arrays.asList(Endpoint.of(server.url("/").toString()),
+					Endpoint.of(fallback.url("/").toString())));
+			client.setReadTimeout(Duration.ofMillis(200));
+			server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+			
+			try {
+				client.reportData(report("plc-1:42"));
+				fail("no exception was thrown");
+			} catch (SocketTimeoutException e) {
+				assertEquals(0, fallback.getRequestCount());
+			}
+		} finally {
+			fallback.shutdown();
+		}
+	}
+	
+	@Test
+	public void shouldFailOverStatusUpdateOnGatewayTimeout() throws Exception {
+		MockWebServer fallback = new MockWebServer();
+		fallback.start();
+		try {
+			client.setEndpoints(Arrays.asList(Endpoint.of(server.url("/").toString()),
+					Endpoint.of(fallback.url("/").toString())));
+			server.enqueue(new MockResponse().setResponseCode(504));
+			fallback.enqueue(new MockResponse().setResponseCode(200));
+			
+			client.updateStationStatus(UpdateStationStatusRequest.builder()
+					.lineName("line 1")
+					.stationName("station 1")
+					.statusColor("RED")
+					.build());
+			
+			assertEquals(1, fallback.getRequestCount());
+			assertEquals(1, client.getFailoverCount());
+		} finally {
+			fallback.shutdown();
+		}
+	}
+	
+	@Test
+	public void shouldFailOverReportOnGatewayTimeoutWhenEndpointsDeduplicate() throws Exception {
+		MockWebServer fallback = new MockWebServer();
+		fallback.start();
+		try {
+			client.setEndpoints(Arrays.asList(Endpoint.of(server.url("/").toString()),
+					Endpoint.of(fallback.url("/").toString())),
+					FailoverPolicy.builder().endpointsDeduplicate(true).build());
+			server.enqueue(new MockResponse().setResponseCode(504));
+			fallback.enqueue(new MockResponse().setResponseCode(200));
+			
+			client.reportData(report("plc-1:42"));
+			
+			assertEquals("plc-1:42", fallback.takeRequest().getHeader("Idempotency-Key"));
+			assertEquals(1, client.getFailoverCount());
+		} finally {
+			fallback.shutdown();
+		}
+	}
+	
+	@Test
+	public void shouldProbeEjectedEndpointAgainAfterUncheckedException() throws Exception {
+		MockWebServer fallback = new MockWebServer();
+		fallback.start();
+		AtomicBoolean failNext = new AtomicBoolean();
+		client = new DefaultAndonAppClient(orgName, API_TOKEN, new OkHttpClient.Builder()
+				.addInterceptor(chain -> {
+					if (failNext.getAndSet(false)) {
+						throw new IllegalStateException("interceptor failed");
+					}
+					return chain.proceed(chain.request());
+				})
+				.build());
+		try {
+			client.setEndpoints(Arrays.asList(Endpoint.of(server.url("/").toString()),
+					Endpoint.of(fallback.url("/").toString())),
+					FailoverPolicy.builder().failureThreshold(1).baseEjection(Duration.ofMillis(50)).build());
+			server.enqueue(new MockResponse().setResponseCode(503));
+			fallback.enqueue(new MockResponse().setResponseCode(200));
+			client.reportData(report("plc-1:42"));
+			
+			Thread.sleep(100);
+			failNext.set(true);
+			try {
+				client.reportData(report("plc-1:43"));
+				fail("no exception was thrown");
+			} catch (IllegalStateException e) {
+				// the probe of the ejected endpoint failed before it was sent
+			}
+			
+			server.enqueue(new MockResponse().setResponseCode(200));
+			client.reportData(report("plc-1:44"));
+			
+			assertEquals(2, server.getRequestCount());
+			assertEquals(1, fallback.getRequestCount());
+		} finally {
+			fallback.shutdown();
+		}
+	}
+	
+	@Test
+	public void shouldNotFailOverOnApplicationError() throws Exception {
+		MockWebServer fallback = new MockWebServer();
+		fallback.start();
+		try {
+			client.setEndpoints(Arrays.asList(Endpoint.of(server.url("/").toString()),
+					Endpoint.of(fallback.url("/").toString())));
+			expectFailure(400, new ErrorResponse("INVALID_REQUEST", "'PAS' is not a valid pass result."));
+			
+			try {
+				client.reportData(report("plc-1:42"));
+				fail("no exception was thrown");
+			} catch (AndonInvalidRequestException e) {
+				assertEquals(0, fallback.getRequestCount());
+				assertEquals(0, client.getFailoverCount());
+			}
+		} finally {
+			fallback.shutdown();
+		}
+	}
+	
+	@Test
+	public void shouldMultiplexConcurrentRequestsOverH2c() throws Exception {
+		server.setProtocols(Arrays.asList(Protocol.H2_PRIOR_KNOWLEDGE));
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				return new MockResponse()
+						.setResponseCode(200)
+						.setHeadersDelay(100, TimeUnit.MILLISECONDS);
+			}
+		});
+		client.setHttpMode(HttpMode.H2C);
+		
+		List<String> stationNames = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			stationNames.add("station " + i);
+		}
+		BulkStatusUpdateResult result = client.updateLineStatus(BulkStatusUpdateRequest.builder()
+				.lineName("line 1")
+				.stationNames(stationNames)
+				.statusColor("GREEN")
+				.build());
+		
+		assertTrue(result.isSuccessful());
+		int connections = 0;
+		for (int i = 0; i < 20; i++) {
+			if (server.takeRequest().getSequenceNumber() == 0) {
+				connections++;
+			}
+		}
+		assertEquals(1, connections);
+	}
+	
+	@Test
+	public void shouldThrowExceptionWhenHttpModeNull() {
+		exception.expect(IllegalArgumentException.class);
+		client.setHttpMode(null);
+	}
+	
+	@Test
+	public void shouldNotModifyCallersRequest() throws Exception {
+		expectSuccess();
+		
+		ReportDataRequest request = report(null);
+		client.reportData(request);
+		
+		assertNull(request.getOrgName());
+		assertTrue(server.takeRequest().getBody().readUtf8().contains("\"orgName\":\"Demo\""));
+	}
+	
+	@Test
+	public void shouldSendRotatedApiToken() throws Exception {
+		expectSuccess();
+		expectSuccess();
+		
+		client.reportData(report(null));
+		client.setApiToken("rotated-token");
+		client.reportData(report(null));
+		
+		assertEquals("Bearer " + API_TOKEN, server.takeRequest().getHeader(AUTHORIZATION_HEADER));
+		assertEquals("Bearer rotated-token", server.takeRequest().getHeader(AUTHORIZATION_HEADER));
+	}
+	
+	@Test
+	public void shouldMoveToNewEndpointWithoutLosingOtherSettings() throws Exception {
+		MockWebServer relay = new MockWebServer();
+		relay.start();
+		try {
+			relay.enqueue(new MockResponse().setResponseCode(200));
+			client.setApiToken("rotated-token");
+			client.setEndpoint(relay.url("/").toString());
+			
+			client.reportData(report(null));
+			
+			assertEquals(0, server.getRequestCount());
+			assertEquals("Bearer rotated-token", relay.takeRequest().getHeader(AUTHORIZATION_HEADER));
+		} finally {
+			relay.shutdown();
+		}
+	}
+	
+	@Test
+	public void shouldApplyReadTimeout() throws Exception {
+		server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+		client.setReadTimeout(Duration.ofMillis(200));
+		
+		exception.expect(SocketTimeoutException.class);
+		client.reportData(report(null));
+	}
+	
+	@Test
+	public void shouldThrowExceptionWhenTimeoutNegative() {
+		exception.expect(IllegalArgumentException.class);
+		client.setConnectTimeout(Duration.ofMillis(-1));
+	}
+	
+	@Test
+	public void shouldThrowExceptionWhenRotatedApiTokenBlank() {
+		exception.expect(IllegalArgumentException.class);
+		client.setApiToken(" ");
+	}
+	
+	@Test
+	public void shouldSampleSlowRequests() throws Exception {
+		server.enqueue(new MockResponse()
+				.setResponseCode(200)
+				.setHeadersDelay(200, TimeUnit.MILLISECONDS));
+		expectSuccess();
+		SlowRequestSampler sampler = new SlowRequestSampler(1);
+		client.setSlowRequestSampler(sampler);
+		
+		client.reportData(report(null));
+		client.updateStationStatus(UpdateStationStatusRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.statusColor("GREEN")
+				.build());
+		
+		assertEquals(2, sampler.getCallCount());
+		SlowRequest slowest = sampler.getSlowest().get(0);
+		assertEquals("data/report", slowest.getPath());
+		assertEquals(Integer.valueOf(200), slowest.getResponseCode());
+		assertTrue(slowest.isNewConnection());
+		assertTrue(slowest.getPhases().get(RequestPhase.SERVER).toMillis() >= 200);
+	}
+	
+	private ReportDataRequest report(String idempotencyKey) {
+		return ReportDataRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.passResult("PASS")
+				.processTimeSeconds(100L)
+				.idempotencyKey(idempotencyKey)
+				.build();
+	}
+	
+	private String repeat(String value, int times) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < times; i++) {
+			builder.append(value);
+		}
+		return builder.toString();
+	}
+	
 	private void verifyRequest(Object originalRequest, RecordedRequest recordedRequest) throws JsonProcessingException {
-		assertEquals(objectMapper.writeValueAsString(originalRequest),
+		assertEquals(expectedBody(originalRequest),
 				recordedRequest.getBody().readUtf8());
 		assertEquals("Bearer " + API_TOKEN,
 				recordedRequest.getHeader(AUTHORIZATION_HEADER));
 	}
 	
+	private String expectedBody(Object originalRequest) throws JsonProcessingException {
+		if (originalRequest instanceof ReportDataRequest) {
+			return objectMapper.writeValueAsString(((ReportDataRequest) originalRequest).toBuilder()
+					.orgName(orgName)
+					.build());
+		}
+		return objectMapper.writeValueAsString(((UpdateStationStatusRequest) originalRequest).toBuilder()
+				.orgName(orgName)
+				.build());
+	}
+	
 	private void expectSuccess() {
 		server.enqueue(new MockResponse()
 				.setResponseCode(200)
@@ -0,0 +1,195 @@
+package com.andonapp.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class EndpointSelectorTest {
+
+	private static final String RELAY = "http://relay.plant-1.local/public/api/v1/";
+	private static final String PORTAL = "https://portal.andonapp.com/public/api/v1/";
+	
+	@Rule
+	public ExpectedException exception = ExpectedException.none();
+	
+	private final AtomicLong now = new AtomicLong();
+	
+	@Test
+	public void shouldTryEndpointsInListedOrderUntilLatencyIsKnown() {
+		EndpointSelector selector = selector(FailoverPolicy.builder().build(), Endpoint.of(RELAY), Endpoint.of(PORTAL));
+		
+		assertEquals(Arrays.asList(RELAY, PORTAL), urls(selector.plan()));
+	}
+	
+	@Test
+	public void shouldPreferLowestLatencyRelativeToWeight() {
+		EndpointSelector selector = selector(FailoverPolicy.builder().build(),
+				Endpoint.of(RELAY, 4), Endpoint.of(PORTAL));
+		
+		List<EndpointSelector.Target> targets = selector.getTargets();
+		selector.succeeded(targets.get(0), millis(120));
+		selector.succeeded(targets.get(1), millis(40));
+		assertEquals(Arrays.asList(RELAY, PORTAL), urls(selector.plan()));
+		
+		selector.succeeded(targets.get(0), millis(400));
+		selector.succeeded(targets.get(0), millis(400));
+		assertEquals(Arrays.asList(PORTAL, RELAY), urls(selector.plan()));
+	}
+	
+	@Test
+	public void shouldEjectAfterConsecutiveFailures() {
+		EndpointSelector selector = selector(FailoverPolicy.builder().failureThreshold(2).build(),
+				Endpoint.of(RELAY), Endpoint.of(PORTAL));
+		EndpointSelector.Target relay = selector.getTargets().get(0);
+		
+		selector.failed(relay);
+		assertEquals(Arrays.asList(RELAY, PORTAL), urls(selector.plan()));
+		
+		selector.failed(relay);
+		assertEquals(Arrays.asList(PORTAL), urls(selector.plan()));
+	}
+	
+	@Test
+	public void shouldProbeOnceWhenEjectionEnds() {
+		EndpointSelector selector = selector(FailoverPolicy.builder()
+				.failureThreshold(1)
+				.baseEjection(Duration.ofSeconds(2))
+				.build(), Endpoint.of(RELAY), Endpoint.of(PORTAL));
+		EndpointSelector.Target relay = selector.getTargets().get(0);
+		
+		selector.failed(relay);
+		advance(1999);
+		assertEquals(Arrays.asList(PORTAL), urls(selector.plan()));
+		
+		advance(1);
+		assertEquals(Arrays.asList(RELAY, PORTAL), urls(selector.plan()));
+		assertEquals(Arrays.asList(PORTAL), urls(selector.plan()));
+		
+		selector.succeeded(relay, millis(10));
+		assertTrue(relay.isHealthy());
+		assertEquals(2, selector.plan().size());
+	}
+	
+	@Test
+	public void shouldBackOffWhileProbesFail() {
+		EndpointSelector selector = selector(FailoverPolicy.builder()
+				.failureThreshold(1)
+				.baseEjection(Duration.ofSeconds(2))
+				.maxEjection(Duration.ofSeconds(5))
+				.build(), Endpoint.of(RELAY), Endpoint.of(PORTAL));
+		EndpointSelector.Target relay = selector.getTargets().get(0);
+		
+		selector.failed(relay);
+		List<Long> ejections = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			long ejectedAt = now.get();
+			while (!selector.plan().contains(relay)) {
+				advance(100);
+			}
+			ejections.add(TimeUnit.NANOSECONDS.toMillis(now.get() - ejectedAt));
+			selector.failed(relay);
+		}
+		
+		assertEquals(Arrays.asList(2000L, 4000L, 5000L), ejections);
+	}
+	
+	@Test
+	public void shouldReleaseProbeWhenAbandoned() {
+		EndpointSelector selector = selector(FailoverPolicy.builder().failureThreshold(1).build(),
+				Endpoint.of(RELAY), Endpoint.of(PORTAL));
+		EndpointSelector.Target relay = selector.getTargets().get(0);
+		
+		selector.failed(relay);
+		advance(2000);
+		assertEquals(RELAY, urls(selector.plan()).get(0));
+		
+		selector.abandoned(relay);
+		assertEquals(RELAY, urls(selector.plan()).get(0));
+	}
+	
+	@Test
+	public void shouldFallBackToEjectedEndpointsWhenNoneAreHealthy() {
+		EndpointSelector selector = selector(FailoverPolicy.builder().failureThreshold(1).build(),
+				Endpoint.of(RELAY), Endpoint.of(PORTAL));
+		
+		selector.failed(selector.getTargets().get(1));
+		advance(1000);
+		selector.failed(selector.getTargets().get(0));
+		
+		assertEquals(Arrays.asList(PORTAL, RELAY), urls(selector.plan()));
+		
+		selector.failed(selector.getTargets().get(1));
+		assertFalse(selector.getTargets().get(1).isHealthy());
+	}
+	
+	@Test
+	public void shouldRefreshLatencyOfIdleEndpoint() {
+		EndpointSelector selector = selector(FailoverPolicy.builder()
+				.latencyRefreshInterval(Duration.ofSeconds(30))
+				.build(), Endpoint.of(RELAY), Endpoint.of(PORTAL));
+		List<EndpointSelector.Target> targets = selector.getTargets();
+		selector.succeeded(targets.get(0), millis(500));
+		selector.succeeded(targets.get(1), millis(50));
+		
+		advance(29_000);
+		selector.succeeded(targets.get(1), millis(50));
+		assertEquals(PORTAL, urls(selector.plan()).get(0));
+		
+		advance(1_000);
+		assertEquals(RELAY, urls(selector.plan()).get(0));
+		assertEquals(PORTAL, urls(selector.plan()).get(0));
+	}
+	
+	@Test
+	public void shouldThrowExceptionWhenEndpointsEmpty() {
+		exception.expect(IllegalArgumentException.class);
+		new EndpointSelector(new ArrayList<>(), FailoverPolicy.builder().build());
+	}
+	
+	@Test
+	public void shouldThrowExceptionWhenMaxEjectionBelowBase() {
+		exception.expect(IllegalArgumentException.class);
+		selector(FailoverPolicy.builder()
+				.baseEjection(Duration.ofSeconds(10))
+				.maxEjection(Duration.ofSeconds(5))
+				.build(), Endpoint.of(RELAY));
+	}
+	
+	@Test
+	public void shouldThrowExceptionWhenWeightNotPositive() {
+		exception.expect(IllegalArgumentException.class);
+		Endpoint.of(RELAY, 0);
+	}
+	
+	private EndpointSelector selector(FailoverPolicy policy, Endpoint... endpoints) {
+		return new EndpointSelector(Arrays.asList(endpoints), policy, now::get);
+	}
+	
+	private void advance(long millis) {
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+	
+	private static long millis(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+	
+	private static List<String> urls(List<EndpointSelector.Target> targets) {
+		List<String> urls = new ArrayList<>();
+		for (EndpointSelector.Target target : targets) {
+			urls.add(target.getUrl().toString());
+		}
+		return urls;
+	}
+	
+}
@@ -0,0 +1,67 @@
+package com.andonapp.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+import okio.Buffer;
+import okio.GzipSource;
+import okio.Okio;
+
+public class GzipRequestBodyTest {
+
+	private DeflaterPool deflaterPool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, 2);
+	
+	@Test
+	public void shouldRoundTripWhenCompressible() throws Exception {
+		byte[] content = "{\"failNotes\":\"aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa\"}"
+				.getBytes(StandardCharsets.UTF_8);
+		
+		assertArrayEquals(content, gunzip(gzip(content)));
+	}
+	
+	@Test
+	public void shouldRoundTripWhenEmpty() throws Exception {
+		byte[] content = new byte[0];
+		
+		assertArrayEquals(content, gunzip(gzip(content)));
+	}
+	
+	@Test
+	public void shouldRoundTripWhenLargerThanBuffer() throws Exception {
+		byte[] content = new byte[100_000];
+		new Random(42).nextBytes(content);
+		
+		assertArrayEquals(content, gunzip(gzip(content)));
+	}
+	
+	@Test
+	public void shouldWriteSameBytesWhenReplayed() throws Exception {
+		byte[] content = "{\"lineName\":\"line 1\",\"stationName\":\"station 1\"}"
+				.getBytes(StandardCharsets.UTF_8);
+		GzipRequestBody body = new GzipRequestBody(DefaultAndonAppClient.JSON, content, deflaterPool);
+		
+		Buffer first = new Buffer();
+		body.writeTo(first);
+		Buffer second = new Buffer();
+		body.writeTo(second);
+		
+		assertEquals(first, second);
+	}
+	
+	private Buffer gzip(byte[] content) throws Exception {
+		Buffer buffer = new Buffer();
+		new GzipRequestBody(DefaultAndonAppClient.JSON, content, deflaterPool).writeTo(buffer);
+		return buffer;
+	}
+	
+	private byte[] gunzip(Buffer compressed) throws Exception {
+		return Okio.buffer(new GzipSource(compressed)).readByteArray();
+	}
+	
+}
@@ -0,0 +1,221 @@
+package com.andonapp.client.diagnostics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class SlowRequestSamplerTest {
+
+	private static final String REPORT_URL = "https://portal.andonapp.com/public/api/v1/data/report";
+	
+	@Rule
+	public ExpectedException exception = ExpectedException.none();
+	
+	private final AtomicLong now = new AtomicLong();
+	
+	private final OkHttpClient httpClient = new OkHttpClient();
+	
+	@Test
+	public void shouldSplitCallIntoPhases() {
+		SlowRequestSampler sampler = new SlowRequestSampler(4, now::get);
+		Call call = call(REPORT_URL);
+		EventListener timer = sampler.create(call);
+		
+		timer.callStart(call);
+		advance(1);
+		timer.dnsStart(call, "portal.andonapp.com");
+		advance(4);
+		timer.dnsEnd(call, "portal.andonapp.com", Collections.emptyList());
+		timer.connectStart(call, null, null);
+		advance(3);
+		timer.secureConnectStart(call);
+		advance(7);
+		timer.secureConnectEnd(call, null);
+		timer.connectEnd(call, null, null, Protocol.HTTP_1_1);
+		timer.connectionAcquired(call, null);
+		timer.requestHeadersStart(call);
+		timer.requestHeadersEnd(call, call.request());
+		advance(1);
+		timer.requestBodyEnd(call, 120);
+		advance(100);
+		timer.responseHeadersStart(call);
+		timer.responseHeadersEnd(call, response(call, 200));
+		advance(2);
+		timer.responseBodyEnd(call, 0);
+		timer.callEnd(call);
+		
+		SlowRequest request = sampler.getSlowest().get(0);
+		assertEquals("data/report", request.getPath());
+		assertEquals(REPORT_URL, request.getUrl());
+		assertEquals(Duration.ofMillis(118), request.getDuration());
+		assertEquals(Arrays.asList(1L, 4L, 3L, 7L, 1L, 100L, 2L), phaseMillis(request));
+		assertTrue(request.isNewConnection());
+		assertEquals(Integer.valueOf(200), request.getResponseCode());
+		assertNull(request.getFailure());
+	}
+	
+	@Test
+	public void shouldAttributeReadTimeoutToServer() {
+		SlowRequestSampler sampler = new SlowRequestSampler(4, now::get);
+		Call call = call(REPORT_URL);
+		EventListener timer = sampler.create(call);
+		
+		timer.callStart(call);
+		advance(20);
+		timer.connectionAcquired(call, null);
+		timer.requestHeadersStart(call);
+		timer.requestHeadersEnd(call, call.request());
+		timer.requestBodyEnd(call, 120);
+		advance(5000);
+		timer.callFailed(call, new SocketTimeoutException("timeout"));
+		
+		SlowRequest request = sampler.getSlowest().get(0);
+		assertEquals(Arrays.asList(20L, 0L, 0L, 0L, 0L, 5000L, 0L), phaseMillis(request));
+		assertFalse(request.isNewConnection());
+		assertNull(request.getResponseCode());
+		assertEquals("java.net.SocketTimeoutException: timeout", request.getFailure());
+	}
+	
+	@Test
+	public void shouldAddUpExchangesWhenRetried() {
+		SlowRequestSampler sampler = new SlowRequestSampler(4, now::get);
+		Call call = call(REPORT_URL);
+		EventListener timer = sampler.create(call);
+		
+		timer.callStart(call);
+		timer.connectionAcquired(call, null);
+		timer.requestHeadersStart(call);
+		timer.requestHeadersEnd(call, call.request());
+		advance(1);
+		timer.requestBodyEnd(call, 120);
+		advance(30);
+		// the pooled connection was stale, so the request is sent again on a new one
+		timer.connectionAcquired(call, null);
+		timer.requestHeadersStart(call);
+		timer.requestHeadersEnd(call, call.request());
+		advance(2);
+		timer.requestBodyEnd(call, 120);
+		advance(50);
+		timer.responseHeadersStart(call);
+		timer.responseHeadersEnd(call, response(call, 200));
+		timer.responseBodyEnd(call, 0);
+		timer.callEnd(call);
+		
+		SlowRequest request = sampler.getSlowest().get(0);
+		assertEquals(Duration.ofMillis(83), request.getDuration());
+		assertEquals(Arrays.asList(0L, 0L, 0L, 0L, 3L, 80L, 0L), phaseMillis(request));
+	}
+	
+	@Test
+	public void shouldKeepOnlySlowestCalls() {
+		SlowRequestSampler sampler = new SlowRequestSampler(2, now::get);
+		
+		for (long millis : new long[] {10, 30, 20, 5, 25}) {
+			complete(sampler, "https://portal.andonapp.com/public/api/v1/station/update", millis);
+		}
+		
+		List<Duration> durations = new ArrayList<>();
+		for (SlowRequest request : sampler.getSlowest()) {
+			durations.add(request.getDuration());
+		}
+		assertEquals(Arrays.asList(Duration.ofMillis(30), Duration.ofMillis(25)), durations);
+		assertEquals(5, sampler.getCallCount());
+		assertEquals("station/update", sampler.getSlowest().get(0).getPath());
+	}
+	
+	@Test
+	public void shouldForgetCallsWhenReset() {
+		SlowRequestSampler sampler = new SlowRequestSampler(1, now::get);
+		complete(sampler, REPORT_URL, 50);
+		
+		sampler.reset();
+		complete(sampler, REPORT_URL, 10);
+		
+		assertEquals(Duration.ofMillis(10), sampler.getSlowest().get(0).getDuration());
+		assertEquals(1, sampler.getCallCount());
+	}
+	
+	@Test
+	public void shouldDumpSlowestFirst() {
+		SlowRequestSampler sampler = new SlowRequestSampler(4, now::get);
+		complete(sampler, "http://relay.plant-1.local/public/api/v1/station/update", 10);
+		complete(sampler, REPORT_URL, 40);
+		
+		String[] lines = sampler.dump().split("\\R");
+		assertEquals(3, lines.length);
+		assertEquals("Slowest 2 of 2 calls", lines[0]);
+		assertTrue(lines[1], lines[1].contains("data/report") && lines[1].contains("server=40.0")
+				&& lines[1].contains("status=200"));
+		assertTrue(lines[2], lines[2].contains("station/update"));
+	}
+	
+	@Test
+	public void shouldThrowExceptionWhenCapacityNotPositive() {
+		exception.expect(IllegalArgumentException.class);
+		new SlowRequestSampler(0);
+	}
+	
+	/**
+	 * Runs a call over a pooled connection that spends the given time waiting for the server.
+	 */
+	private void complete(SlowRequestSampler sampler, String url, long serverMillis) {
+		Call call = call(url);
+		EventListener timer = sampler.create(call);
+		timer.callStart(call);
+		timer.connectionAcquired(call, null);
+		timer.requestHeadersStart(call);
+		timer.requestHeadersEnd(call, call.request());
+		advance(serverMillis);
+		timer.responseHeadersStart(call);
+		timer.responseHeadersEnd(call, response(call, 200));
+		timer.responseBodyEnd(call, 0);
+		timer.callEnd(call);
+	}
+	
+	private Call call(String url) {
+		return httpClient.newCall(new Request.Builder().url(url).build());
+	}
+	
+	private static Response response(Call call, int code) {
+		return new Response.Builder()
+				.request(call.request())
+				.protocol(Protocol.HTTP_1_1)
+				.code(code)
+				.message("OK")
+				.build();
+	}
+	
+	private void advance(long millis) {
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+	
+	private static List<Long> phaseMillis(SlowRequest request) {
+		List<Long> millis = new ArrayList<>();
+		for (RequestPhase phase : RequestPhase.values()) {
+			millis.add(request.getPhases().get(phase).toMillis());
+		}
+		return millis;
+	}
+	
+}
@@ -0,0 +1,298 @@
+package com.andonapp.client.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+public class EventJournalTest {
+
+	private static final Clock CLOCK = Clock.fixed(Instant.parse("2018-03-07T16:00:00Z"), ZoneOffset.UTC);
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	
+	private Path path;
+	
+	@Before
+	public void before() throws IOException {
+		path = folder.getRoot().toPath().resolve("andon.journal");
+	}
+	
+	@Test
+	public void shouldReadBackWrittenEvents() throws Exception {
+		try (EventJournal journal = EventJournal.open(path, EventJournal.DEFAULT_MAX_DICTIONARY_SIZE, CLOCK)) {
+			ReportDataRequest report = report("station 1", "FAIL", "Test Failure", "leak at\nvalve");
+			report.setIdempotencyKey("plc-1:42");
+			assertEquals(1, journal.reportSubmitted(report));
+			assertEquals(2, journal.statusSubmitted(status("station 1", "RED")));
+			journal.acknowledged(1);
+		}
+		
+		try (JournalReader reader = JournalReader.open(path)) {
+			JournalEntry first = reader.next();
+			assertEquals(JournalEntry.Type.REPORT_SUBMITTED, first.getType());
+			assertEquals(1, first.getSequence());
+			assertEquals(CLOCK.millis(), first.getTimestampMillis());
+			assertEquals("Demo", first.getReport().getOrgName());
+			assertEquals("line 1", first.getReport().getLineName());
+			assertEquals("station 1", first.getReport().getStationName());
+			assertEquals("FAIL", first.getReport().getPassResult());
+			assertEquals(Long.valueOf(120), first.getReport().getProcessTimeSeconds());
+			assertEquals("Test Failure", first.getReport().getFailReason());
+			assertEquals("leak at\nvalve", first.getReport().getFailNotes());
+			assertEquals("plc-1:42", first.getIdempotencyKey());
+			assertEquals("plc-1:42", first.getReport().getIdempotencyKey());
+			
+			JournalEntry second = reader.next();
+			assertEquals(JournalEntry.Type.STATUS_SUBMITTED, second.getType());
+			assertEquals(2, second.getSequence());
+			assertEquals("RED", second.getStatus().getStatusColor());
+			assertNull(second.getStatus().getStatusNotes());
+			assertNull(second.getIdempotencyKey());
+			
+			JournalEntry third = reader.next();
+			assertEquals(JournalEntry.Type.ACKNOWLEDGED, third.getType());
+			assertEquals(1, third.getSequence());
+			
+			assertNull(reader.next());
+		}
+	}
+	
+	@Test
+	public void shouldAppendToExistingJournal() throws Exception {
+		try (EventJournal journal = EventJournal.open(path)) {
+			journal.reportSubmitted(report("station 1", "PASS", null, null));
+		}
+		try (EventJournal journal = EventJournal.open(path)) {
+			assertEquals(2, journal.reportSubmitted(report("station 1", "PASS", null, null)));
+			journal.acknowledged(1);
+		}
+		
+		try (JournalReader reader = JournalReader.open(path)) {
+			assertEquals("station 1", reader.next().getReport().getStationName());
+			assertEquals("station 1", reader.next().getReport().getStationName());
+			assertEquals(1, reader.next().getSequence());
+			assertNull(reader.next());
+		}
+	}
+	
+	@Test
+	public void shouldDropTornRecordOnReopen() throws Exception {
+		try (EventJournal journal = EventJournal.open(path)) {
+			journal.reportSubmitted(report("station 1", "PASS", null, null));
+			journal.reportSubmitted(report("station 2", "PASS", null, "some notes"));
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 3);
+		}
+		
+		try (EventJournal journal = EventJournal.open(path)) {
+			assertEquals(2, journal.reportSubmitted(report("station 3", "PASS", null, null)));
+		}
+		
+		try (JournalReader reader = JournalReader.open(path)) {
+			assertEquals("station 1", reader.next().getReport().getStationName());
+			assertEquals("station 3", reader.next().getReport().getStationName());
+			assertNull(reader.next());
+		}
+	}
+	
+	@Test
+	public void shouldWriteEachRecordByDefault() throws Exception {
+		EventJournal journal = EventJournal.open(path);
+		try {
+			journal.reportSubmitted(report("station 1", "PASS", null, null));
+			
+			try (JournalReader reader = JournalReader.open(path)) {
+				assertEquals("station 1", reader.next().getReport().getStationName());
+				assertNull(reader.next());
+			}
+		} finally {
+			journal.close();
+		}
+	}
+	
+	@Test
+	public void shouldBufferRecordsUntilFlushed() throws Exception {
+		try (EventJournal journal = EventJournal.open(path, EventJournal.Durability.BUFFERED)) {
+			journal.reportSubmitted(report("station 1", "PASS", null, null));
+			
+			try (JournalReader reader = JournalReader.open(path)) {
+				assertNull(reader.next());
+			}
+			
+			journal.flush();
+			try (JournalReader reader = JournalReader.open(path)) {
+				assertEquals("station 1", reader.next().getReport().getStationName());
+			}
+		}
+	}
+	
+	@Test
+	public void shouldSyncEachRecord() throws Exception {
+		try (EventJournal journal = EventJournal.open(path, EventJournal.Durability.SYNC)) {
+			journal.acknowledged(journal.statusSubmitted(status("station 1", "RED")));
+			
+			try (JournalReader reader = JournalReader.open(path)) {
+				assertEquals(JournalEntry.Type.STATUS_SUBMITTED, reader.next().getType());
+				assertEquals(JournalEntry.Type.ACKNOWLEDGED, reader.next().getType());
+			}
+		}
+	}
+	
+	@Test
+	public void shouldWriteInlineWhenDictionaryFull() throws Exception {
+		try (EventJournal journal = EventJournal.open(path, 2, CLOCK)) {
+			journal.reportSubmitted(report("station 1", "PASS", null, null));
+			journal.reportSubmitted(report("station 2", "FAIL", "Test Failure", null));
+		}
+		
+		try (JournalReader reader = JournalReader.open(path)) {
+			reader.next();
+			ReportDataRequest report = reader.next().getReport();
+			assertEquals("station 2", report.getStationName());
+			assertEquals("Test Failure", report.getFailReason());
+		}
+	}
+	
+	@Test
+	public void shouldReadBackIdempotencyKeysOfEveryShape() throws Exception {
+		List<String> keys = Arrays.asList("plc-7:cycle-18342", "plc-7:cycle-18343", "cycle-007", "cycle-0",
+				"12345", "0", "no number", "123e4567-e89b-12d3-a456-426614174000",
+				"too-long-9223372036854775807", "");
+		try (EventJournal journal = EventJournal.open(path, EventJournal.DEFAULT_MAX_DICTIONARY_SIZE, CLOCK)) {
+			for (String key : keys) {
+				UpdateStationStatusRequest status = status("station 1", "GREEN");
+				status.setIdempotencyKey(key);
+				journal.statusSubmitted(status);
+			}
+		}
+		
+		List<String> read = new ArrayList<>();
+		try (JournalReader reader = JournalReader.open(path)) {
+			JournalEntry entry;
+			while ((entry = reader.next()) != null) {
+				read.add(entry.getIdempotencyKey());
+			}
+		}
+		assertEquals(keys, read);
+	}
+	
+	@Test
+	public void shouldUseFarLessSpaceThanText() throws Exception {
+		long textBytes = 0;
+		try (EventJournal journal = EventJournal.open(path, EventJournal.DEFAULT_MAX_DICTIONARY_SIZE, CLOCK)) {
+			for (int i = 0; i < 10_000; i++) {
+				ReportDataRequest request = i % 20 == 0
+						? report("Leak Test " + (i % 50), "FAIL", "Pressure Decay Out Of Range", null)
+						: report("Leak Test " + (i % 50), "PASS", null, null);
+				request.setLineName("Final Assembly");
+				// the client journals the key a caller sets, and none for the random keys it generates
+				request.setIdempotencyKey("plc-" + (i % 50) + ":cycle-" + (18_000 + i / 50));
+				textBytes += request.toString().length() + 1;
+				journal.acknowledged(journal.reportSubmitted(request));
+			}
+		}
+		
+		assertTrue(Files.size(path) * 10 < textBytes);
+	}
+	
+	@Test
+	public void shouldExportJson() throws Exception {
+		try (EventJournal journal = EventJournal.open(path, EventJournal.DEFAULT_MAX_DICTIONARY_SIZE, CLOCK)) {
+			UpdateStationStatusRequest status = status("station 1", "GREEN");
+			status.setIdempotencyKey("outage-7:station 1");
+			journal.acknowledged(journal.statusSubmitted(status));
+		}
+		
+		StringWriter writer = new StringWriter();
+		try (JournalReader reader = JournalReader.open(path)) {
+			assertEquals(2, reader.exportJson(writer));
+		}
+		
+		assertEquals("{\"type\":\"STATUS_SUBMITTED\",\"sequence\":1,\"timestampMillis\":1520438400000,"
+				+ "\"status\":{\"orgName\":\"Demo\",\"lineName\":\"line 1\",\"stationName\":\"station 1\","
+				+ "\"statusColor\":\"GREEN\"},\"idempotencyKey\":\"outage-7:station 1\"}\n"
+				+ "{\"type\":\"ACKNOWLEDGED\",\"sequence\":1,\"timestampMillis\":1520438400000}\n",
+				writer.toString());
+	}
+	
+	@Test
+	public void shouldRejectUnknownSequence() throws Exception {
+		thrown.expect(IllegalArgumentException.class);
+		
+		try (EventJournal journal = EventJournal.open(path)) {
+			journal.acknowledged(1);
+		}
+	}
+	
+	@Test
+	public void shouldRejectOtherFiles() throws Exception {
+		Files.write(path, "offsetMillis,type\n".getBytes());
+		
+		thrown.expect(IOException.class);
+		thrown.expectMessage("is not an Andon event journal");
+		
+		EventJournal.open(path);
+	}
+	
+	@Test
+	public void shouldRefuseToAppendToOlderVersion() throws Exception {
+		Files.write(path, new byte[] {'A', 'N', 'D', 'J', 1});
+		try (JournalReader reader = JournalReader.open(path)) {
+			assertNull(reader.next());
+		}
+		
+		thrown.expect(IOException.class);
+		thrown.expectMessage("has journal version 1");
+		
+		EventJournal.open(path);
+	}
+	
+	private ReportDataRequest report(String stationName, String passResult, String failReason, String failNotes) {
+		return ReportDataRequest.builder()
+				.orgName("Demo")
+				.lineName("line 1")
+				.stationName(stationName)
+				.passResult(passResult)
+				.processTimeSeconds(120L)
+				.failReason(failReason)
+				.failNotes(failNotes)
+				.build();
+	}
+	
+	private UpdateStationStatusRequest status(String stationName, String statusColor) {
+		return UpdateStationStatusRequest.builder()
+				.orgName("Demo")
+				.lineName("line 1")
+				.stationName(stationName)
+				.statusColor(statusColor)
+				.build();
+	}
+	
+}
@@ -0,0 +1,161 @@
+package com.andonapp.client.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.andonapp.client.model.ReportDataRequest;
+
+public class StationStatisticsTest {
+
+	private MutableClock clock;
+	
+	private StationStatistics statistics;
+	
+	@Before
+	public void before() {
+		clock = new MutableClock();
+		statistics = new StationStatistics(Duration.ofMinutes(60), 6, 2, 2, clock);
+	}
+	
+	@Test
+	public void shouldReturnNullWhenStationUnknown() {
+		assertNull(statistics.snapshot("line 1", "station 1"));
+	}
+	
+	@Test
+	public void shouldCountPassAndFail() {
+		statistics.record(pass("station 1", 100L));
+		statistics.record(pass("station 1", 100L));
+		statistics.record(pass("station 1", 100L));
+		statistics.record(fail("station 1", "Test Failure"));
+		clock.advance(Duration.ofMinutes(30));
+		
+		StationStatisticsSnapshot snapshot = statistics.snapshot("line 1", "station 1");
+		assertEquals(3, snapshot.getPassCount());
+		assertEquals(1, snapshot.getFailCount());
+		assertEquals(0.75, snapshot.getFirstPassYield(), 0.0001);
+		assertEquals(8.0, snapshot.getThroughputPerHour(), 0.0001);
+		assertEquals(Duration.ofMinutes(30), snapshot.getWindow());
+	}
+	
+	@Test
+	public void shouldAgeOutOldBuckets() {
+		statistics.record(pass("station 1", 100L));
+		clock.advance(Duration.ofMinutes(30));
+		statistics.record(pass("station 1", 100L));
+		clock.advance(Duration.ofMinutes(40));
+		
+		StationStatisticsSnapshot snapshot = statistics.snapshot("line 1", "station 1");
+		assertEquals(1, snapshot.getPassCount());
+		assertEquals(Duration.ofMinutes(60), snapshot.getWindow());
+		
+		clock.advance(Duration.ofMinutes(60));
+		assertEquals(0, statistics.snapshot("line 1", "station 1").getPassCount());
+		assertNull(statistics.snapshot("line 1", "station 1").getProcessTimeP50());
+	}
+	
+	@Test
+	public void shouldEstimateProcessTimePercentiles() {
+		for (long seconds = 1; seconds <= 100; seconds++) {
+			statistics.record(pass("station 1", seconds));
+		}
+		
+		StationStatisticsSnapshot snapshot = statistics.snapshot("line 1", "station 1");
+		assertWithin(50, snapshot.getProcessTimeP50());
+		assertWithin(90, snapshot.getProcessTimeP90());
+		assertWithin(99, snapshot.getProcessTimeP99());
+		assertEquals(Long.valueOf(100), snapshot.getProcessTimeMax());
+	}
+	
+	@Test
+	public void shouldCapFailReasons() {
+		statistics.record(fail("station 1", "A"));
+		statistics.record(fail("station 1", "A"));
+		statistics.record(fail("station 1", "B"));
+		statistics.record(fail("station 1", "C"));
+		statistics.record(fail("station 1", "D"));
+		
+		Map<String, Long> failReasons = statistics.snapshot("line 1", "station 1").getFailReasons();
+		assertEquals(3, failReasons.size());
+		assertEquals(Long.valueOf(2), failReasons.get("A"));
+		assertEquals(Long.valueOf(1), failReasons.get("B"));
+		assertEquals(Long.valueOf(2), failReasons.get("(other)"));
+	}
+	
+	@Test
+	public void shouldDropStationsOverLimit() {
+		statistics.record(pass("station 1", 100L));
+		statistics.record(pass("station 2", 100L));
+		statistics.record(pass("station 3", 100L));
+		
+		assertNull(statistics.snapshot("line 1", "station 3"));
+		assertEquals(1, statistics.getDroppedReportCount());
+		assertEquals(2, statistics.snapshotAll().size());
+		assertEquals(2, statistics.snapshotLine("line 1").size());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldThrowExceptionWhenWindowZero() {
+		new StationStatistics(Duration.ZERO, 6, 2, 2, clock);
+	}
+	
+	private void assertWithin(long expected, Long actual) {
+		assertTrue(expected + " vs " + actual, Math.abs(expected - actual) <= Math.max(1, expected / 16));
+	}
+	
+	private ReportDataRequest pass(String stationName, Long processTimeSeconds) {
+		return ReportDataRequest.builder()
+				.lineName("line 1")
+				.stationName(stationName)
+				.passResult("PASS")
+				.processTimeSeconds(processTimeSeconds)
+				.build();
+	}
+	
+	private ReportDataRequest fail(String stationName, String failReason) {
+		return ReportDataRequest.builder()
+				.lineName("line 1")
+				.stationName(stationName)
+				.passResult("FAIL")
+				.failReason(failReason)
+				.processTimeSeconds(100L)
+				.build();
+	}
+	
+	private static class MutableClock extends Clock {
+		
+		private Instant now = Instant.parse("2018-03-07T16:00:00Z");
+		
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+		
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+		
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+		
+		@Override
+		public Instant instant() {
+			return now;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,54 @@
+#!/usr/bin/env bash
+#
+# Measures wall-clock time of a whole StartupProbe process, from exec to exit, for
+# the JVM build and, if it has been built, the native build. Build first with:
+#
+#   ./gradlew :simulator:installDist :startup:installDist
+#   ./gradlew :startup:nativeImage    # optional, requires GRAALVM_HOME
+#
+# Usage: startup/benchmark.sh [RUNS] [PORT]
+
+set -euo pipefail
+
+RUNS=${1:-20}
+PORT=${2:-18080}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+SIMULATOR="$ROOT/simulator/build/install/simulator/bin/simulator"
+JVM_PROBE="$ROOT/startup/build/install/startup/bin/startup"
+NATIVE_PROBE="$ROOT/startup/build/native/startup-probe"
+ENDPOINT="http://127.0.0.1:$PORT/public/api/v1"
+
+"$SIMULATOR" --port "$PORT" > /dev/null &
+SIMULATOR_PID=$!
+trap 'kill $SIMULATOR_PID' EXIT
+until (exec 3<>"/dev/tcp/127.0.0.1/$PORT") 2> /dev/null; do
+  sleep 0.1
+done
+
+run() {
+  local name=$1
+  local probe=$2
+  local times=()
+
+  "$probe" "$ENDPOINT" > /dev/null    # warm the file system cache
+  for ((i = 0; i < RUNS; i++)); do
+    local start end
+    start=$(date +%s%N)
+    "$probe" "$ENDPOINT" > /dev/null
+    end=$(date +%s%N)
+    times+=($(( (end - start) / 1000000 )))
+  done
+
+  local sorted
+  sorted=($(printf '%s\n' "${times[@]}" | sort -n))
+  printf '%-8s runs=%d min=%dms median=%dms max=%dms\n' "$name" "$RUNS" \
+      "${sorted[0]}" "${sorted[$((RUNS / 2))]}" "${sorted[$((RUNS - 1))]}"
+  "$probe" "$ENDPOINT"
+}
+
+run jvm "$JVM_PROBE"
+if [ -x "$NATIVE_PROBE" ]; then
+  run native "$NATIVE_PROBE"
+else
+  echo "native   not built, run ./gradlew :startup:nativeImage"
+fi
@@ -0,0 +1,58 @@
+package com.andonapp.startup;
+
+import com.andonapp.client.DefaultAndonAppClient;
+import com.andonapp.client.model.ReportDataRequest;
+import com.andonapp.client.model.UpdateStationStatusRequest;
+
+/**
+ * Behaves like a station-side hook: constructs a client, sends one report and one
+ * status update, and exits. Prints how long each step took within the process;
+ * {@code benchmark.sh} measures the whole process, including JVM startup.
+ *
+ * <pre>
+ * StartupProbe ENDPOINT [ORG_NAME] [API_TOKEN]
+ * </pre>
+ */
+public final class StartupProbe {
+
+	private StartupProbe() {
+		// static class
+	}
+
+	public static void main(String[] args) throws Exception {
+		long start = System.nanoTime();
+		if (args.length < 1) {
+			System.err.println("Usage: StartupProbe ENDPOINT [ORG_NAME] [API_TOKEN]");
+			System.exit(2);
+		}
+
+		DefaultAndonAppClient client = new DefaultAndonAppClient(
+				args.length > 1 ? args[1] : "Demo",
+				args.length > 2 ? args[2] : "api-token");
+		client.setEndpoint(args[0]);
+		long constructed = System.nanoTime();
+
+		client.reportData(ReportDataRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.passResult("PASS")
+				.processTimeSeconds(120L)
+				.build());
+		long firstRequest = System.nanoTime();
+
+		client.updateStationStatus(UpdateStationStatusRequest.builder()
+				.lineName("line 1")
+				.stationName("station 1")
+				.statusColor("GREEN")
+				.build());
+		long secondRequest = System.nanoTime();
+
+		System.out.println(String.format("construct=%.1fms first-request=%.1fms second-request=%.1fms",
+				millis(constructed - start), millis(firstRequest - constructed), millis(secondRequest - firstRequest)));
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+}